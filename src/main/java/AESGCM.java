@@ -0,0 +1,20 @@
+import javax.crypto.spec.GCMParameterSpec;
+import java.security.spec.AlgorithmParameterSpec;
+
+public class AESGCM extends JcaAeadAlgorithm {
+
+    public AESGCM() throws Exception {
+        super("AES/GCM/NoPadding", "AES", 128); // Same key size as AES
+    }
+
+    @Override
+    protected AlgorithmParameterSpec parameters(byte[] nonce) {
+        // 96-bit IV, the size GCM is designed for
+        return new GCMParameterSpec(getTagLength() * 8, nonce);
+    }
+
+    @Override
+    public String getName() {
+        return "AES-GCM";
+    }
+}
@@ -0,0 +1,16 @@
+import javax.crypto.Cipher;
+
+// Authenticated encryption with associated data. The one-shot methods use the EncryptionAlgorithm
+// format (nonce prepended to ciphertext + tag); decryption throws AEADBadTagException when the
+// ciphertext, nonce or associated data have been tampered with.
+public interface AeadAlgorithm extends EncryptionAlgorithm {
+    byte[] encrypt(byte[] plaintext, byte[] aad) throws Exception;
+    byte[] decrypt(byte[] ciphertext, byte[] aad) throws Exception;
+    // Multi-part operation: a cipher initialized with the nonce and associated data, ready for
+    // update()/doFinal() calls. A nonce must never be used twice with the same key.
+    Cipher startEncryption(byte[] nonce, byte[] aad) throws Exception;
+    Cipher startDecryption(byte[] nonce, byte[] aad) throws Exception;
+    byte[] generateNonce();
+    int getNonceLength(); // In bytes
+    int getTagLength(); // In bytes
+}
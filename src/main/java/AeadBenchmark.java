@@ -0,0 +1,86 @@
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+// Measures what authentication costs for an AeadAlgorithm: tag verification on its own, timed as the
+// rejection of a forged message (full decryption is timed by the standard analysis). Also checks
+// that the multi-part API produces the same ciphertext format as the one-shot methods.
+public class AeadBenchmark {
+
+    public static final int STREAM_CHUNK_SIZE = 64 * 1024;
+
+    private final int samples;
+
+    public AeadBenchmark(int samples) {
+        this.samples = Math.max(1, samples);
+    }
+
+    // Measure tag verification and store it in performance
+    public void measure(AeadAlgorithm algorithm, byte[] plaintext, byte[] aad,
+                        AlgorithmEvaluator.AlgorithmPerformance performance) throws Exception {
+        byte[] ciphertext = algorithm.encrypt(plaintext, aad);
+        checkStreaming(algorithm, plaintext, aad, ciphertext);
+
+        // Flip a tag bit: the whole message is authenticated and rejected without releasing plaintext
+        byte[] forged = Arrays.copyOf(ciphertext, ciphertext.length);
+        forged[forged.length - 1] ^= 0x01;
+        double[] verifyTimes = new double[samples];
+        for (int i = 0; i < samples; i++) {
+            long start = System.nanoTime();
+            try {
+                algorithm.decrypt(forged, aad);
+                throw new IllegalStateException(algorithm.getName() + " accepted a forged tag");
+            } catch (AEADBadTagException expected) {
+                verifyTimes[i] = (System.nanoTime() - start) / 1_000_000.0;
+            }
+        }
+
+        performance.setTagVerificationTime(RunComparator.mean(verifyTimes));
+    }
+
+    // Measure tag verification on the first blockBytes of the plaintext and scale the time linearly
+    // to the whole plaintext (the tag covers every byte). Used when the algorithm is measured on a
+    // sample, so the check does not undo the time budget
+    public void measureBlock(AeadAlgorithm algorithm, byte[] plaintext, int blockBytes, byte[] aad,
+                             AlgorithmEvaluator.AlgorithmPerformance performance) throws Exception {
+        if (plaintext.length <= blockBytes) {
+            measure(algorithm, plaintext, aad, performance);
+            return;
+        }
+        measure(algorithm, Arrays.copyOf(plaintext, blockBytes), aad, performance);
+        performance.setTagVerificationTime(performance.getTagVerificationTime() * plaintext.length / blockBytes);
+    }
+
+    // Round-trip the data through the multi-part API in both directions, against the one-shot methods
+    private static void checkStreaming(AeadAlgorithm algorithm, byte[] plaintext, byte[] aad, byte[] oneShot) throws Exception {
+        int nonceLength = algorithm.getNonceLength();
+        byte[] nonce = Arrays.copyOf(oneShot, nonceLength);
+        byte[] body = Arrays.copyOfRange(oneShot, nonceLength, oneShot.length);
+        byte[] decrypted = process(algorithm.startDecryption(nonce, aad), body);
+        if (!Arrays.equals(plaintext, decrypted)) {
+            throw new IllegalStateException(algorithm.getName() + ": multi-part decryption does not match");
+        }
+
+        byte[] streamNonce = algorithm.generateNonce();
+        byte[] streamed = process(algorithm.startEncryption(streamNonce, aad), plaintext);
+        byte[] framed = new byte[nonceLength + streamed.length];
+        System.arraycopy(streamNonce, 0, framed, 0, nonceLength);
+        System.arraycopy(streamed, 0, framed, nonceLength, streamed.length);
+        if (!Arrays.equals(plaintext, algorithm.decrypt(framed, aad))) {
+            throw new IllegalStateException(algorithm.getName() + ": multi-part encryption does not round-trip");
+        }
+    }
+
+    private static byte[] process(Cipher cipher, byte[] input) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(input.length + 32);
+        for (int offset = 0; offset < input.length; offset += STREAM_CHUNK_SIZE) {
+            byte[] part = cipher.update(input, offset, Math.min(STREAM_CHUNK_SIZE, input.length - offset));
+            if (part != null) {
+                output.write(part);
+            }
+        }
+        output.write(cipher.doFinal());
+        return output.toByteArray();
+    }
+}
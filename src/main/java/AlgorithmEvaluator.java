@@ -12,9 +12,21 @@ public class AlgorithmEvaluator {
         private String name;
         private double encryptionTime; // In milliseconds
         private double throughput; // In MB/s
+        private double decryptionTime; // In milliseconds
+        private double decryptionThroughput; // In MB/s
+        private double[] decryptionTimeSamples = new double[0]; // Individual timed decryptions in milliseconds
+        private boolean roundTripVerified; // Decrypted data matched the original byte for byte
+        private double tagVerificationTime; // In milliseconds to reject a forged message, AEAD only
+        private boolean authenticated;
         private int avalancheEffect; // Higher is better
         private double entropy; // Higher is better
         private int keyLength; // In bits
+        private double[] encryptionTimeSamples = new double[0]; // Individual timed runs in milliseconds
+        private double fileSizeMB;
+        private boolean estimated; // Extrapolated from a sample of the file rather than measured on all of it
+        private double encryptionTimeError; // 95% half-width in milliseconds, estimates only
+        private double decryptionTimeError;
+        private ThroughputTimeline timeline; // Per-chunk encryption throughput, null when not recorded
         private Map<String, Double> scores = new HashMap<>();
         private double totalScore;
         
@@ -34,6 +46,24 @@ public class AlgorithmEvaluator {
             return encryptionTime;
         }
         
+        public void setEncryptionTimeSamples(double[] encryptionTimeSamples, double fileSizeMB) {
+            this.encryptionTimeSamples = encryptionTimeSamples;
+            this.fileSizeMB = fileSizeMB;
+        }
+        
+        public double[] getEncryptionTimeSamples() {
+            return encryptionTimeSamples;
+        }
+        
+        // Throughput of each timed run in MB/s
+        public double[] getThroughputSamples() {
+            double[] throughputSamples = new double[encryptionTimeSamples.length];
+            for (int i = 0; i < encryptionTimeSamples.length; i++) {
+                throughputSamples[i] = fileSizeMB / (encryptionTimeSamples[i] / 1000.0);
+            }
+            return throughputSamples;
+        }
+        
         public void setThroughput(double throughput) {
             this.throughput = throughput;
         }
@@ -42,6 +72,52 @@ public class AlgorithmEvaluator {
             return throughput;
         }
         
+        public void setDecryptionTime(double decryptionTime) {
+            this.decryptionTime = decryptionTime;
+        }
+        
+        public double getDecryptionTime() {
+            return decryptionTime;
+        }
+        
+        public void setDecryptionThroughput(double decryptionThroughput) {
+            this.decryptionThroughput = decryptionThroughput;
+        }
+        
+        public double getDecryptionThroughput() {
+            return decryptionThroughput;
+        }
+        
+        public void setDecryptionTimeSamples(double[] decryptionTimeSamples) {
+            this.decryptionTimeSamples = decryptionTimeSamples;
+        }
+        
+        public double[] getDecryptionTimeSamples() {
+            return decryptionTimeSamples;
+        }
+        
+        public void setRoundTripVerified(boolean roundTripVerified) {
+            this.roundTripVerified = roundTripVerified;
+        }
+        
+        public boolean isRoundTripVerified() {
+            return roundTripVerified;
+        }
+        
+        public void setTagVerificationTime(double tagVerificationTime) {
+            this.tagVerificationTime = tagVerificationTime;
+            this.authenticated = true;
+        }
+        
+        public double getTagVerificationTime() {
+            return tagVerificationTime;
+        }
+        
+        // True for AEAD algorithms, which have decryption and tag verification metrics
+        public boolean isAuthenticated() {
+            return authenticated;
+        }
+        
         public void setAvalancheEffect(int avalancheEffect) {
             this.avalancheEffect = avalancheEffect;
         }
@@ -66,6 +142,38 @@ public class AlgorithmEvaluator {
             return keyLength;
         }
         
+        // Mark the times as extrapolated, with their 95% error in milliseconds
+        public void setEstimate(double encryptionTimeError, double decryptionTimeError) {
+            this.estimated = true;
+            this.encryptionTimeError = encryptionTimeError;
+            this.decryptionTimeError = decryptionTimeError;
+        }
+        
+        public boolean isEstimated() {
+            return estimated;
+        }
+        
+        public double getEncryptionTimeError() {
+            return encryptionTimeError;
+        }
+        
+        public double getDecryptionTimeError() {
+            return decryptionTimeError;
+        }
+        
+        // Relative 95% error of the encryption time (and so of the throughput), 0 when measured
+        public double getRelativeError() {
+            return estimated && encryptionTime > 0 ? encryptionTimeError / encryptionTime : 0;
+        }
+        
+        public void setTimeline(ThroughputTimeline timeline) {
+            this.timeline = timeline;
+        }
+        
+        public ThroughputTimeline getTimeline() {
+            return timeline;
+        }
+        
         public void setScore(String metric, double score) {
             scores.put(metric, score);
         }
@@ -74,19 +182,9 @@ public class AlgorithmEvaluator {
             return scores.getOrDefault(metric, 0.0);
         }
         
-        public void calculateTotalScore() {
-            // Weighted sum of all scores
-            double speedWeight = 0.3;
-            double securityWeight = 0.5;
-            double efficiencyWeight = 0.2;
-            
-            totalScore = 
-                speedWeight * (scores.getOrDefault("encryptionTime", 0.0) + 
-                              scores.getOrDefault("throughput", 0.0)) / 2 +
-                securityWeight * (scores.getOrDefault("avalancheEffect", 0.0) + 
-                                scores.getOrDefault("entropy", 0.0) + 
-                                scores.getOrDefault("keyLength", 0.0)) / 3 +
-                efficiencyWeight * (scores.getOrDefault("resourceUsage", 0.0));
+        // Weighted total of the scores, set by AlgorithmEvaluator.normalizeScores from a WeightProfile
+        public void setTotalScore(double totalScore) {
+            this.totalScore = totalScore;
         }
         
         public double getTotalScore() {
@@ -94,91 +192,145 @@ public class AlgorithmEvaluator {
         }
     }
     
+    // Class to store digest/MAC performance metrics
+    public static class IntegrityPerformance {
+        private String name;
+        private double throughput; // Streaming throughput in MB/s
+        private double smallMessageLatency; // In microseconds per 64-byte message
+        private int outputLength; // In bits
+        private int keyLength; // In bits, 0 for unkeyed digests
+        
+        public IntegrityPerformance(String name) {
+            this.name = name;
+        }
+        
+        public String getName() {
+            return name;
+        }
+        
+        public void setThroughput(double throughput) {
+            this.throughput = throughput;
+        }
+        
+        public double getThroughput() {
+            return throughput;
+        }
+        
+        public void setSmallMessageLatency(double smallMessageLatency) {
+            this.smallMessageLatency = smallMessageLatency;
+        }
+        
+        public double getSmallMessageLatency() {
+            return smallMessageLatency;
+        }
+        
+        public void setOutputLength(int outputLength) {
+            this.outputLength = outputLength;
+        }
+        
+        public int getOutputLength() {
+            return outputLength;
+        }
+        
+        public void setKeyLength(int keyLength) {
+            this.keyLength = keyLength;
+        }
+        
+        public int getKeyLength() {
+            return keyLength;
+        }
+        
+        // Milliseconds spent per MB of data
+        public double getCostPerMB() {
+            return 1000.0 / throughput;
+        }
+    }
+    
     // Store performances of all algorithms
     private List<AlgorithmPerformance> performances = new ArrayList<>();
+    private List<IntegrityPerformance> integrityPerformances = new ArrayList<>();
+    private ScoringEngine scoringEngine = new ScoringEngine();
+    private WeightProfile profile = WeightProfile.BALANCED;
     
     // Add performance data for an algorithm
     public void addPerformance(AlgorithmPerformance performance) {
         performances.add(performance);
     }
     
+    // Add performance data for a digest or MAC
+    public void addIntegrityPerformance(IntegrityPerformance performance) {
+        integrityPerformances.add(performance);
+    }
+    
+    public List<IntegrityPerformance> getIntegrityPerformances() {
+        return integrityPerformances;
+    }
+    
+    // Milliseconds per MB to encrypt and then digest/MAC the data (encrypt-then-MAC)
+    public static double getCombinedCostPerMB(AlgorithmPerformance cipher, IntegrityPerformance integrity) {
+        return 1000.0 / cipher.getThroughput() + integrity.getCostPerMB();
+    }
+    
+    // Cheapest cipher + integrity pairing
+    public String getBestCombination() {
+        String best = null;
+        double bestCost = Double.MAX_VALUE;
+        for (AlgorithmPerformance cipher : performances) {
+            for (IntegrityPerformance integrity : integrityPerformances) {
+                double cost = getCombinedCostPerMB(cipher, integrity);
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    best = cipher.getName() + " + " + integrity.getName() + String.format(" (%.2f ms/MB)", cost);
+                }
+            }
+        }
+        return best;
+    }
+    
     // Normalize scores (0 to 10) for each metric across algorithms
+    // Score every algorithm with the profile selected by -Dscoring.profile (default: balanced)
     public void normalizeScores() {
-        // For encryption time (lower is better)
-        double minTime = Double.MAX_VALUE;
-        double maxTime = Double.MIN_VALUE;
-        for (AlgorithmPerformance perf : performances) {
-            minTime = Math.min(minTime, perf.getEncryptionTime());
-            maxTime = Math.max(maxTime, perf.getEncryptionTime());
-        }
-        
-        // For throughput (higher is better)
-        double minThroughput = Double.MAX_VALUE;
-        double maxThroughput = Double.MIN_VALUE;
-        for (AlgorithmPerformance perf : performances) {
-            minThroughput = Math.min(minThroughput, perf.getThroughput());
-            maxThroughput = Math.max(maxThroughput, perf.getThroughput());
-        }
-        
-        // For avalanche effect (higher is better)
-        int minAvalanche = Integer.MAX_VALUE;
-        int maxAvalanche = Integer.MIN_VALUE;
-        for (AlgorithmPerformance perf : performances) {
-            minAvalanche = Math.min(minAvalanche, perf.getAvalancheEffect());
-            maxAvalanche = Math.max(maxAvalanche, perf.getAvalancheEffect());
-        }
-        
-        // For entropy (higher is better)
-        double minEntropy = Double.MAX_VALUE;
-        double maxEntropy = Double.MIN_VALUE;
+        normalizeScores(WeightProfile.getActive());
+    }
+    
+    // Normalize each metric to 0-10 across all algorithms and weight them into a total score
+    public void normalizeScores(WeightProfile profile) {
+        scoringEngine = new ScoringEngine();
         for (AlgorithmPerformance perf : performances) {
-            minEntropy = Math.min(minEntropy, perf.getEntropy());
-            maxEntropy = Math.max(maxEntropy, perf.getEntropy());
+            scoringEngine.add(perf);
         }
-        
-        // For key length (higher is better)
-        int minKeyLength = Integer.MAX_VALUE;
-        int maxKeyLength = Integer.MIN_VALUE;
-        for (AlgorithmPerformance perf : performances) {
-            minKeyLength = Math.min(minKeyLength, perf.getKeyLength());
-            maxKeyLength = Math.max(maxKeyLength, perf.getKeyLength());
+        scoringEngine.normalize();
+        rescore(profile);
+    }
+    
+    // Recompute the total scores under other weights; the normalized scores are reused
+    public void rescore(WeightProfile profile) {
+        this.profile = profile;
+        double[] totals = scoringEngine.totals(profile);
+        for (int i = 0; i < performances.size(); i++) {
+            AlgorithmPerformance perf = performances.get(i);
+            for (int m = 0; m < ScoringEngine.METRICS.length; m++) {
+                perf.setScore(ScoringEngine.METRICS[m], scoringEngine.getScore(m, i));
+            }
+            perf.setTotalScore(totals[i]);
         }
-        
-        // Calculate normalized scores for each algorithm
-        for (AlgorithmPerformance perf : performances) {
-            // For encryption time (lower is better, so inversed)
-            double timeRange = maxTime - minTime;
-            double timeScore = timeRange > 0 ? 
-                10 * (1 - (perf.getEncryptionTime() - minTime) / timeRange) : 5.0;
-            perf.setScore("encryptionTime", timeScore);
-            
-            // For throughput (higher is better)
-            double throughputRange = maxThroughput - minThroughput;
-            double throughputScore = throughputRange > 0 ? 
-                10 * ((perf.getThroughput() - minThroughput) / throughputRange) : 5.0;
-            perf.setScore("throughput", throughputScore);
-            
-            // For avalanche effect (higher is better)
-            double avalancheRange = maxAvalanche - minAvalanche;
-            double avalancheScore = avalancheRange > 0 ? 
-                10 * ((perf.getAvalancheEffect() - minAvalanche) / avalancheRange) : 5.0;
-            perf.setScore("avalancheEffect", avalancheScore);
-            
-            // For entropy (higher is better)
-            double entropyRange = maxEntropy - minEntropy;
-            double entropyScore = entropyRange > 0 ? 
-                10 * ((perf.getEntropy() - minEntropy) / entropyRange) : 5.0;
-            perf.setScore("entropy", entropyScore);
-            
-            // For key length (higher is better)
-            double keyLengthRange = maxKeyLength - minKeyLength;
-            double keyLengthScore = keyLengthRange > 0 ? 
-                10 * ((perf.getKeyLength() - minKeyLength) / keyLengthRange) : 5.0;
-            perf.setScore("keyLength", keyLengthScore);
-            
-            // Calculate total score
-            perf.calculateTotalScore();
+    }
+    
+    public ScoringEngine getScoringEngine() {
+        return scoringEngine;
+    }
+    
+    public WeightProfile getProfile() {
+        return profile;
+    }
+    
+    // Algorithms on the speed/security Pareto frontier, fastest first
+    public List<AlgorithmPerformance> getParetoFrontier() {
+        List<AlgorithmPerformance> frontier = new ArrayList<>();
+        for (int row : scoringEngine.paretoFrontier(profile)) {
+            frontier.add(performances.get(row));
         }
+        return frontier;
     }
     
     // Get the best algorithm based on total score
@@ -189,7 +341,8 @@ public class AlgorithmEvaluator {
     // Get best algorithm for specific criteria
     public AlgorithmPerformance getBestForSpeed() {
         return Collections.max(performances, Comparator.comparing(perf -> 
-            (perf.getScore("encryptionTime") + perf.getScore("throughput")) / 2));
+            (perf.getScore("encryptionTime") + perf.getScore("throughput") +
+             perf.getScore("decryptionTime") + perf.getScore("decryptionThroughput")) / 4));
     }
     
     public AlgorithmPerformance getBestForSecurity() {
@@ -0,0 +1,79 @@
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+// Registry of EncryptionAlgorithm providers discovered with ServiceLoader. Algorithms are only
+// created when asked for by name, so selecting one algorithm does not generate every key.
+public class AlgorithmRegistry {
+
+    private static AlgorithmRegistry defaultRegistry;
+
+    // Canonical name -> provider, in discovery order; lookups are case-insensitive
+    private final Map<String, EncryptionAlgorithmProvider> providers = new LinkedHashMap<>();
+    private final Map<String, String> canonicalNames = new LinkedHashMap<>();
+
+    public AlgorithmRegistry(Iterable<EncryptionAlgorithmProvider> discovered) {
+        for (EncryptionAlgorithmProvider provider : discovered) {
+            for (String name : provider.getAlgorithmNames()) {
+                // The first provider to claim a name wins, so built-ins cannot be shadowed by accident
+                if (canonicalNames.putIfAbsent(name.toLowerCase(Locale.ROOT), name) == null) {
+                    providers.put(name, provider);
+                }
+            }
+            for (Map.Entry<String, String> alias : provider.getAliases().entrySet()) {
+                canonicalNames.putIfAbsent(alias.getKey().toLowerCase(Locale.ROOT), alias.getValue());
+            }
+        }
+    }
+
+    // Registry of every provider on the classpath (discovered once)
+    public static synchronized AlgorithmRegistry getDefault() {
+        if (defaultRegistry == null) {
+            defaultRegistry = new AlgorithmRegistry(ServiceLoader.load(EncryptionAlgorithmProvider.class));
+        }
+        return defaultRegistry;
+    }
+
+    // Names of all available algorithms
+    public List<String> getNames() {
+        return new ArrayList<>(providers.keySet());
+    }
+
+    public boolean contains(String name) {
+        return canonicalNames.containsKey(name.toLowerCase(Locale.ROOT));
+    }
+
+    // Canonical name for a (case-insensitive) name or alias
+    public String resolve(String name) {
+        String canonical = canonicalNames.get(name.trim().toLowerCase(Locale.ROOT));
+        if (canonical == null) {
+            throw new IllegalArgumentException("Unknown algorithm: " + name + " (available: " + getNames() + ")");
+        }
+        return canonical;
+    }
+
+    // Create a new instance of the named algorithm
+    public EncryptionAlgorithm create(String name) throws Exception {
+        String canonical = resolve(name);
+        return providers.get(canonical).create(canonical);
+    }
+
+    // Resolve a comma-separated selection such as "AES,ChaCha20"; empty or "all" selects everything
+    public List<String> select(String selection) {
+        if (selection == null || selection.trim().isEmpty() || selection.trim().equalsIgnoreCase("all")) {
+            return getNames();
+        }
+        List<String> selected = new ArrayList<>();
+        for (String name : selection.split(",")) {
+            if (name.trim().isEmpty()) continue;
+            String canonical = resolve(name);
+            if (!selected.contains(canonical)) {
+                selected.add(canonical);
+            }
+        }
+        return selected;
+    }
+}
@@ -0,0 +1,373 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Picks an algorithm at runtime from the benchmark results stored on this host. A workload
+// (payload size, concurrency, security floor, latency budget) is matched against a per-algorithm
+// cost per byte taken from the stored runs; among the algorithms that meet the floor and the
+// budget, the best one under the scoring profile wins.
+//
+// Stored runs time whole files, so the estimates carry no fixed per-call overhead and are
+// optimistic for payloads far smaller than the analyzed files.
+//
+// Selections are cached per workload, with the payload size rounded up to a quarter power of two,
+// so a lookup on the request path is a hash map hit. refresh() reloads the store and drops the cache.
+// The selector is thread-safe.
+public class AlgorithmSelector {
+
+    private static final int CACHE_CAPACITY = 4096;
+    private static AlgorithmSelector shared;
+
+    // What a caller needs from the algorithm
+    public static class Workload {
+        private final long payloadBytes;
+        private final int concurrency;
+        private final int minKeyBits;
+        private final double latencyBudgetMs;
+
+        // latencyBudgetMs <= 0 means no budget
+        public Workload(long payloadBytes, int concurrency, int minKeyBits, double latencyBudgetMs) {
+            if (payloadBytes < 0 || concurrency < 1) {
+                throw new IllegalArgumentException("Invalid workload: " + payloadBytes + " bytes, concurrency " + concurrency);
+            }
+            this.payloadBytes = payloadBytes;
+            this.concurrency = concurrency;
+            this.minKeyBits = minKeyBits;
+            this.latencyBudgetMs = latencyBudgetMs;
+        }
+
+        public long getPayloadBytes() {
+            return payloadBytes;
+        }
+
+        public int getConcurrency() {
+            return concurrency;
+        }
+
+        public int getMinKeyBits() {
+            return minKeyBits;
+        }
+
+        public double getLatencyBudgetMs() {
+            return latencyBudgetMs;
+        }
+
+        public boolean hasBudget() {
+            return latencyBudgetMs > 0;
+        }
+
+        // Same workload with the payload rounded up to its cache bucket
+        Workload bucketed() {
+            long bucket = bucketSize(payloadBytes);
+            return bucket == payloadBytes ? this : new Workload(bucket, concurrency, minKeyBits, latencyBudgetMs);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Workload)) return false;
+            Workload workload = (Workload) other;
+            return payloadBytes == workload.payloadBytes && concurrency == workload.concurrency
+                    && minKeyBits == workload.minKeyBits && Double.compare(latencyBudgetMs, workload.latencyBudgetMs) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            long bits = Double.doubleToLongBits(latencyBudgetMs);
+            return ((Long.hashCode(payloadBytes) * 31 + concurrency) * 31 + minKeyBits) * 31 + Long.hashCode(bits);
+        }
+
+        @Override
+        public String toString() {
+            return payloadBytes + " bytes, concurrency " + concurrency + ", key >= " + minKeyBits + " bits, budget "
+                    + (hasBudget() ? latencyBudgetMs + " ms" : "none");
+        }
+    }
+
+    // Cost model of one stored algorithm, pooled over every run on this host. Each run contributes the
+    // median of its timing samples (the first, cold sample would otherwise dominate) at its file size;
+    // the cost per byte is total time over total bytes, so the large, steadier runs weigh most.
+    public static class Candidate {
+        private final String algorithm;
+        private int runs;
+        private double encryptBytes;
+        private double encryptMs;
+        private double decryptBytes;
+        private double decryptMs;
+        private double avalancheSum;
+        private double entropySum;
+        private double keyLength;
+
+        Candidate(String algorithm) {
+            this.algorithm = algorithm;
+        }
+
+        void add(double fileSize, ResultsStore.StoredResult result) {
+            runs++;
+            double encrypt = typicalTime(result, "encryptionTimeSamplesMs", "encryptionTimeMs");
+            if (!Double.isNaN(encrypt)) {
+                encryptBytes += fileSize;
+                encryptMs += encrypt;
+            }
+            double decrypt = typicalTime(result, "decryptionTimeSamplesMs", "decryptionTimeMs");
+            if (!Double.isNaN(decrypt)) {
+                decryptBytes += fileSize;
+                decryptMs += decrypt;
+            }
+            avalancheSum += result.getValue("avalancheEffect");
+            entropySum += result.getValue("entropy");
+            keyLength = result.getValue("keyLength");
+        }
+
+        // Median sample, or the stored mean for runs without samples
+        private static double typicalTime(ResultsStore.StoredResult result, String samplesKey, String meanKey) {
+            double[] samples = result.getSamples(samplesKey);
+            return samples.length == 0 ? result.getValue(meanKey) : median(samples);
+        }
+
+        public String getAlgorithm() {
+            return algorithm;
+        }
+
+        public int getRuns() {
+            return runs;
+        }
+
+        public double getKeyLength() {
+            return keyLength;
+        }
+
+        public boolean hasModel() {
+            return encryptBytes > 0;
+        }
+
+        // Estimated encryption latency of one request, with concurrency beyond the core count queueing for a core
+        public double estimateEncryptMs(long payloadBytes, int concurrency, int cpus) {
+            return payloadBytes * (encryptMs / encryptBytes) * Math.max(1.0, (double) concurrency / cpus);
+        }
+
+        public double estimateDecryptMs(long payloadBytes, int concurrency, int cpus) {
+            if (decryptBytes == 0) return Double.NaN;
+            return payloadBytes * (decryptMs / decryptBytes) * Math.max(1.0, (double) concurrency / cpus);
+        }
+
+        double getAvalancheEffect() {
+            return avalancheSum / runs;
+        }
+
+        double getEntropy() {
+            return entropySum / runs;
+        }
+    }
+
+    // The chosen configuration for a workload
+    public static class Selection {
+        private final Workload workload;
+        private final Candidate candidate;
+        private final double estimatedLatencyMs;
+        private final boolean withinBudget;
+
+        Selection(Workload workload, Candidate candidate, double estimatedLatencyMs, boolean withinBudget) {
+            this.workload = workload;
+            this.candidate = candidate;
+            this.estimatedLatencyMs = estimatedLatencyMs;
+            this.withinBudget = withinBudget;
+        }
+
+        // Stored algorithm name, e.g. "AES", "AES/CBC" or "ChaCha20-Poly1305"
+        public String getAlgorithm() {
+            return candidate.getAlgorithm();
+        }
+
+        public Workload getWorkload() {
+            return workload;
+        }
+
+        public double getEstimatedLatencyMs() {
+            return estimatedLatencyMs;
+        }
+
+        // Estimated throughput of one request, in MB/s
+        public double getEstimatedThroughput() {
+            return workload.getPayloadBytes() / (1024.0 * 1024.0) / (estimatedLatencyMs / 1000.0);
+        }
+
+        // False when no algorithm fits the latency budget and this is merely the fastest one above the floor
+        public boolean isWithinBudget() {
+            return withinBudget;
+        }
+
+        public double getKeyLength() {
+            return candidate.getKeyLength();
+        }
+
+        // A new instance of the selected configuration (with its own keys)
+        public EncryptionAlgorithm createAlgorithm() throws Exception {
+            return AlgorithmSelector.createAlgorithm(getAlgorithm());
+        }
+    }
+
+    private volatile Map<String, Candidate> candidates;
+    private final int cpus;
+    private final WeightProfile profile;
+    private final ResultsStore store;
+    private final Map<Workload, Selection> cache = new ConcurrentHashMap<>();
+
+    public AlgorithmSelector(ResultsStore store, WeightProfile profile) throws IOException {
+        this.store = store;
+        this.profile = profile;
+        this.cpus = Runtime.getRuntime().availableProcessors();
+        this.candidates = loadCandidates(store);
+    }
+
+    // Selector over the default results store and the active scoring profile
+    public static synchronized AlgorithmSelector getShared() throws IOException {
+        if (shared == null) {
+            shared = new AlgorithmSelector(new ResultsStore(), WeightProfile.getActive());
+        }
+        return shared;
+    }
+
+    // Reload the stored results (e.g. after a new benchmark run) and drop the cached selections
+    public void refresh() throws IOException {
+        candidates = loadCandidates(store);
+        cache.clear();
+    }
+
+    public List<Candidate> getCandidates() {
+        return new ArrayList<>(candidates.values());
+    }
+
+    public WeightProfile getProfile() {
+        return profile;
+    }
+
+    public int getCacheSize() {
+        return cache.size();
+    }
+
+    // Results of every run on this host, grouped by algorithm
+    private static Map<String, Candidate> loadCandidates(ResultsStore store) throws IOException {
+        Map<String, Candidate> candidates = new LinkedHashMap<>();
+        String host = ResultsStore.hostName();
+        for (String runId : store.listRuns()) {
+            ResultsStore.StoredRun run = store.loadRun(runId);
+            if (!host.equals(run.getMetadata("host"))) continue;
+            Object fileSize = run.getAllMetadata().get("file.size");
+            if (!(fileSize instanceof Double) || (Double) fileSize <= 0) continue;
+            for (ResultsStore.StoredResult result : run.getResults().values()) {
+                // Runs predating round-trip verification have no flag; a failed round trip disqualifies the result
+                if (Boolean.FALSE.equals(result.getFlag("roundTripVerified"))) continue;
+                candidates.computeIfAbsent(result.getAlgorithm(), Candidate::new).add((Double) fileSize, result);
+            }
+        }
+        candidates.values().removeIf(candidate -> !candidate.hasModel());
+        return candidates;
+    }
+
+    // Best configuration for the workload; throws if no stored algorithm meets the security floor
+    public Selection select(Workload workload) {
+        Selection selection = cache.get(workload);
+        if (selection != null) {
+            return selection;
+        }
+        Workload bucketed = workload.bucketed();
+        selection = cache.get(bucketed);
+        if (selection == null) {
+            selection = compute(bucketed);
+            if (cache.size() >= CACHE_CAPACITY) {
+                cache.clear();
+            }
+            cache.put(bucketed, selection);
+        }
+        if (bucketed != workload) {
+            cache.put(workload, selection);
+        }
+        return selection;
+    }
+
+    public Selection select(long payloadBytes, int concurrency, int minKeyBits, double latencyBudgetMs) {
+        return select(new Workload(payloadBytes, concurrency, minKeyBits, latencyBudgetMs));
+    }
+
+    private Selection compute(Workload workload) {
+        List<Candidate> secure = new ArrayList<>();
+        List<Candidate> feasible = new ArrayList<>();
+        for (Candidate candidate : candidates.values()) {
+            if (candidate.getKeyLength() < workload.getMinKeyBits()) continue;
+            secure.add(candidate);
+            if (!workload.hasBudget() || estimate(candidate, workload) <= workload.getLatencyBudgetMs()) {
+                feasible.add(candidate);
+            }
+        }
+        if (secure.isEmpty()) {
+            throw new IllegalArgumentException("No stored algorithm has a key of at least " + workload.getMinKeyBits()
+                    + " bits (stored: " + candidates.keySet() + ")");
+        }
+        if (feasible.isEmpty()) {
+            // Nothing fits the budget: the fastest algorithm above the floor comes closest
+            Candidate fastest = Collections.min(secure, (a, b) -> Double.compare(estimate(a, workload), estimate(b, workload)));
+            return new Selection(workload, fastest, estimate(fastest, workload), false);
+        }
+
+        // Score the feasible algorithms at this payload size, so speed is judged on the estimated latency
+        ScoringEngine engine = new ScoringEngine();
+        for (Candidate candidate : feasible) {
+            double encryptMs = estimate(candidate, workload);
+            double decryptMs = candidate.estimateDecryptMs(workload.getPayloadBytes(), workload.getConcurrency(), cpus);
+            double sizeMB = workload.getPayloadBytes() / (1024.0 * 1024.0);
+            engine.add(candidate.getAlgorithm(), encryptMs, sizeMB / (encryptMs / 1000.0), decryptMs,
+                    sizeMB / (decryptMs / 1000.0), candidate.getAvalancheEffect(), candidate.getEntropy(), candidate.getKeyLength());
+        }
+        Candidate best = feasible.get(engine.rank(profile)[0]);
+        return new Selection(workload, best, estimate(best, workload), true);
+    }
+
+    private double estimate(Candidate candidate, Workload workload) {
+        return candidate.estimateEncryptMs(workload.getPayloadBytes(), workload.getConcurrency(), cpus);
+    }
+
+    private static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int middle = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2;
+    }
+
+    // Payload rounded up to a quarter power of two (at most 25% above the payload), so nearby sizes share a cache entry
+    static long bucketSize(long payloadBytes) {
+        int shift = 63 - Long.numberOfLeadingZeros(payloadBytes) - 2;
+        if (shift <= 0) {
+            return payloadBytes;
+        }
+        long step = 1L << shift;
+        return (payloadBytes + step - 1) & -step;
+    }
+
+    // Create a stored algorithm by name: a registered algorithm, or a block cipher with its mode
+    // and padding as named by BlockCipherMode.displayName (e.g. "AES/CBC", "DES/CTR/PKCS5Padding").
+    // Runs stored before the mode names used a slash have "AES-CBC" and are still accepted
+    static EncryptionAlgorithm createAlgorithm(String name) throws Exception {
+        AlgorithmRegistry registry = AlgorithmRegistry.getDefault();
+        if (registry.contains(name)) {
+            return registry.create(name);
+        }
+        int separator = name.indexOf('/');
+        int dash = name.indexOf('-');
+        if (dash > 0 && (separator < 0 || dash < separator)) {
+            separator = dash;
+        }
+        ModeMatrix.BlockCipherFactory factory = separator > 0 ? ModeMatrix.BLOCK_CIPHERS.get(name.substring(0, separator)) : null;
+        if (factory == null) {
+            throw new IllegalArgumentException("Unknown algorithm configuration: " + name);
+        }
+        String modeAndPadding = name.substring(separator + 1);
+        int slash = modeAndPadding.indexOf('/');
+        BlockCipherMode mode = BlockCipherMode.valueOf(slash < 0 ? modeAndPadding : modeAndPadding.substring(0, slash));
+        return factory.create(mode, slash < 0 ? null : modeAndPadding.substring(slash + 1));
+    }
+}
@@ -0,0 +1,157 @@
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+
+// Heap allocation per encrypt+decrypt round trip, through the byte[] API and through arena buffers
+// (BufferedEncryption), counted with the JVM's per-thread allocation counter. What remains on the
+// arena path is the provider's own per-call garbage (Cipher instances, parameter specs, IVs).
+public class ArenaBenchmark {
+
+    public static final int DEFAULT_ITERATIONS = 200;
+
+    // One algorithm measured both ways
+    public static class Result {
+        private final String algorithm;
+        private final double plainBytesPerOp;
+        private final double plainThroughput;
+        private final double arenaBytesPerOp;
+        private final double arenaThroughput;
+        private final boolean buffered;
+
+        public Result(String algorithm, double plainBytesPerOp, double plainThroughput,
+                      double arenaBytesPerOp, double arenaThroughput, boolean buffered) {
+            this.algorithm = algorithm;
+            this.plainBytesPerOp = plainBytesPerOp;
+            this.plainThroughput = plainThroughput;
+            this.arenaBytesPerOp = arenaBytesPerOp;
+            this.arenaThroughput = arenaThroughput;
+            this.buffered = buffered;
+        }
+
+        public String getAlgorithm() {
+            return algorithm;
+        }
+
+        // Bytes allocated per encrypt+decrypt with the byte[] API
+        public double getPlainBytesPerOp() {
+            return plainBytesPerOp;
+        }
+
+        // Round trips through the byte[] API, in MB of plaintext per second
+        public double getPlainThroughput() {
+            return plainThroughput;
+        }
+
+        // Bytes allocated per encrypt+decrypt into arena buffers (NaN when not supported)
+        public double getArenaBytesPerOp() {
+            return arenaBytesPerOp;
+        }
+
+        public double getArenaThroughput() {
+            return arenaThroughput;
+        }
+
+        // Whether the algorithm implements BufferedEncryption
+        public boolean isBuffered() {
+            return buffered;
+        }
+    }
+
+    private final BufferArena arena;
+    private final int iterations;
+
+    public ArenaBenchmark(BufferArena arena, int iterations) {
+        this.arena = arena;
+        this.iterations = Math.max(1, iterations);
+    }
+
+    // Bytes allocated so far by the current thread, or -1 when the JVM does not count them
+    public static long allocatedBytes() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean counters = (com.sun.management.ThreadMXBean) threads;
+            if (counters.isThreadAllocatedMemorySupported() && counters.isThreadAllocatedMemoryEnabled()) {
+                return counters.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    public Result measure(EncryptionAlgorithm algorithm, byte[] payload) throws Exception {
+        if (!Arrays.equals(payload, algorithm.decrypt(algorithm.encrypt(payload)))) {
+            throw new IllegalStateException(algorithm.getName() + " round trip mismatch");
+        }
+        double payloadMB = payload.length / (1024.0 * 1024.0);
+
+        // byte[] API: new ciphertext and plaintext arrays every round trip
+        runPlain(algorithm, payload, Math.max(10, iterations / 5));
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        runPlain(algorithm, payload, iterations);
+        double plainSeconds = (System.nanoTime() - start) / 1e9;
+        double plainBytes = perOp(allocated);
+
+        if (!(algorithm instanceof BufferedEncryption)) {
+            return new Result(algorithm.getName(), plainBytes, payloadMB * iterations / plainSeconds, Double.NaN, Double.NaN, false);
+        }
+        BufferedEncryption buffered = (BufferedEncryption) algorithm;
+        if (!runArena(buffered, payload, 1)) {
+            throw new IllegalStateException(algorithm.getName() + " buffered round trip mismatch");
+        }
+        runArena(buffered, payload, Math.max(10, iterations / 5));
+        allocated = allocatedBytes();
+        start = System.nanoTime();
+        runArena(buffered, payload, iterations);
+        double arenaSeconds = (System.nanoTime() - start) / 1e9;
+        return new Result(algorithm.getName(), plainBytes, payloadMB * iterations / plainSeconds,
+                perOp(allocated), payloadMB * iterations / arenaSeconds, true);
+    }
+
+    private double perOp(long allocatedBefore) {
+        long allocatedAfter = allocatedBytes();
+        return allocatedBefore < 0 || allocatedAfter < 0 ? Double.NaN : (allocatedAfter - allocatedBefore) / (double) iterations;
+    }
+
+    private static void runPlain(EncryptionAlgorithm algorithm, byte[] payload, int count) throws Exception {
+        for (int i = 0; i < count; i++) {
+            algorithm.decrypt(algorithm.encrypt(payload));
+        }
+    }
+
+    // Round trips through borrowed buffers; returns whether the last one reproduced the payload
+    private boolean runArena(BufferedEncryption algorithm, byte[] payload, int count) throws Exception {
+        boolean verified = false;
+        for (int i = 0; i < count; i++) {
+            byte[] ciphertext = arena.acquire(algorithm.getMaxEncryptedLength(payload.length));
+            byte[] decrypted = null;
+            try {
+                int ciphertextLength = algorithm.encrypt(payload, 0, payload.length, ciphertext, 0);
+                decrypted = arena.acquire(algorithm.getMaxDecryptedLength(ciphertextLength));
+                int length = algorithm.decrypt(ciphertext, 0, ciphertextLength, decrypted, 0);
+                verified = length == payload.length && Arrays.equals(payload, 0, length, decrypted, 0, length);
+            } finally {
+                arena.release(ciphertext);
+                arena.release(decrypted);
+            }
+        }
+        return verified;
+    }
+
+    public static void printResults(List<Result> results, BufferArena arena) {
+        Main.writeResult("\n=== Allocation per encrypt+decrypt ===");
+        Main.writeResultf("%-20s %-16s %-14s %-16s %-14s%n", "Algorithm", "byte[] (B/op)", "byte[] MB/s",
+                "Arena (B/op)", "Arena MB/s");
+        for (Result result : results) {
+            if (result.isBuffered()) {
+                Main.writeResultf("%-20s %-16.0f %-14.2f %-16.0f %-14.2f%n", result.getAlgorithm(), result.getPlainBytesPerOp(),
+                        result.getPlainThroughput(), result.getArenaBytesPerOp(), result.getArenaThroughput());
+            } else {
+                Main.writeResultf("%-20s %-16.0f %-14.2f %-16s %-14s%n", result.getAlgorithm(), result.getPlainBytesPerOp(),
+                        result.getPlainThroughput(), "n/a", "n/a");
+            }
+        }
+        for (String line : Main.formatArenaStats(arena)) {
+            Main.writeResult(line);
+        }
+    }
+}
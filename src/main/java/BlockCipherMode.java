@@ -0,0 +1,174 @@
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.IvParameterSpec;
+import java.security.SecureRandom;
+import java.security.spec.AlgorithmParameterSpec;
+import java.util.Locale;
+
+// Mode of operation for the block ciphers (AES, DES, TDES, Blowfish). Modes with an IV generate a
+// random one per message and prepend it to the ciphertext.
+public enum BlockCipherMode {
+    // usesIv, parallel encryption, parallel decryption, default padding
+    ECB(false, true, true, "PKCS5Padding"),
+    CBC(true, false, true, "PKCS5Padding"),
+    CTR(true, true, true, "NoPadding"),
+    CFB(true, false, true, "NoPadding"),
+    OFB(true, false, false, "NoPadding"),
+    GCM(true, true, true, "NoPadding");
+
+    private static final int GCM_IV_LENGTH = 12;
+    private static final int GCM_TAG_BITS = 128;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final boolean usesIv;
+    private final boolean parallelEncrypt;
+    private final boolean parallelDecrypt;
+    private final String defaultPadding;
+
+    BlockCipherMode(boolean usesIv, boolean parallelEncrypt, boolean parallelDecrypt, String defaultPadding) {
+        this.usesIv = usesIv;
+        this.parallelEncrypt = parallelEncrypt;
+        this.parallelDecrypt = parallelDecrypt;
+        this.defaultPadding = defaultPadding;
+    }
+
+    // Mode used by the no-argument constructors, e.g. -Dcipher.mode=CBC (default: ECB)
+    public static BlockCipherMode getDefault() {
+        return valueOf(System.getProperty("cipher.mode", "ECB").trim().toUpperCase(Locale.ROOT));
+    }
+
+    // Padding used by the no-argument constructors, e.g. -Dcipher.padding=NoPadding (null: the mode's padding)
+    public static String getConfiguredPadding() {
+        return System.getProperty("cipher.padding");
+    }
+
+    public boolean usesIv() {
+        return usesIv;
+    }
+
+    // Whether blocks can be processed independently (in parallel) when encrypting
+    public boolean isParallelEncrypt() {
+        return parallelEncrypt;
+    }
+
+    // Whether blocks can be processed independently (in parallel) when decrypting
+    public boolean isParallelDecrypt() {
+        return parallelDecrypt;
+    }
+
+    public String getDefaultPadding() {
+        return defaultPadding;
+    }
+
+    // The given padding, or the mode's default when it is null
+    public String resolvePadding(String padding) {
+        return padding != null ? padding : defaultPadding;
+    }
+
+    // GCM is only defined for 128-bit block ciphers
+    public boolean supports(int blockSize) {
+        return this != GCM || blockSize == 16;
+    }
+
+    // Transformation for a cipher algorithm, e.g. "AES/CBC/PKCS5Padding"
+    public String transformation(String cipherAlgorithm, String padding) {
+        return cipherAlgorithm + "/" + name() + "/" + padding;
+    }
+
+    // Algorithm name: the plain cipher name for the original ECB/PKCS5Padding configuration,
+    // otherwise cipher/mode (and /padding when it is not the mode's default), e.g. "AES/CBC". The
+    // slash keeps them apart from registered names such as "AES-GCM" (the AESGCM class)
+    public String displayName(String cipherName, String padding) {
+        if (this == ECB && padding.equals(defaultPadding)) {
+            return cipherName;
+        }
+        return cipherName + "/" + name() + (padding.equals(defaultPadding) ? "" : "/" + padding);
+    }
+
+    private int ivLength(int blockSize) {
+        return this == GCM ? GCM_IV_LENGTH : blockSize;
+    }
+
+    private AlgorithmParameterSpec parameters(byte[] iv) {
+        return this == GCM ? new GCMParameterSpec(GCM_TAG_BITS, iv) : new IvParameterSpec(iv);
+    }
+
+    // Encrypt with a fresh IV (if the mode uses one), returned as IV || ciphertext
+    public byte[] encrypt(Cipher cipher, SecretKey key, byte[] plaintext, int blockSize) throws Exception {
+        if (!usesIv) {
+            cipher.init(Cipher.ENCRYPT_MODE, key);
+            return cipher.doFinal(plaintext);
+        }
+        byte[] iv = new byte[ivLength(blockSize)];
+        RANDOM.nextBytes(iv);
+        cipher.init(Cipher.ENCRYPT_MODE, key, parameters(iv));
+        // Write the IV and the ciphertext straight into the output array
+        byte[] output = new byte[iv.length + cipher.getOutputSize(plaintext.length)];
+        System.arraycopy(iv, 0, output, 0, iv.length);
+        int length = iv.length + cipher.doFinal(plaintext, 0, plaintext.length, output, iv.length);
+        if (length == output.length) {
+            return output;
+        }
+        byte[] trimmed = new byte[length];
+        System.arraycopy(output, 0, trimmed, 0, length);
+        return trimmed;
+    }
+
+    // Upper bound of IV || ciphertext: room for a full block of padding and, for GCM, the tag
+    public int maxEncryptedLength(int plaintextLength, int blockSize) {
+        int length = (usesIv ? ivLength(blockSize) : 0) + plaintextLength + blockSize;
+        return this == GCM ? length + GCM_TAG_BITS / 8 : length;
+    }
+
+    public int maxDecryptedLength(int ciphertextLength, int blockSize) {
+        return Math.max(0, ciphertextLength - (usesIv ? ivLength(blockSize) : 0));
+    }
+
+    // Encrypt into a caller-supplied array (IV || ciphertext); returns the bytes written
+    public int encrypt(Cipher cipher, SecretKey key, byte[] input, int offset, int length,
+                       byte[] output, int outputOffset, int blockSize) throws Exception {
+        if (!usesIv) {
+            cipher.init(Cipher.ENCRYPT_MODE, key);
+            return cipher.doFinal(input, offset, length, output, outputOffset);
+        }
+        byte[] iv = new byte[ivLength(blockSize)];
+        RANDOM.nextBytes(iv);
+        cipher.init(Cipher.ENCRYPT_MODE, key, parameters(iv));
+        System.arraycopy(iv, 0, output, outputOffset, iv.length);
+        return iv.length + cipher.doFinal(input, offset, length, output, outputOffset + iv.length);
+    }
+
+    // Decrypt IV || ciphertext into a caller-supplied array; returns the bytes written
+    public int decrypt(Cipher cipher, SecretKey key, byte[] input, int offset, int length,
+                       byte[] output, int outputOffset, int blockSize) throws Exception {
+        if (!usesIv) {
+            cipher.init(Cipher.DECRYPT_MODE, key);
+            return cipher.doFinal(input, offset, length, output, outputOffset);
+        }
+        int ivLength = ivLength(blockSize);
+        if (length < ivLength) {
+            throw new IllegalArgumentException("Ciphertext too short");
+        }
+        byte[] iv = new byte[ivLength];
+        System.arraycopy(input, offset, iv, 0, ivLength);
+        cipher.init(Cipher.DECRYPT_MODE, key, parameters(iv));
+        return cipher.doFinal(input, offset + ivLength, length - ivLength, output, outputOffset);
+    }
+
+    // Decrypt IV || ciphertext as produced by encrypt
+    public byte[] decrypt(Cipher cipher, SecretKey key, byte[] ciphertext, int blockSize) throws Exception {
+        if (!usesIv) {
+            cipher.init(Cipher.DECRYPT_MODE, key);
+            return cipher.doFinal(ciphertext);
+        }
+        int ivLength = ivLength(blockSize);
+        if (ciphertext.length < ivLength) {
+            throw new IllegalArgumentException("Ciphertext too short");
+        }
+        byte[] iv = new byte[ivLength];
+        System.arraycopy(ciphertext, 0, iv, 0, ivLength);
+        cipher.init(Cipher.DECRYPT_MODE, key, parameters(iv));
+        return cipher.doFinal(ciphertext, ivLength, ciphertext.length - ivLength);
+    }
+}
@@ -0,0 +1,287 @@
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Pool of reusable heap arrays and direct ByteBuffers in power-of-two size classes, from 256 bytes
+// up to 64 MB. Callers borrow a buffer at least as large as they need and return it when done, so
+// steady-state encryption does not allocate a fresh output array per message. Larger requests are
+// allocated on demand and never pooled. Returned buffers are reused last-in first-out (the most
+// recently used one is the most likely to still be in cache) up to a per-class count and a total
+// retained-bytes limit; anything beyond that is left to the garbage collector.
+//
+// Hits, misses and the outstanding / high-water bytes are always counted. With -Darena.debug=true
+// every borrowed buffer also records where it was borrowed, so buffers that are never returned can
+// be listed, and returning a buffer twice or one the arena did not hand out fails immediately.
+public class BufferArena {
+
+    public static final int MIN_CLASS_BYTES = 256;
+    public static final int MAX_CLASS_BYTES = 64 * 1024 * 1024;
+    public static final int DEFAULT_MAX_PER_CLASS = 8;
+    private static final int MIN_SHIFT = Integer.numberOfTrailingZeros(MIN_CLASS_BYTES);
+    private static final int CLASSES = Integer.numberOfTrailingZeros(MAX_CLASS_BYTES) - MIN_SHIFT + 1;
+
+    private static BufferArena shared;
+
+    // Snapshot of the arena counters
+    public static class Stats {
+        private final long hits;
+        private final long misses;
+        private final long releases;
+        private final long discarded;
+        private final long outstandingBuffers;
+        private final long outstandingBytes;
+        private final long highWaterBytes;
+        private final long retainedBytes;
+
+        public Stats(long hits, long misses, long releases, long discarded, long outstandingBuffers,
+                     long outstandingBytes, long highWaterBytes, long retainedBytes) {
+            this.hits = hits;
+            this.misses = misses;
+            this.releases = releases;
+            this.discarded = discarded;
+            this.outstandingBuffers = outstandingBuffers;
+            this.outstandingBytes = outstandingBytes;
+            this.highWaterBytes = highWaterBytes;
+            this.retainedBytes = retainedBytes;
+        }
+
+        // Borrows served from the pool
+        public long getHits() {
+            return hits;
+        }
+
+        // Borrows that had to allocate a new buffer
+        public long getMisses() {
+            return misses;
+        }
+
+        public double getHitRate() {
+            return hits + misses == 0 ? 0.0 : (double) hits / (hits + misses);
+        }
+
+        public long getReleases() {
+            return releases;
+        }
+
+        // Returned buffers dropped because their class was full or they were not pool-sized
+        public long getDiscarded() {
+            return discarded;
+        }
+
+        // Buffers currently borrowed and not yet returned
+        public long getOutstandingBuffers() {
+            return outstandingBuffers;
+        }
+
+        public long getOutstandingBytes() {
+            return outstandingBytes;
+        }
+
+        // Largest number of bytes borrowed at the same time
+        public long getHighWaterBytes() {
+            return highWaterBytes;
+        }
+
+        // Bytes held in the pool, ready to be borrowed
+        public long getRetainedBytes() {
+            return retainedBytes;
+        }
+    }
+
+    private final int maxPerClass;
+    private final long maxRetainedBytes;
+    private final boolean debug;
+    private final List<ArrayDeque<byte[]>> heapPools = new ArrayList<>();
+    private final List<ArrayDeque<ByteBuffer>> directPools = new ArrayList<>();
+    // Debug mode only: borrowed buffer -> where it was borrowed
+    private final Map<Object, Throwable> borrowedAt = new IdentityHashMap<>();
+
+    private long hits;
+    private long misses;
+    private long releases;
+    private long discarded;
+    private long outstandingBuffers;
+    private long outstandingBytes;
+    private long highWaterBytes;
+    private long retainedBytes;
+
+    public BufferArena(int maxPerClass, long maxRetainedBytes, boolean debug) {
+        this.maxPerClass = maxPerClass;
+        this.maxRetainedBytes = maxRetainedBytes;
+        this.debug = debug;
+        for (int i = 0; i < CLASSES; i++) {
+            heapPools.add(new ArrayDeque<>());
+            directPools.add(new ArrayDeque<>());
+        }
+    }
+
+    // Process-wide arena: -Darena.maxPerClass (default 8) buffers per class, at most an eighth of
+    // the maximum heap retained, leak tracking with -Darena.debug=true
+    public static synchronized BufferArena getShared() {
+        if (shared == null) {
+            shared = new BufferArena(Integer.getInteger("arena.maxPerClass", DEFAULT_MAX_PER_CLASS),
+                    Runtime.getRuntime().maxMemory() / 8, Boolean.getBoolean("arena.debug"));
+        }
+        return shared;
+    }
+
+    // Borrow a heap array of at least minLength bytes (usually longer: the size-class length)
+    public byte[] acquire(int minLength) {
+        int sizeClass = sizeClass(minLength);
+        byte[] buffer;
+        synchronized (this) {
+            buffer = sizeClass < 0 ? null : heapPools.get(sizeClass).pollFirst();
+            countBorrow(buffer != null, buffer == null ? 0 : buffer.length);
+        }
+        if (buffer == null) {
+            buffer = new byte[sizeClass < 0 ? minLength : classBytes(sizeClass)];
+        }
+        borrowed(buffer, buffer.length);
+        return buffer;
+    }
+
+    // Return an array borrowed with acquire; null is ignored
+    public void release(byte[] buffer) {
+        if (buffer == null) return;
+        synchronized (this) {
+            returned(buffer, buffer.length);
+            int sizeClass = pooledClass(buffer.length);
+            if (sizeClass >= 0 && canRetain(heapPools.get(sizeClass).size(), buffer.length)) {
+                heapPools.get(sizeClass).addFirst(buffer);
+                retainedBytes += buffer.length;
+            } else {
+                discarded++;
+            }
+        }
+    }
+
+    // Borrow a direct buffer with capacity of at least minLength; position 0, limit minLength
+    public ByteBuffer acquireDirect(int minLength) {
+        int sizeClass = sizeClass(minLength);
+        ByteBuffer buffer;
+        synchronized (this) {
+            buffer = sizeClass < 0 ? null : directPools.get(sizeClass).pollFirst();
+            countBorrow(buffer != null, buffer == null ? 0 : buffer.capacity());
+        }
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(sizeClass < 0 ? minLength : classBytes(sizeClass));
+        }
+        buffer.clear().limit(minLength);
+        borrowed(buffer, buffer.capacity());
+        return buffer;
+    }
+
+    // Return a buffer borrowed with acquireDirect (the buffer itself, not a slice or duplicate)
+    public void releaseDirect(ByteBuffer buffer) {
+        if (buffer == null) return;
+        synchronized (this) {
+            returned(buffer, buffer.capacity());
+            int sizeClass = pooledClass(buffer.capacity());
+            if (sizeClass >= 0 && canRetain(directPools.get(sizeClass).size(), buffer.capacity())) {
+                directPools.get(sizeClass).addFirst(buffer);
+                retainedBytes += buffer.capacity();
+            } else {
+                discarded++;
+            }
+        }
+    }
+
+    private void countBorrow(boolean hit, int pooledLength) {
+        if (hit) {
+            hits++;
+            retainedBytes -= pooledLength;
+        } else {
+            misses++;
+        }
+    }
+
+    private synchronized void borrowed(Object buffer, int length) {
+        outstandingBuffers++;
+        outstandingBytes += length;
+        highWaterBytes = Math.max(highWaterBytes, outstandingBytes);
+        if (debug) {
+            borrowedAt.put(buffer, new Throwable("borrowed " + length + " bytes"));
+        }
+    }
+
+    private void returned(Object buffer, int length) {
+        if (debug && borrowedAt.remove(buffer) == null) {
+            throw new IllegalStateException("Buffer of " + length + " bytes returned twice or not borrowed from this arena");
+        }
+        releases++;
+        outstandingBuffers--;
+        outstandingBytes -= length;
+    }
+
+    private boolean canRetain(int pooled, int length) {
+        return pooled < maxPerClass && retainedBytes + length <= maxRetainedBytes;
+    }
+
+    // Smallest class holding minLength bytes, or -1 when it is larger than the largest class
+    private static int sizeClass(int minLength) {
+        if (minLength > MAX_CLASS_BYTES) {
+            return -1;
+        }
+        int bits = 32 - Integer.numberOfLeadingZeros(Math.max(MIN_CLASS_BYTES, minLength) - 1);
+        return bits - MIN_SHIFT;
+    }
+
+    // Class of a buffer of exactly a class length, or -1 for any other length
+    private static int pooledClass(int length) {
+        if (length < MIN_CLASS_BYTES || length > MAX_CLASS_BYTES || Integer.bitCount(length) != 1) {
+            return -1;
+        }
+        return Integer.numberOfTrailingZeros(length) - MIN_SHIFT;
+    }
+
+    private static int classBytes(int sizeClass) {
+        return 1 << (sizeClass + MIN_SHIFT);
+    }
+
+    public boolean isDebug() {
+        return debug;
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(hits, misses, releases, discarded, outstandingBuffers, outstandingBytes, highWaterBytes, retainedBytes);
+    }
+
+    // Start a new measurement: zero the counters and restart the high-water mark from the bytes
+    // currently borrowed. Outstanding buffers and the pool itself are kept.
+    public synchronized void resetStats() {
+        hits = 0;
+        misses = 0;
+        releases = 0;
+        discarded = 0;
+        highWaterBytes = outstandingBytes;
+    }
+
+    // Debug mode: one line per buffer that is borrowed and not yet returned, with the caller that
+    // borrowed it. Empty when debug mode is off.
+    public synchronized List<String> getLeaks() {
+        List<String> leaks = new ArrayList<>();
+        for (Throwable origin : borrowedAt.values()) {
+            String caller = "unknown";
+            for (StackTraceElement frame : origin.getStackTrace()) {
+                if (!frame.getClassName().equals(BufferArena.class.getName())) {
+                    caller = frame.toString();
+                    break;
+                }
+            }
+            leaks.add(origin.getMessage() + " at " + caller);
+        }
+        return leaks;
+    }
+
+    // Drop every pooled buffer
+    public synchronized void clear() {
+        for (int i = 0; i < CLASSES; i++) {
+            heapPools.get(i).clear();
+            directPools.get(i).clear();
+        }
+        retainedBytes = 0;
+    }
+}
@@ -0,0 +1,16 @@
+// Implemented by algorithms that can encrypt into a caller-supplied array, so the caller can reuse
+// output buffers (e.g. borrowed from a BufferArena) instead of receiving a new array per message.
+// The bytes written are exactly what encrypt(byte[]) / decrypt(byte[]) would return.
+public interface BufferedEncryption {
+    // Upper bound of the encrypted length of a plaintext of the given length
+    int getMaxEncryptedLength(int plaintextLength);
+
+    // Encrypt input[offset, offset + length) into output starting at outputOffset; returns the bytes written
+    int encrypt(byte[] input, int offset, int length, byte[] output, int outputOffset) throws Exception;
+
+    // Upper bound of the decrypted length of a ciphertext of the given length
+    int getMaxDecryptedLength(int ciphertextLength);
+
+    // Decrypt input[offset, offset + length) into output starting at outputOffset; returns the bytes written
+    int decrypt(byte[] input, int offset, int length, byte[] output, int outputOffset) throws Exception;
+}
@@ -0,0 +1,45 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+// Provides the algorithms that ship with the application
+public class BuiltInAlgorithmProvider implements EncryptionAlgorithmProvider {
+
+    private final Map<String, Callable<EncryptionAlgorithm>> factories = new LinkedHashMap<>();
+
+    public BuiltInAlgorithmProvider() {
+        factories.put("AES", AES::new);
+        factories.put("DES", DES::new);
+        factories.put("TDES", TDES::new);
+        factories.put("RSA", RSA::new);
+        factories.put("ChaCha20", ChaCha20::new);
+        factories.put("ChaCha20-Java", PureJavaChaCha20::new);
+        factories.put("Blowfish", Blowfish::new);
+        factories.put("PBEWithMD5AndDES", PBEEncryption::new);
+        factories.put("PBKDF2-SHA256-AES", () -> PBEEncryption.pbkdf2("PBKDF2WithHmacSHA256"));
+        factories.put("AES-GCM", AESGCM::new);
+        factories.put("ChaCha20-Poly1305", ChaCha20Poly1305::new);
+    }
+
+    @Override
+    public List<String> getAlgorithmNames() {
+        return new ArrayList<>(factories.keySet());
+    }
+
+    @Override
+    public EncryptionAlgorithm create(String name) throws Exception {
+        Callable<EncryptionAlgorithm> factory = factories.get(name);
+        if (factory == null) {
+            throw new IllegalArgumentException("Unknown algorithm: " + name);
+        }
+        return factory.call();
+    }
+
+    @Override
+    public Map<String, String> getAliases() {
+        return Collections.singletonMap("PBE", "PBEWithMD5AndDES");
+    }
+}
@@ -4,52 +4,84 @@ import javax.crypto.SecretKey;
 import javax.crypto.spec.ChaCha20ParameterSpec;
 import java.security.SecureRandom;
 
-public class ChaCha20 implements EncryptionAlgorithm {
+public class ChaCha20 extends JcaAlgorithm implements EncryptionAlgorithm, BufferedEncryption {
     private SecretKey key;
-    private final String transformation = "ChaCha20";
+    private final SecureRandom random = new SecureRandom();
     private static final int NONCE_LENGTH = 12; // ChaCha20 requires a 12-byte nonce
 
     public ChaCha20() throws Exception {
+        super("ChaCha20");
         KeyGenerator keyGen = KeyGenerator.getInstance("ChaCha20");
         keyGen.init(256); // ChaCha20 uses a 256-bit key
         this.key = keyGen.generateKey();
     }
 
+    // Use an existing 256-bit key, e.g. one shared with PureJavaChaCha20
+    public ChaCha20(SecretKey key) {
+        super("ChaCha20");
+        this.key = key;
+    }
+
     @Override
     public byte[] encrypt(byte[] plaintext) throws Exception {
-        Cipher cipher = Cipher.getInstance(transformation);
+        // Write the nonce and the ciphertext straight into the output array
+        byte[] output = new byte[NONCE_LENGTH + plaintext.length];
+        encrypt(plaintext, 0, plaintext.length, output, 0);
+        return output;
+    }
+
+    @Override
+    public byte[] decrypt(byte[] ciphertext) throws Exception {
+        if (ciphertext.length < NONCE_LENGTH) {
+            throw new IllegalArgumentException("Ciphertext too short");
+        }
+        // Decrypt past the nonce in place of copying the ciphertext out first
+        Cipher cipher = newCipher();
+        cipher.init(Cipher.DECRYPT_MODE, key, new ChaCha20ParameterSpec(nonceAt(ciphertext, 0), 1));
+        return cipher.doFinal(ciphertext, NONCE_LENGTH, ciphertext.length - NONCE_LENGTH);
+    }
+
+    @Override
+    public int getMaxEncryptedLength(int plaintextLength) {
+        return NONCE_LENGTH + plaintextLength;
+    }
+
+    @Override
+    public int encrypt(byte[] input, int offset, int length, byte[] output, int outputOffset) throws Exception {
+        Cipher cipher = newCipher();
         // Generate a random nonce
         byte[] nonce = new byte[NONCE_LENGTH];
-        SecureRandom random = new SecureRandom();
         random.nextBytes(nonce);
 
         // Initialize cipher with the nonce and an initial counter (typically 1)
         ChaCha20ParameterSpec paramSpec = new ChaCha20ParameterSpec(nonce, 1);
         cipher.init(Cipher.ENCRYPT_MODE, key, paramSpec);
-        byte[] encrypted = cipher.doFinal(plaintext);
 
         // Prepend nonce to the ciphertext for use in decryption
-        byte[] output = new byte[nonce.length + encrypted.length];
-        System.arraycopy(nonce, 0, output, 0, nonce.length);
-        System.arraycopy(encrypted, 0, output, nonce.length, encrypted.length);
-        return output;
+        System.arraycopy(nonce, 0, output, outputOffset, NONCE_LENGTH);
+        return NONCE_LENGTH + cipher.doFinal(input, offset, length, output, outputOffset + NONCE_LENGTH);
     }
 
     @Override
-    public byte[] decrypt(byte[] ciphertext) throws Exception {
-        if (ciphertext.length < NONCE_LENGTH) {
+    public int getMaxDecryptedLength(int ciphertextLength) {
+        return Math.max(0, ciphertextLength - NONCE_LENGTH);
+    }
+
+    @Override
+    public int decrypt(byte[] input, int offset, int length, byte[] output, int outputOffset) throws Exception {
+        if (length < NONCE_LENGTH) {
             throw new IllegalArgumentException("Ciphertext too short");
         }
-        // Extract the nonce from the beginning of the ciphertext
-        byte[] nonce = new byte[NONCE_LENGTH];
-        System.arraycopy(ciphertext, 0, nonce, 0, NONCE_LENGTH);
-        byte[] actualCiphertext = new byte[ciphertext.length - NONCE_LENGTH];
-        System.arraycopy(ciphertext, NONCE_LENGTH, actualCiphertext, 0, actualCiphertext.length);
+        Cipher cipher = newCipher();
+        cipher.init(Cipher.DECRYPT_MODE, key, new ChaCha20ParameterSpec(nonceAt(input, offset), 1));
+        return cipher.doFinal(input, offset + NONCE_LENGTH, length - NONCE_LENGTH, output, outputOffset);
+    }
 
-        Cipher cipher = Cipher.getInstance(transformation);
-        ChaCha20ParameterSpec paramSpec = new ChaCha20ParameterSpec(nonce, 1);
-        cipher.init(Cipher.DECRYPT_MODE, key, paramSpec);
-        return cipher.doFinal(actualCiphertext);
+    // Extract the nonce from the beginning of the ciphertext
+    private static byte[] nonceAt(byte[] ciphertext, int offset) {
+        byte[] nonce = new byte[NONCE_LENGTH];
+        System.arraycopy(ciphertext, offset, nonce, 0, NONCE_LENGTH);
+        return nonce;
     }
 
     @Override
@@ -0,0 +1,20 @@
+import javax.crypto.spec.IvParameterSpec;
+import java.security.spec.AlgorithmParameterSpec;
+
+public class ChaCha20Poly1305 extends JcaAeadAlgorithm {
+
+    public ChaCha20Poly1305() throws Exception {
+        super("ChaCha20-Poly1305", "ChaCha20", 256); // ChaCha20 uses a 256-bit key
+    }
+
+    @Override
+    protected AlgorithmParameterSpec parameters(byte[] nonce) {
+        // 12-byte nonce; the tag is always a 16-byte Poly1305 tag
+        return new IvParameterSpec(nonce);
+    }
+
+    @Override
+    public String getName() {
+        return "ChaCha20-Poly1305";
+    }
+}
@@ -0,0 +1,218 @@
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// Optional compression stage in front of any EncryptionAlgorithm. A fast entropy estimate of the
+// first chunks decides whether compressing is worthwhile; high-entropy input (already compressed
+// or encrypted data) is passed through unchanged:
+//   stored    E([1 byte mode][plaintext])
+//   deflated  E([1 byte mode][4 byte original length][deflate stream])
+// The mode byte is encrypted (and with an AEAD algorithm authenticated) along with the payload, so
+// it cannot be flipped to make the stage inflate stored data. The stored path frames the caller's
+// array in a buffer borrowed from the shared BufferArena, so it allocates nothing beyond the
+// ciphertext when the algorithm supports BufferedEncryption.
+public class CompressingEncryption implements EncryptionAlgorithm {
+
+    public static final double DEFAULT_ENTROPY_THRESHOLD = 7.5; // bits per byte
+    public static final int SAMPLE_CHUNK_SIZE = 16 * 1024;
+    public static final int SAMPLE_CHUNKS = 4;
+
+    private static final byte MODE_STORED = 0;
+    private static final byte MODE_DEFLATED = 1;
+    private static final int HEADER_LENGTH = 1 + 4; // mode byte and original length (deflated)
+    // Deflate expands at most about 1032:1, so a larger claimed original length is corrupt
+    private static final long MAX_DEFLATE_RATIO = 1032;
+
+    private final EncryptionAlgorithm algorithm;
+    private final double entropyThreshold;
+    private final int compressionLevel;
+
+    // Outcome of the most recent encrypt call, for reporting
+    private volatile double lastSampleEntropy;
+    private volatile boolean lastCompressed;
+    private volatile int lastCompressedLength;
+
+    public CompressingEncryption(EncryptionAlgorithm algorithm) {
+        this(algorithm, DEFAULT_ENTROPY_THRESHOLD, Deflater.BEST_SPEED);
+    }
+
+    public CompressingEncryption(EncryptionAlgorithm algorithm, double entropyThreshold, int compressionLevel) {
+        this.algorithm = algorithm;
+        this.entropyThreshold = entropyThreshold;
+        this.compressionLevel = compressionLevel;
+    }
+
+    // Shannon entropy of the first SAMPLE_CHUNKS chunks, without copying the data
+    public static double estimateEntropy(byte[] data) {
+        int sampleLength = (int) Math.min(data.length, (long) SAMPLE_CHUNK_SIZE * SAMPLE_CHUNKS);
+        if (sampleLength == 0) return 0.0;
+        long[] histogram = new long[256];
+        for (int i = 0; i < sampleLength; i++) {
+            histogram[data[i] & 0xFF]++;
+        }
+        return Main.entropy(histogram, sampleLength);
+    }
+
+    @Override
+    public byte[] encrypt(byte[] plaintext) throws Exception {
+        double entropy = estimateEntropy(plaintext);
+        lastSampleEntropy = entropy;
+
+        if (entropy < entropyThreshold) {
+            byte[] deflated = deflate(plaintext);
+            // Keep the original if compression did not actually save anything
+            if (deflated.length <= plaintext.length) {
+                lastCompressed = true;
+                lastCompressedLength = deflated.length - HEADER_LENGTH;
+                return seal(deflated, deflated.length);
+            }
+        }
+        lastCompressed = false;
+        lastCompressedLength = plaintext.length;
+        return sealStored(plaintext);
+    }
+
+    // Frame the plaintext behind the stored mode byte and encrypt it
+    private byte[] sealStored(byte[] plaintext) throws Exception {
+        int framedLength = 1 + plaintext.length;
+        if (!(algorithm instanceof BufferedEncryption)) {
+            byte[] framed = new byte[framedLength];
+            framed[0] = MODE_STORED;
+            System.arraycopy(plaintext, 0, framed, 1, plaintext.length);
+            return algorithm.encrypt(framed);
+        }
+        BufferArena arena = BufferArena.getShared();
+        byte[] framed = arena.acquire(framedLength);
+        try {
+            framed[0] = MODE_STORED;
+            System.arraycopy(plaintext, 0, framed, 1, plaintext.length);
+            return seal(framed, framedLength);
+        } finally {
+            arena.release(framed);
+        }
+    }
+
+    // Encrypt framed[0, length)
+    private byte[] seal(byte[] framed, int length) throws Exception {
+        if (algorithm instanceof BufferedEncryption) {
+            BufferedEncryption buffered = (BufferedEncryption) algorithm;
+            byte[] output = new byte[buffered.getMaxEncryptedLength(length)];
+            int written = buffered.encrypt(framed, 0, length, output, 0);
+            // Padded modes can come in under the bound
+            return written == output.length ? output : Arrays.copyOf(output, written);
+        }
+        return algorithm.encrypt(length == framed.length ? framed : Arrays.copyOf(framed, length));
+    }
+
+    // Mode byte, original length and deflate stream in one array
+    private byte[] deflate(byte[] plaintext) {
+        Deflater deflater = new Deflater(compressionLevel);
+        try {
+            deflater.setInput(plaintext);
+            deflater.finish();
+            ByteArrayOutputStream output = new ByteArrayOutputStream(plaintext.length / 2 + HEADER_LENGTH);
+            output.write(MODE_DEFLATED);
+            output.write(plaintext.length >>> 24);
+            output.write(plaintext.length >>> 16);
+            output.write(plaintext.length >>> 8);
+            output.write(plaintext.length);
+            byte[] buffer = new byte[64 * 1024];
+            while (!deflater.finished()) {
+                int count = deflater.deflate(buffer);
+                output.write(buffer, 0, count);
+            }
+            return output.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    @Override
+    public byte[] decrypt(byte[] ciphertext) throws Exception {
+        if (ciphertext.length < 1) {
+            throw new IllegalArgumentException("Ciphertext too short");
+        }
+        if (!(algorithm instanceof BufferedEncryption)) {
+            byte[] framed = algorithm.decrypt(ciphertext);
+            return unframe(framed, framed.length);
+        }
+        // Decrypt into a borrowed buffer; only the plaintext is allocated
+        BufferedEncryption buffered = (BufferedEncryption) algorithm;
+        BufferArena arena = BufferArena.getShared();
+        byte[] framed = arena.acquire(buffered.getMaxDecryptedLength(ciphertext.length));
+        try {
+            return unframe(framed, buffered.decrypt(ciphertext, 0, ciphertext.length, framed, 0));
+        } finally {
+            arena.release(framed);
+        }
+    }
+
+    // Plaintext of a decrypted frame framed[0, length)
+    private static byte[] unframe(byte[] framed, int length) throws DataFormatException {
+        if (length < 1) {
+            throw new DataFormatException("Missing compression mode");
+        }
+        byte mode = framed[0];
+        if (mode == MODE_STORED) {
+            return Arrays.copyOfRange(framed, 1, length);
+        }
+        if (mode != MODE_DEFLATED) {
+            throw new DataFormatException("Unknown compression mode: " + mode);
+        }
+        if (length < HEADER_LENGTH) {
+            throw new DataFormatException("Compressed frame too short: " + length + " bytes");
+        }
+
+        int originalLength = ByteBuffer.wrap(framed, 1, 4).getInt();
+        long streamLength = length - HEADER_LENGTH;
+        if (originalLength < 0 || originalLength > streamLength * MAX_DEFLATE_RATIO) {
+            throw new DataFormatException("Invalid original length " + originalLength + " for "
+                    + streamLength + " compressed bytes");
+        }
+        byte[] plaintext = new byte[originalLength];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(framed, HEADER_LENGTH, length - HEADER_LENGTH);
+            int total = 0;
+            while (total < originalLength) {
+                int count = inflater.inflate(plaintext, total, originalLength - total);
+                if (count == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new DataFormatException("Compressed data is truncated");
+                }
+                total += count;
+            }
+            return plaintext;
+        } finally {
+            inflater.end();
+        }
+    }
+
+    @Override
+    public int getKeyLength() {
+        return algorithm.getKeyLength();
+    }
+
+    @Override
+    public String getName() {
+        return algorithm.getName() + "+Deflate";
+    }
+
+    public EncryptionAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    public double getLastSampleEntropy() {
+        return lastSampleEntropy;
+    }
+
+    public boolean wasLastCompressed() {
+        return lastCompressed;
+    }
+
+    public int getLastCompressedLength() {
+        return lastCompressedLength;
+    }
+}
@@ -0,0 +1,71 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Content-defined chunker using a Gear rolling hash (as in FastCDC). Boundaries depend only on the
+// surrounding bytes, so an insertion or deletion only changes the chunks around the edit.
+public class ContentDefinedChunker {
+
+    public static final int DEFAULT_MIN_SIZE = 2 * 1024;
+    public static final int DEFAULT_AVERAGE_SIZE = 8 * 1024;
+    public static final int DEFAULT_MAX_SIZE = 64 * 1024;
+
+    private static final long[] GEAR = new long[256];
+
+    static {
+        // Fixed seed: boundaries must be identical from run to run
+        Random random = new Random(0x5EEDC0DEL);
+        for (int i = 0; i < GEAR.length; i++) {
+            GEAR[i] = random.nextLong();
+        }
+    }
+
+    private final int minSize;
+    private final int maxSize;
+    private final long mask;
+
+    public ContentDefinedChunker() {
+        this(DEFAULT_MIN_SIZE, DEFAULT_AVERAGE_SIZE, DEFAULT_MAX_SIZE);
+    }
+
+    public ContentDefinedChunker(int minSize, int averageSize, int maxSize) {
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        // A boundary is declared when the top log2(average) bits of the hash are zero
+        int bits = 31 - Integer.numberOfLeadingZeros(averageSize);
+        this.mask = -1L << (64 - bits);
+    }
+
+    // Split data into chunks; returns the end offset (exclusive) of every chunk
+    public int[] split(byte[] data) {
+        List<Integer> ends = new ArrayList<>();
+        int start = 0;
+        while (start < data.length) {
+            int end = nextBoundary(data, start);
+            ends.add(end);
+            start = end;
+        }
+        int[] result = new int[ends.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = ends.get(i);
+        }
+        return result;
+    }
+
+    private int nextBoundary(byte[] data, int start) {
+        int remaining = data.length - start;
+        if (remaining <= minSize) {
+            return data.length;
+        }
+        int limit = start + Math.min(remaining, maxSize);
+        long hash = 0;
+        // Bytes before the minimum size cannot end a chunk, so hashing starts there
+        for (int i = start + minSize; i < limit; i++) {
+            hash = (hash << 1) + GEAR[data[i] & 0xFF];
+            if ((hash & mask) == 0) {
+                return i + 1;
+            }
+        }
+        return limit;
+    }
+}
@@ -1,12 +1,24 @@
-import javax.crypto.Cipher;
 import javax.crypto.KeyGenerator;
 import javax.crypto.SecretKey;
 
-public class DES implements EncryptionAlgorithm {
+public class DES extends JcaAlgorithm implements EncryptionAlgorithm, BufferedEncryption {
     private SecretKey key;
-    private final String transformation = "DES/ECB/PKCS5Padding"; // Updated for DES
+    private final BlockCipherMode mode;
+    private final String padding;
+    private static final int BLOCK_SIZE = 8; // In bytes
 
     public DES() throws Exception {
+        this(BlockCipherMode.getDefault(), BlockCipherMode.getConfiguredPadding());
+    }
+
+    // Use the given mode; a null padding selects the mode's default padding
+    public DES(BlockCipherMode mode, String padding) throws Exception {
+        super(mode.transformation("DES", mode.resolvePadding(padding)));
+        if (!mode.supports(BLOCK_SIZE)) {
+            throw new IllegalArgumentException(mode + " is not supported by DES");
+        }
+        this.mode = mode;
+        this.padding = mode.resolvePadding(padding);
         KeyGenerator keyGen = KeyGenerator.getInstance("DES"); // Use DES
         keyGen.init(56); // DES uses a 56-bit key
         this.key = keyGen.generateKey();
@@ -14,16 +26,36 @@ public class DES implements EncryptionAlgorithm {
 
     @Override
     public byte[] encrypt(byte[] plaintext) throws Exception {
-        Cipher cipher = Cipher.getInstance(transformation);
-        cipher.init(Cipher.ENCRYPT_MODE, key);
-        return cipher.doFinal(plaintext);
+        return mode.encrypt(newCipher(), key, plaintext, BLOCK_SIZE);
     }
 
     @Override
     public byte[] decrypt(byte[] ciphertext) throws Exception {
-        Cipher cipher = Cipher.getInstance(transformation);
-        cipher.init(Cipher.DECRYPT_MODE, key);
-        return cipher.doFinal(ciphertext);
+        return mode.decrypt(newCipher(), key, ciphertext, BLOCK_SIZE);
+    }
+
+    @Override
+    public int getMaxEncryptedLength(int plaintextLength) {
+        return mode.maxEncryptedLength(plaintextLength, BLOCK_SIZE);
+    }
+
+    @Override
+    public int encrypt(byte[] input, int offset, int length, byte[] output, int outputOffset) throws Exception {
+        return mode.encrypt(newCipher(), key, input, offset, length, output, outputOffset, BLOCK_SIZE);
+    }
+
+    @Override
+    public int getMaxDecryptedLength(int ciphertextLength) {
+        return mode.maxDecryptedLength(ciphertextLength, BLOCK_SIZE);
+    }
+
+    @Override
+    public int decrypt(byte[] input, int offset, int length, byte[] output, int outputOffset) throws Exception {
+        return mode.decrypt(newCipher(), key, input, offset, length, output, outputOffset, BLOCK_SIZE);
+    }
+
+    public BlockCipherMode getMode() {
+        return mode;
     }
 
     @Override
@@ -33,6 +65,6 @@ public class DES implements EncryptionAlgorithm {
 
     @Override
     public String getName() {
-        return "DES";
+        return mode.displayName("DES", padding);
     }
 }
\ No newline at end of file
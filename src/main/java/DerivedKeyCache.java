@@ -0,0 +1,92 @@
+import javax.crypto.SecretKey;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+// Bounded LRU cache of password-derived keys, keyed by (KDF, password hash, salt, iterations), so
+// repeated operations on data sharing a salt skip the deliberately slow key derivation. Only a
+// SHA-256 hash of the password is kept; the derived keys themselves stay in memory while cached.
+public class DerivedKeyCache {
+
+    private static DerivedKeyCache shared;
+
+    private final int capacity;
+    private final Map<String, SecretKey> keys;
+    private long hits;
+    private long misses;
+
+    public DerivedKeyCache(int capacity) {
+        this.capacity = capacity;
+        // Access-ordered map: the eldest entry is the least recently used one
+        this.keys = new LinkedHashMap<String, SecretKey>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SecretKey> eldest) {
+                return size() > DerivedKeyCache.this.capacity;
+            }
+        };
+    }
+
+    // Process-wide cache sized with -Dpbe.keycache.size (default 0: disabled, returns null)
+    public static synchronized DerivedKeyCache getShared() {
+        int size = Integer.getInteger("pbe.keycache.size", 0);
+        if (size <= 0) {
+            return null;
+        }
+        if (shared == null) {
+            shared = new DerivedKeyCache(size);
+        }
+        return shared;
+    }
+
+    // Cached key for the parameters, derived with deriver on a miss. Derivation runs outside the
+    // lock, so a slow derivation does not block lookups of other keys.
+    public SecretKey get(String kdf, char[] password, byte[] salt, int iterations, Callable<SecretKey> deriver) throws Exception {
+        String cacheKey = cacheKey(kdf, password, salt, iterations);
+        synchronized (this) {
+            SecretKey key = keys.get(cacheKey);
+            if (key != null) {
+                hits++;
+                return key;
+            }
+            misses++;
+        }
+        SecretKey key = deriver.call();
+        synchronized (this) {
+            keys.put(cacheKey, key);
+        }
+        return key;
+    }
+
+    private static String cacheKey(String kdf, char[] password, byte[] salt, int iterations) throws Exception {
+        ByteBuffer passwordBytes = StandardCharsets.UTF_8.encode(CharBuffer.wrap(password));
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        digest.update(passwordBytes);
+        Base64.Encoder encoder = Base64.getEncoder();
+        return kdf + ":" + encoder.encodeToString(digest.digest()) + ":" + encoder.encodeToString(salt) + ":" + iterations;
+    }
+
+    public synchronized void clear() {
+        keys.clear();
+    }
+
+    public synchronized int size() {
+        return keys.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+}
@@ -0,0 +1,41 @@
+import java.security.MessageDigest;
+
+// Unkeyed message digest (SHA-256, SHA-512, SHA3-256, ...)
+public class DigestIntegrity implements IntegrityAlgorithm {
+    private final String algorithm;
+    private final int outputLength;
+
+    public DigestIntegrity(String algorithm) throws Exception {
+        this.algorithm = algorithm;
+        this.outputLength = MessageDigest.getInstance(algorithm).getDigestLength();
+    }
+
+    @Override
+    public byte[] compute(byte[] data) throws Exception {
+        return MessageDigest.getInstance(algorithm).digest(data);
+    }
+
+    @Override
+    public byte[] computeStreaming(byte[] data, int chunkSize) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance(algorithm);
+        for (int offset = 0; offset < data.length; offset += chunkSize) {
+            digest.update(data, offset, Math.min(chunkSize, data.length - offset));
+        }
+        return digest.digest();
+    }
+
+    @Override
+    public int getOutputLength() {
+        return outputLength * 8;
+    }
+
+    @Override
+    public int getKeyLength() {
+        return 0;
+    }
+
+    @Override
+    public String getName() {
+        return algorithm;
+    }
+}
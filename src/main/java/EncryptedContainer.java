@@ -0,0 +1,359 @@
+import javax.crypto.AEADBadTagException;
+import javax.crypto.KeyGenerator;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Chunked, authenticated and seekable encrypted container built on any EncryptionAlgorithm.
+//
+// Layout:
+//   header  magic, version, algorithm, key id, nonce base, chunk size, plaintext length, chunk count
+//   chunks  [int ciphertext length][ciphertext][HMAC-SHA256 tag] for each fixed-size plaintext chunk
+//   index   file offset of every chunk record
+//   footer  [long index offset][int magic]
+//
+// Each tag covers the header hash, the nonce base, the chunk index, a last-chunk flag and the
+// ciphertext, so chunks cannot be reordered, swapped between containers or truncated unnoticed.
+// Chunks are independent, which allows parallel encryption/decryption and random-access reads.
+public class EncryptedContainer {
+
+    public static final int MAGIC = 0x46454143; // "FEAC"
+    public static final short VERSION = 1;
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+    private static final int NONCE_BASE_LENGTH = 16;
+    private static final int TAG_LENGTH = 32;
+    private static final int FOOTER_LENGTH = 12;
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+
+    private final EncryptionAlgorithm algorithm;
+    private final SecretKey macKey;
+    private final String keyId;
+
+    // Create a container for the algorithm with a freshly generated authentication key
+    public EncryptedContainer(EncryptionAlgorithm algorithm) throws Exception {
+        this(algorithm, KeyGenerator.getInstance(MAC_ALGORITHM).generateKey());
+    }
+
+    public EncryptedContainer(EncryptionAlgorithm algorithm, SecretKey macKey) throws Exception {
+        this.algorithm = algorithm;
+        this.macKey = macKey;
+        // The key id is a fingerprint of the authentication key, never the key itself
+        byte[] fingerprint = MessageDigest.getInstance("SHA-256").digest(macKey.getEncoded());
+        StringBuilder hex = new StringBuilder();
+        for (int i = 0; i < 8; i++) {
+            hex.append(String.format("%02x", fingerprint[i] & 0xFF));
+        }
+        this.keyId = hex.toString();
+    }
+
+    public String getKeyId() {
+        return keyId;
+    }
+
+    // Encrypt a file into a container, encrypting up to 'threads' chunks in parallel
+    public void encryptFile(Path input, Path output, int chunkSize, int threads) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            long plaintextLength = in.size();
+            int chunkCount = (int) Math.max(1, (plaintextLength + chunkSize - 1) / chunkSize);
+
+            byte[] nonceBase = new byte[NONCE_BASE_LENGTH];
+            new SecureRandom().nextBytes(nonceBase);
+            byte[] header = encodeHeader(algorithm.getName(), keyId, nonceBase, chunkSize, plaintextLength, chunkCount);
+            byte[] headerHash = MessageDigest.getInstance("SHA-256").digest(header);
+            writeFully(out, ByteBuffer.wrap(header));
+
+            long[] index = new long[chunkCount];
+            // Keep a bounded number of chunks in flight so memory does not grow with the file size
+            int batchSize = Math.max(1, threads) * 2;
+            for (int batchStart = 0; batchStart < chunkCount; batchStart += batchSize) {
+                List<Future<byte[]>> batch = new ArrayList<>();
+                for (int i = batchStart; i < Math.min(chunkCount, batchStart + batchSize); i++) {
+                    long position = (long) i * chunkSize;
+                    byte[] plaintext = new byte[(int) Math.min(chunkSize, plaintextLength - position)];
+                    readFully(in, ByteBuffer.wrap(plaintext), position);
+                    final int chunkIndex = i;
+                    final boolean last = i == chunkCount - 1;
+                    batch.add(executor.submit(() -> sealChunk(headerHash, nonceBase, chunkIndex, last, plaintext)));
+                }
+                for (int i = 0; i < batch.size(); i++) {
+                    index[batchStart + i] = out.position();
+                    writeFully(out, ByteBuffer.wrap(batch.get(i).get()));
+                }
+            }
+
+            long indexOffset = out.position();
+            ByteBuffer indexBuffer = ByteBuffer.allocate(chunkCount * 8 + FOOTER_LENGTH);
+            for (long offset : index) {
+                indexBuffer.putLong(offset);
+            }
+            indexBuffer.putLong(indexOffset).putInt(MAGIC).flip();
+            writeFully(out, indexBuffer);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    // Encrypt one chunk and append its tag: [int length][ciphertext][tag]
+    private byte[] sealChunk(byte[] headerHash, byte[] nonceBase, int chunkIndex, boolean last,
+                             byte[] plaintext) throws Exception {
+        byte[] ciphertext = algorithm.encrypt(plaintext);
+        byte[] tag = computeTag(headerHash, nonceBase, chunkIndex, last, ciphertext);
+        ByteBuffer record = ByteBuffer.allocate(4 + ciphertext.length + TAG_LENGTH);
+        record.putInt(ciphertext.length).put(ciphertext).put(tag);
+        return record.array();
+    }
+
+    private byte[] computeTag(byte[] headerHash, byte[] nonceBase, int chunkIndex, boolean last,
+                              byte[] ciphertext) throws Exception {
+        Mac mac = Mac.getInstance(MAC_ALGORITHM);
+        mac.init(macKey);
+        mac.update(headerHash);
+        mac.update(nonceBase);
+        mac.update(ByteBuffer.allocate(5).putInt(chunkIndex).put((byte) (last ? 1 : 0)).array());
+        return mac.doFinal(ciphertext);
+    }
+
+    private static byte[] encodeHeader(String algorithmName, String keyId, byte[] nonceBase, int chunkSize,
+                                       long plaintextLength, int chunkCount) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream header = new DataOutputStream(bytes);
+        header.writeInt(MAGIC);
+        header.writeShort(VERSION);
+        header.writeUTF(algorithmName);
+        header.writeUTF(keyId);
+        header.write(nonceBase);
+        header.writeInt(chunkSize);
+        header.writeLong(plaintextLength);
+        header.writeInt(chunkCount);
+        header.flush();
+        return bytes.toByteArray();
+    }
+
+    // Open a container for reading; the algorithm and key must match the ones used to write it
+    public Reader open(Path container) throws Exception {
+        return new Reader(container);
+    }
+
+    // Random-access reader over an existing container
+    public class Reader implements Closeable {
+        private final FileChannel channel;
+        private final String algorithmName;
+        private final String containerKeyId;
+        private final byte[] nonceBase = new byte[NONCE_BASE_LENGTH];
+        private final int chunkSize;
+        private final long plaintextLength;
+        private final int chunkCount;
+        private final byte[] headerHash;
+        private final long[] index;
+        private final long indexOffset; // End of the last chunk record
+        private final long maxCiphertextLength; // Largest ciphertext a chunk can legitimately have
+
+        private Reader(Path container) throws Exception {
+            channel = FileChannel.open(container, StandardOpenOption.READ);
+            try {
+                // Parse the header (its length is variable because of the two strings)
+                int probeLength = (int) Math.min(channel.size(), 4096);
+                ByteBuffer probe = ByteBuffer.allocate(probeLength);
+                readFully(channel, probe, 0);
+                DataInputStream header = new DataInputStream(new ByteArrayInputStream(probe.array()));
+                if (header.readInt() != MAGIC) {
+                    throw new IOException("Not an encrypted container: " + container);
+                }
+                short version = header.readShort();
+                if (version != VERSION) {
+                    throw new IOException("Unsupported container version: " + version);
+                }
+                algorithmName = header.readUTF();
+                containerKeyId = header.readUTF();
+                header.readFully(nonceBase);
+                chunkSize = header.readInt();
+                plaintextLength = header.readLong();
+                chunkCount = header.readInt();
+                int headerLength = probeLength - header.available();
+                headerHash = MessageDigest.getInstance("SHA-256").digest(Arrays.copyOf(probe.array(), headerLength));
+
+                if (!algorithmName.equals(algorithm.getName())) {
+                    throw new IOException("Container was written with " + algorithmName + ", not " + algorithm.getName());
+                }
+                if (!containerKeyId.equals(keyId)) {
+                    throw new IOException("Container was written with key " + containerKeyId + ", not " + keyId);
+                }
+
+                // The header is not authenticated until the chunk tags are checked, so validate the
+                // layout before sizing anything from it
+                if (chunkSize <= 0 || plaintextLength < 0) {
+                    throw new IOException("Container header is damaged: chunk size " + chunkSize
+                            + ", plaintext length " + plaintextLength);
+                }
+                long expectedChunks = Math.max(1, plaintextLength / chunkSize + (plaintextLength % chunkSize == 0 ? 0 : 1));
+                if (chunkCount < 1 || chunkCount != expectedChunks) {
+                    throw new IOException("Container header is damaged: " + chunkCount + " chunks for "
+                            + plaintextLength + " bytes in " + chunkSize + "-byte chunks");
+                }
+
+                // Load the chunk index from the footer
+                if (channel.size() < headerLength + FOOTER_LENGTH) {
+                    throw new IOException("Container is truncated: " + channel.size() + " bytes");
+                }
+                ByteBuffer footer = ByteBuffer.allocate(FOOTER_LENGTH);
+                readFully(channel, footer, channel.size() - FOOTER_LENGTH);
+                indexOffset = footer.getLong(0);
+                if (footer.getInt(8) != MAGIC) {
+                    throw new IOException("Container footer is damaged or the file is truncated");
+                }
+                if (indexOffset < headerLength || indexOffset + chunkCount * 8L + FOOTER_LENGTH != channel.size()) {
+                    throw new IOException("Container footer is damaged: index at " + indexOffset + " for "
+                            + chunkCount + " chunks in a " + channel.size() + "-byte file");
+                }
+                ByteBuffer indexBuffer = ByteBuffer.allocate(chunkCount * 8);
+                readFully(channel, indexBuffer, indexOffset);
+                index = new long[chunkCount];
+                indexBuffer.flip();
+                for (int i = 0; i < chunkCount; i++) {
+                    index[i] = indexBuffer.getLong();
+                }
+                maxCiphertextLength = algorithm instanceof BufferedEncryption
+                        ? ((BufferedEncryption) algorithm).getMaxEncryptedLength(chunkSize)
+                        : Integer.MAX_VALUE - TAG_LENGTH;
+            } catch (Exception e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        public String getAlgorithmName() {
+            return algorithmName;
+        }
+
+        public String getKeyId() {
+            return containerKeyId;
+        }
+
+        public int getChunkSize() {
+            return chunkSize;
+        }
+
+        public int getChunkCount() {
+            return chunkCount;
+        }
+
+        public long getPlaintextLength() {
+            return plaintextLength;
+        }
+
+        // Read, authenticate and decrypt a single chunk
+        public byte[] readChunk(int chunkIndex) throws Exception {
+            // The length and offsets are not authenticated yet, so check them before allocating: a
+            // tampered record must fail like a bad tag, not with an OOM or a read into the next record
+            long recordStart = index[chunkIndex];
+            long recordEnd = chunkIndex + 1 < chunkCount ? index[chunkIndex + 1] : indexOffset;
+            if (recordStart < 0 || recordEnd - recordStart < 4 + TAG_LENGTH) {
+                throw new AEADBadTagException("Chunk " + chunkIndex + " has an invalid record offset");
+            }
+            ByteBuffer lengthBuffer = ByteBuffer.allocate(4);
+            readFully(channel, lengthBuffer, recordStart);
+            int ciphertextLength = lengthBuffer.getInt(0);
+            if (ciphertextLength < 0 || ciphertextLength > maxCiphertextLength
+                    || 4L + ciphertextLength + TAG_LENGTH > recordEnd - recordStart) {
+                throw new AEADBadTagException("Chunk " + chunkIndex + " has an invalid ciphertext length " + ciphertextLength);
+            }
+            ByteBuffer record = ByteBuffer.allocate(ciphertextLength + TAG_LENGTH);
+            readFully(channel, record, recordStart + 4);
+
+            byte[] ciphertext = Arrays.copyOfRange(record.array(), 0, ciphertextLength);
+            byte[] tag = Arrays.copyOfRange(record.array(), ciphertextLength, ciphertextLength + TAG_LENGTH);
+            byte[] expected = computeTag(headerHash, nonceBase, chunkIndex, chunkIndex == chunkCount - 1, ciphertext);
+            if (!MessageDigest.isEqual(tag, expected)) {
+                throw new AEADBadTagException("Chunk " + chunkIndex + " failed authentication");
+            }
+            return algorithm.decrypt(ciphertext);
+        }
+
+        // Read any plaintext byte range, decrypting only the chunks it touches
+        public byte[] read(long offset, int length) throws Exception {
+            if (offset < 0 || length < 0 || offset + length > plaintextLength) {
+                throw new IndexOutOfBoundsException("Range " + offset + "+" + length + " outside 0.." + plaintextLength);
+            }
+            byte[] result = new byte[length];
+            int copied = 0;
+            while (copied < length) {
+                long position = offset + copied;
+                int chunkIndex = (int) (position / chunkSize);
+                int chunkOffset = (int) (position % chunkSize);
+                byte[] chunk = readChunk(chunkIndex);
+                if (chunk.length <= chunkOffset) {
+                    // Only the last chunk may be shorter than chunkSize; anything else would never advance
+                    throw new IOException("Chunk " + chunkIndex + " decrypted to " + chunk.length
+                            + " bytes, expected more than " + chunkOffset);
+                }
+                int count = Math.min(length - copied, chunk.length - chunkOffset);
+                System.arraycopy(chunk, chunkOffset, result, copied, count);
+                copied += count;
+            }
+            return result;
+        }
+
+        // Decrypt the whole container to a file, decrypting up to 'threads' chunks in parallel
+        public void decryptTo(Path output, int threads) throws Exception {
+            ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+            try (FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                int batchSize = Math.max(1, threads) * 2;
+                for (int batchStart = 0; batchStart < chunkCount; batchStart += batchSize) {
+                    List<Future<byte[]>> batch = new ArrayList<>();
+                    for (int i = batchStart; i < Math.min(chunkCount, batchStart + batchSize); i++) {
+                        final int chunkIndex = i;
+                        batch.add(executor.submit(() -> readChunk(chunkIndex)));
+                    }
+                    for (Future<byte[]> chunk : batch) {
+                        writeFully(out, ByteBuffer.wrap(chunk.get()));
+                    }
+                }
+            } finally {
+                executor.shutdown();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("Unexpected end of container");
+            }
+            position += read;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
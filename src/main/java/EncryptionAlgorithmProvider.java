@@ -0,0 +1,20 @@
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+// Service provider interface for EncryptionAlgorithm implementations. Providers are discovered
+// with ServiceLoader (META-INF/services/EncryptionAlgorithmProvider), so a plugin jar on the
+// classpath can add algorithms without code changes. Creating a provider must be cheap; key
+// generation only happens in create().
+public interface EncryptionAlgorithmProvider {
+    // Names of the algorithms this provider can create, as returned by EncryptionAlgorithm.getName()
+    List<String> getAlgorithmNames();
+
+    // Create a new algorithm instance (with fresh keys) for one of the names above
+    EncryptionAlgorithm create(String name) throws Exception;
+
+    // Optional short names, mapped to names from getAlgorithmNames()
+    default Map<String, String> getAliases() {
+        return Collections.emptyMap();
+    }
+}
@@ -5,14 +5,25 @@ import java.io.*;
 import java.nio.file.*;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import org.jfree.chart.*;
+import org.jfree.chart.axis.LogAxis;
 import org.jfree.chart.plot.*;
+import org.jfree.chart.renderer.xy.XYLineAndShapeRenderer;
 import org.jfree.data.category.*;
+import org.jfree.data.xy.XYSeries;
+import org.jfree.data.xy.XYSeriesCollection;
 
 public class EncryptionAnalysisGUI extends JFrame {
     private JTextField filePathField;
     private JButton browseButton;
     private JButton analyzeButton;
+    private JButton cancelButton;
+    // Per-algorithm time budget in seconds; slower algorithms are measured on a sample of the file
+    private JSpinner budgetSpinner;
+    // The analysis thread while an analysis runs; Cancel interrupts it
+    private volatile Thread analysisThread;
+    private volatile boolean cancelRequested;
     private JProgressBar progressBar;
     private JTabbedPane resultsTabbedPane;
     private JTextArea logTextArea;
@@ -21,7 +32,36 @@ public class EncryptionAnalysisGUI extends JFrame {
     private File selectedFile;
     private List<AlgorithmEvaluator.AlgorithmPerformance> performances;
     private StringBuilder logBuilder = new StringBuilder();
+    // Log lines from the analysis thread are queued and appended to the log tab in batches
+    private final LogQueue logQueue = new LogQueue();
+    private javax.swing.Timer logTimer;
+    private static final int LOG_FLUSH_INTERVAL_MS = 100;
+    private static final int LOG_BATCH_LINES = 4096;
+    // Results of finished algorithms waiting to be added to the table and charts
+    private final ConcurrentLinkedQueue<AlgorithmEvaluator.AlgorithmPerformance> pendingResults = new ConcurrentLinkedQueue<>();
+    private javax.swing.Timer chartTimer;
+    private static final int CHART_REFRESH_INTERVAL_MS = 250;
+    private final List<JFreeChart> charts = new ArrayList<>();
+    // RSA blocks per cancellation check (about 15 KB, a fraction of a second even when decrypting)
+    private static final int RSA_SLICE_BLOCKS = 64;
+    private DefaultCategoryDataset encryptionTimeDataset;
+    private DefaultCategoryDataset throughputDataset;
+    private DefaultCategoryDataset avalancheDataset;
+    private DefaultCategoryDataset entropyDataset;
+    private XYSeriesCollection timelineDataset;
+    private XYSeriesCollection gcEventDataset;
     private JPanel recommendationsPanel;
+    // One check box per registered algorithm; only checked algorithms are created and analyzed
+    private final Map<String, JCheckBox> algorithmCheckBoxes = new LinkedHashMap<>();
+    // Ranking tab: the scores of the last analysis, re-ranked whenever the weights change
+    private JPanel rankingPanel;
+    private JTable rankingTable;
+    private JComboBox<String> profileComboBox;
+    private JSlider speedWeightSlider;
+    private JSlider securityWeightSlider;
+    private Map<String, WeightProfile> weightProfiles;
+    private AlgorithmEvaluator rankingEvaluator;
+    private boolean updatingWeightSliders;
 
     public EncryptionAnalysisGUI() {
         setTitle("Encryption Algorithm Analysis");
@@ -44,6 +84,15 @@ public class EncryptionAnalysisGUI extends JFrame {
         browseButton = new JButton("Browse");
         analyzeButton = new JButton("Analyze");
         analyzeButton.setEnabled(false);
+        cancelButton = new JButton("Cancel");
+        cancelButton.setEnabled(false);
+        budgetSpinner = new JSpinner(new SpinnerNumberModel(
+                (int) Math.min(Integer.MAX_VALUE, SampledAnalysis.getConfiguredBudgetMs() / 1000), 0, Integer.MAX_VALUE, 10));
+
+        List<String> initiallySelected = Main.getSelectedAlgorithms();
+        for (String name : AlgorithmRegistry.getDefault().getNames()) {
+            algorithmCheckBoxes.put(name, new JCheckBox(name, initiallySelected.contains(name)));
+        }
 
         progressBar = new JProgressBar(0, 100);
         progressBar.setStringPainted(true);
@@ -55,17 +104,46 @@ public class EncryptionAnalysisGUI extends JFrame {
         logTextArea.setEditable(false);
 
         // Results table tab
-        String[] columnNames = {"Algorithm", "Encrypt Time (ms)", "Throughput (MB/s)", "Avalanche Effect", "Entropy", "Key Length (bits)"};
+        String[] columnNames = {"Algorithm", "Encrypt Time (ms)", "Throughput (MB/s)", "Decrypt Time (ms)",
+                "Decrypt Throughput (MB/s)", "Round Trip", "Avalanche Effect", "Entropy", "Key Length (bits)", "Measurement"};
         DefaultTableModel model = new DefaultTableModel(columnNames, 0);
         resultsTable = new JTable(model);
         resultsTable.setFillsViewportHeight(true);
 
         // Charts tab
-        chartsPanel = new JPanel(new GridLayout(2, 2));
+        chartsPanel = new JPanel(new GridLayout(0, 2));
 
         // Recommendations tab
         recommendationsPanel = new JPanel();
         recommendationsPanel.setLayout(new BorderLayout());
+
+        // Ranking tab
+        try {
+            weightProfiles = WeightProfile.loadConfigured();
+        } catch (IOException e) {
+            System.err.println("Error reading scoring profiles: " + e.getMessage());
+            weightProfiles = new LinkedHashMap<>();
+            weightProfiles.put(WeightProfile.BALANCED.getName(), WeightProfile.BALANCED);
+        }
+        profileComboBox = new JComboBox<>(weightProfiles.keySet().toArray(new String[0]));
+        if (weightProfiles.containsKey(System.getProperty("scoring.profile"))) {
+            profileComboBox.setSelectedItem(System.getProperty("scoring.profile"));
+        }
+        speedWeightSlider = new JSlider(0, 100);
+        securityWeightSlider = new JSlider(0, 100);
+        String[] rankingColumns = {"Rank", "Algorithm", "Speed Score", "Security Score", "Total", "Pareto Frontier"};
+        rankingTable = new JTable(new DefaultTableModel(rankingColumns, 0));
+        rankingTable.setFillsViewportHeight(true);
+        rankingPanel = new JPanel(new BorderLayout());
+        loadProfileWeights();
+
+        // Drains the log queue on the EDT
+        logTimer = new javax.swing.Timer(LOG_FLUSH_INTERVAL_MS, e -> drainLog());
+        logTimer.setCoalesce(true);
+
+        // Applies finished results to the table and charts at most once per interval
+        chartTimer = new javax.swing.Timer(CHART_REFRESH_INTERVAL_MS, e -> applyPendingResults());
+        chartTimer.setCoalesce(true);
     }
 
     private void layoutComponents() {
@@ -78,14 +156,25 @@ public class EncryptionAnalysisGUI extends JFrame {
         filePanel.add(filePathField);
         filePanel.add(browseButton);
 
+        // Algorithm selection panel
+        JPanel algorithmPanel = new JPanel();
+        algorithmPanel.setBorder(BorderFactory.createTitledBorder("Algorithms"));
+        for (JCheckBox checkBox : algorithmCheckBoxes.values()) {
+            algorithmPanel.add(checkBox);
+        }
+
         // Button panel
         JPanel actionPanel = new JPanel();
         actionPanel.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
+        actionPanel.add(new JLabel("Time budget per algorithm (s, 0 = none):"));
+        actionPanel.add(budgetSpinner);
         actionPanel.add(analyzeButton);
+        actionPanel.add(cancelButton);
 
         // Top panel combining file selection and action buttons
         JPanel topPanel = new JPanel(new BorderLayout());
-        topPanel.add(filePanel, BorderLayout.CENTER);
+        topPanel.add(filePanel, BorderLayout.NORTH);
+        topPanel.add(algorithmPanel, BorderLayout.CENTER);
         topPanel.add(actionPanel, BorderLayout.SOUTH);
 
         // Progress panel
@@ -103,6 +192,19 @@ public class EncryptionAnalysisGUI extends JFrame {
 
         resultsTabbedPane.addTab("Recommendations", new JScrollPane(recommendationsPanel));
 
+        // Weight controls above the ranking table
+        JPanel weightsPanel = new JPanel();
+        weightsPanel.setBorder(BorderFactory.createTitledBorder("Weights"));
+        weightsPanel.add(new JLabel("Profile:"));
+        weightsPanel.add(profileComboBox);
+        weightsPanel.add(new JLabel("Speed:"));
+        weightsPanel.add(speedWeightSlider);
+        weightsPanel.add(new JLabel("Security:"));
+        weightsPanel.add(securityWeightSlider);
+        rankingPanel.add(weightsPanel, BorderLayout.NORTH);
+        rankingPanel.add(new JScrollPane(rankingTable), BorderLayout.CENTER);
+        resultsTabbedPane.addTab("Ranking", rankingPanel);
+
         // Add components to the main frame
         add(topPanel, BorderLayout.NORTH);
         add(progressPanel, BorderLayout.SOUTH);
@@ -112,6 +214,13 @@ public class EncryptionAnalysisGUI extends JFrame {
     private void addListeners() {
         browseButton.addActionListener(e -> selectFile());
         analyzeButton.addActionListener(e -> performAnalysis());
+        cancelButton.addActionListener(e -> cancelAnalysis());
+        profileComboBox.addActionListener(e -> {
+            loadProfileWeights();
+            refreshRanking();
+        });
+        speedWeightSlider.addChangeListener(e -> refreshRanking());
+        securityWeightSlider.addChangeListener(e -> refreshRanking());
     }
 
     private void selectFile() {
@@ -130,90 +239,130 @@ public class EncryptionAnalysisGUI extends JFrame {
             return;
         }
 
+        List<String> algorithmNames = new ArrayList<>();
+        for (Map.Entry<String, JCheckBox> entry : algorithmCheckBoxes.entrySet()) {
+            if (entry.getValue().isSelected()) {
+                algorithmNames.add(entry.getKey());
+            }
+        }
+        if (algorithmNames.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "Please select at least one algorithm.", "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
         // Clear previous results
         logTextArea.setText("");
         logBuilder = new StringBuilder();
         DefaultTableModel model = (DefaultTableModel) resultsTable.getModel();
         model.setRowCount(0);
-        chartsPanel.removeAll();
+        pendingResults.clear();
+        createCharts();
         recommendationsPanel.removeAll();
+        rankingEvaluator = null;
+        ((DefaultTableModel) rankingTable.getModel()).setRowCount(0);
+
+        // The budget is read through the system property, so forked runs and the stored run config see it too
+        System.setProperty("analysis.budgetMs", String.valueOf(((Number) budgetSpinner.getValue()).longValue() * 1000));
 
         // Disable UI during analysis
         analyzeButton.setEnabled(false);
         browseButton.setEnabled(false);
+        budgetSpinner.setEnabled(false);
+        cancelButton.setEnabled(true);
+        cancelRequested = false;
         progressBar.setValue(0);
+        logTimer.start();
+        chartTimer.start();
 
         // Run analysis in background thread
-        SwingWorker<Void, String> worker = new SwingWorker<Void, String>() {
+        SwingWorker<Void, Void> worker = new SwingWorker<Void, Void>() {
             @Override
             protected Void doInBackground() throws Exception {
+                analysisThread = Thread.currentThread();
                 try {
-                    runEncryptionAnalysis();
+                    runEncryptionAnalysis(algorithmNames);
                 } catch (Exception e) {
-                    e.printStackTrace();
-                    publish("ERROR: " + e.getMessage());
+                    if (cancelRequested) {
+                        EncryptionAnalysisGUI.this.publish("\nAnalysis cancelled.");
+                    } else {
+                        e.printStackTrace();
+                        EncryptionAnalysisGUI.this.publish("ERROR: " + e.getMessage());
+                    }
+                } finally {
+                    analysisThread = null;
+                    // Clear a cancellation that arrived after the last check
+                    Thread.interrupted();
                 }
                 return null;
             }
 
-            @Override
-            protected void process(List<String> chunks) {
-                for (String message : chunks) {
-                    logTextArea.append(message + "\n");
-                    logBuilder.append(message).append("\n");
-                }
-            }
-
             @Override
             protected void done() {
+                // Flush whatever is still queued before the log is saved
+                logTimer.stop();
+                drainLog();
+                chartTimer.stop();
+                applyPendingResults();
+
                 // Re-enable UI
                 analyzeButton.setEnabled(true);
                 browseButton.setEnabled(true);
+                budgetSpinner.setEnabled(true);
+                cancelButton.setEnabled(false);
                 progressBar.setValue(100);
 
                 // Save log to file
                 saveResultsToFile();
 
-                // Switch to the recommendations tab
-                resultsTabbedPane.setSelectedIndex(3);
+                // Switch to the recommendations tab, or the log when the analysis was cancelled
+                resultsTabbedPane.setSelectedIndex(cancelRequested ? 0 : 3);
             }
         };
 
         worker.execute();
     }
 
-    private void runEncryptionAnalysis() throws Exception {
+    // Stop the running analysis at its next check (between algorithms, samples, chunks or RSA blocks)
+    private void cancelAnalysis() {
+        Thread thread = analysisThread;
+        if (thread != null) {
+            cancelRequested = true;
+            cancelButton.setEnabled(false);
+            publish("Cancelling...");
+            thread.interrupt();
+        }
+    }
+
+    private void runEncryptionAnalysis(List<String> algorithmNames) throws Exception {
         publish("Encryption Algorithm Analysis Results");
         publish("Generated: " + new Date());
         publish("=====================================\n");
 
         publish("Selected file: " + selectedFile.getAbsolutePath());
 
-        // Load plaintext from the selected file
-        byte[] plaintext = Files.readAllBytes(selectedFile.toPath());
-
-        List<EncryptionAlgorithm> algorithms = Arrays.asList(
-            new AES(),
-            new DES(),
-            new TDES(),
-            new RSA(),
-            new ChaCha20(),
-            new Blowfish(),
-            new PBEEncryption()
-        );
+        // Load plaintext from the selected file. The fused pipeline streams the file instead and only
+        // keeps its first chunk for the AEAD and digest benchmarks.
+        boolean fused = FusedAnalysisPipeline.isEnabled(selectedFile);
+        FusedAnalysisPipeline pipeline = new FusedAnalysisPipeline(FusedAnalysisPipeline.getConfiguredChunkSize(), Main.getSampleCount());
+        byte[] plaintext = fused ? FusedAnalysisPipeline.readHead(selectedFile, FusedAnalysisPipeline.getConfiguredChunkSize())
+                : Files.readAllBytes(selectedFile.toPath());
+        if (fused) {
+            publish("Pipeline: fused single pass, " + FusedAnalysisPipeline.getConfiguredChunkSize() + "-byte chunks");
+        }
 
         // Create an evaluator to collect performance data
         AlgorithmEvaluator evaluator = new AlgorithmEvaluator();
 
-        int totalAlgorithms = algorithms.size();
+        int totalAlgorithms = algorithmNames.size();
         final int[] progressCounter = {0}; // Wrapper to make it effectively final
+        ForkedRunner forkedRunner = ForkedRunner.isEnabled() ? ForkedRunner.fromSystemProperties() : null;
+        if (forkedRunner != null) {
+            publish("Isolation: one forked JVM per algorithm " + forkedRunner.getJvmArgs());
+        }
 
-        // Loop through each algorithm and run the tests
-        for (EncryptionAlgorithm algo : algorithms) {
-            publish("\n=== Testing " + algo.getName() + " ===");
-
-            // Create performance object for this algorithm
-            AlgorithmEvaluator.AlgorithmPerformance performance = new AlgorithmEvaluator.AlgorithmPerformance(algo.getName());
+        // Loop through each selected algorithm and run the tests; each is created (and keyed) only when its turn comes
+        for (String algorithmName : algorithmNames) {
+            checkCancelled();
 
             // Update progress
             SwingUtilities.invokeLater(() -> {
@@ -221,48 +370,67 @@ public class EncryptionAnalysisGUI extends JFrame {
                 progressBar.setValue((int)((float)(progressCounter[0]) / totalAlgorithms * 100));
             });
 
-            // Speed testing
-            long startEnc = System.nanoTime();
-            byte[] ciphertext = algo.encrypt(plaintext);
-            long endEnc = System.nanoTime();
-            double encTimeMs = (endEnc - startEnc) / 1_000_000.0;
-            double fileSizeMB = plaintext.length / (1024.0 * 1024.0);
-            double throughput = fileSizeMB / ((endEnc - startEnc) / 1e9);
-            publish(algo.getName() + " Encryption Time (ms): " + encTimeMs);
-            publish(algo.getName() + " Throughput (MB/s): " + throughput);
-
-            // Display samples of original and encrypted data
-            displayFileSamples(plaintext, ciphertext, algo.getName());
-
-            // Store the speed metrics
-            performance.setEncryptionTime(encTimeMs);
-            performance.setThroughput(throughput);
-
-            // Avalanche Effect testing
-            byte[] originalCipher = algo.encrypt(plaintext);
-            byte[] modifiedPlaintext = Arrays.copyOf(plaintext, plaintext.length);
-            modifiedPlaintext[0] ^= 0x01; // Flip one bit
-            byte[] modifiedCipher = algo.encrypt(modifiedPlaintext);
-            int distance = hammingDistance(originalCipher, modifiedCipher);
-            publish(algo.getName() + " Avalanche Effect Hamming Distance: " + distance);
-
-            // Store avalanche effect
-            performance.setAvalancheEffect(distance);
-
-            // Randomness and Entropy testing
-            double entropy = calculateEntropy(ciphertext);
-            publish(algo.getName() + " Ciphertext Shannon Entropy: " + entropy);
-
-            // Store entropy
-            performance.setEntropy(entropy);
-
-            // Display and store the key length
-            int keyLength = algo.getKeyLength();
-            publish(algo.getName() + " Key Length (bits): " + keyLength);
-            performance.setKeyLength(keyLength);
+            AlgorithmEvaluator.AlgorithmPerformance performance;
+            if (forkedRunner != null) {
+                performance = forkedRunner.run(algorithmName, selectedFile, this::publish);
+            } else {
+                EncryptionAlgorithm algo = AlgorithmRegistry.getDefault().create(algorithmName);
+                publish("\n=== Testing " + algo.getName() + " ===");
+
+                // Measure with the whole file in memory, or in one chunked pass when it is too large. An
+                // algorithm that would overrun its time budget is measured on a sample of the file instead.
+                SampledAnalysis sampler = new SampledAnalysis(SampledAnalysis.getConfiguredBudgetMs(), Main.getSampleCount());
+                boolean timelinePass = !fused && ThroughputTimeline.isEnabled();
+                boolean sampled = false;
+                if (sampler.exceedsBudget(algo, selectedFile, plaintext.length, timelinePass)) {
+                    double predictedSeconds = sampler.predictFullMs(algo, selectedFile, plaintext.length, timelinePass) / 1000.0;
+                    sampled = SampledAnalysis.canSample(selectedFile);
+                    if (sampled) {
+                        publish(String.format("%s would take about %.1f s (budget %.1f s); measuring a stratified sample",
+                                algo.getName(), predictedSeconds, sampler.getBudgetMs() / 1000.0));
+                    } else {
+                        publish(String.format("%s would take about %.1f s (budget %.1f s), but the file is too small to sample (needs %d KB); time budget not applied",
+                                algo.getName(), predictedSeconds, sampler.getBudgetMs() / 1000.0, SampledAnalysis.getMinSampleBytes() / 1024));
+                    }
+                }
+                if (sampled) {
+                    performance = analyzeSampled(sampler, algo);
+                } else {
+                    performance = fused ? analyzeFused(pipeline, algo) : analyzeInMemory(algo, plaintext);
+                }
+
+                // Authentication cost: tag verification, with the file name as associated data
+                if (algo instanceof AeadAlgorithm) {
+                    AeadBenchmark aead = new AeadBenchmark(Main.getSampleCount());
+                    byte[] aad = selectedFile.getName().getBytes(java.nio.charset.StandardCharsets.UTF_8);
+                    if (sampled) {
+                        // A sampled algorithm only checks one block, scaled up, to stay within its budget
+                        aead.measureBlock((AeadAlgorithm) algo, plaintext, SampledAnalysis.PILOT_BYTES, aad, performance);
+                        publish(algo.getName() + " Tag Verification Time (ms, estimated from the first "
+                                + SampledAnalysis.PILOT_BYTES / 1024 + " KB): " + performance.getTagVerificationTime());
+                    } else {
+                        aead.measure((AeadAlgorithm) algo, plaintext, aad, performance);
+                        publish(algo.getName() + " Tag Verification Time (ms): " + performance.getTagVerificationTime());
+                    }
+                }
+            }
 
             // Add this algorithm's performance to the evaluator
             evaluator.addPerformance(performance);
+
+            // Hand the result to the chart timer so the charts update while the next algorithm runs
+            pendingResults.add(performance);
+        }
+
+        // Digest/MAC costs on the same data, for the combined encrypt+integrity view
+        IntegrityBenchmark integrityBenchmark = new IntegrityBenchmark(Main.getSampleCount());
+        for (IntegrityAlgorithm integrity : IntegrityBenchmark.createAvailable(Main.getIntegritySelection())) {
+            checkCancelled();
+            publish("\n=== Testing " + integrity.getName() + " ===");
+            AlgorithmEvaluator.IntegrityPerformance integrityPerformance = integrityBenchmark.measure(integrity, plaintext);
+            publish(integrity.getName() + " Throughput (MB/s): " + integrityPerformance.getThroughput());
+            publish(integrity.getName() + " Small Message Latency (us): " + integrityPerformance.getSmallMessageLatency());
+            evaluator.addIntegrityPerformance(integrityPerformance);
         }
 
         // Normalize scores and compare algorithms
@@ -271,8 +439,187 @@ public class EncryptionAnalysisGUI extends JFrame {
 
         // Display comparison and recommendations
         createComparisonTable();
-        createCharts();
+        for (String line : Main.formatAeadReport(performances)) {
+            publish(line);
+        }
+        for (String line : Main.formatTimelineReport(performances)) {
+            publish(line);
+        }
+        for (String line : Main.formatIntegrityReport(evaluator)) {
+            publish(line);
+        }
         createRecommendations(evaluator);
+        for (String line : Main.formatScoringReport(evaluator)) {
+            publish(line);
+        }
+        // The ranking tab re-ranks these scores whenever the weights change
+        SwingUtilities.invokeLater(() -> {
+            rankingEvaluator = evaluator;
+            refreshRanking();
+        });
+
+        // Append this run to the structured results history
+        try {
+            ResultsStore store = new ResultsStore();
+            publish("Run stored in " + store.recordRun(selectedFile, performances, Main.getRunConfig("gui", algorithmNames, selectedFile)));
+        } catch (IOException e) {
+            publish("Error storing run: " + e.getMessage());
+        }
+    }
+
+    // Classic analysis of one algorithm on the whole file held in memory
+    private AlgorithmEvaluator.AlgorithmPerformance analyzeInMemory(EncryptionAlgorithm algo, byte[] plaintext) throws Exception {
+        AlgorithmEvaluator.AlgorithmPerformance performance = new AlgorithmEvaluator.AlgorithmPerformance(algo.getName());
+
+        // Speed testing (repeated to collect samples for regression detection)
+        double[] timeSamples = new double[Main.getSampleCount()];
+        byte[] ciphertext = null;
+        for (int s = 0; s < timeSamples.length; s++) {
+            checkCancelled();
+            long startEnc = System.nanoTime();
+            ciphertext = encryptCancellable(algo, plaintext);
+            long endEnc = System.nanoTime();
+            timeSamples[s] = (endEnc - startEnc) / 1_000_000.0;
+        }
+        double encTimeMs = RunComparator.mean(timeSamples);
+        double fileSizeMB = plaintext.length / (1024.0 * 1024.0);
+        double throughput = fileSizeMB / (encTimeMs / 1000.0);
+        publish(algo.getName() + " Encryption Time (ms): " + encTimeMs);
+        publish(algo.getName() + " Throughput (MB/s): " + throughput);
+
+        // Display samples of original and encrypted data
+        displayFileSamples(plaintext, ciphertext, algo.getName());
+
+        // Store the speed metrics
+        performance.setEncryptionTime(encTimeMs);
+        performance.setThroughput(throughput);
+        performance.setEncryptionTimeSamples(timeSamples, fileSizeMB);
+
+        // Decryption speed, verifying the round trip byte for byte (outside the timed region)
+        double[] decryptSamples = new double[timeSamples.length];
+        boolean roundTripVerified = true;
+        for (int s = 0; s < decryptSamples.length; s++) {
+            checkCancelled();
+            long startDec = System.nanoTime();
+            byte[] decrypted = decryptCancellable(algo, ciphertext);
+            long endDec = System.nanoTime();
+            decryptSamples[s] = (endDec - startDec) / 1_000_000.0;
+            roundTripVerified &= Arrays.equals(plaintext, decrypted);
+        }
+        double decTimeMs = RunComparator.mean(decryptSamples);
+        double decThroughput = fileSizeMB / (decTimeMs / 1000.0);
+        publish(algo.getName() + " Decryption Time (ms): " + decTimeMs);
+        publish(algo.getName() + " Decryption Throughput (MB/s): " + decThroughput);
+        publish(algo.getName() + " Round Trip: " + (roundTripVerified ? "verified" : "FAILED"));
+        performance.setDecryptionTime(decTimeMs);
+        performance.setDecryptionThroughput(decThroughput);
+        performance.setDecryptionTimeSamples(decryptSamples);
+        performance.setRoundTripVerified(roundTripVerified);
+
+        // Avalanche Effect testing
+        byte[] originalCipher = ciphertext; // The timed ciphertext; no need to encrypt again
+        byte[] modifiedPlaintext = Arrays.copyOf(plaintext, plaintext.length);
+        modifiedPlaintext[0] ^= 0x01; // Flip one bit
+        byte[] modifiedCipher = encryptCancellable(algo, modifiedPlaintext);
+        int distance = hammingDistance(originalCipher, modifiedCipher);
+        publish(algo.getName() + " Avalanche Effect Hamming Distance: " + distance);
+
+        // Store avalanche effect
+        performance.setAvalancheEffect(distance);
+
+        // Randomness and Entropy testing
+        double entropy = Main.calculateEntropy(ciphertext);
+        publish(algo.getName() + " Ciphertext Shannon Entropy: " + entropy);
+
+        // Store entropy
+        performance.setEntropy(entropy);
+
+        // Display and store the key length
+        int keyLength = algo.getKeyLength();
+        publish(algo.getName() + " Key Length (bits): " + keyLength);
+        performance.setKeyLength(keyLength);
+
+        // Throughput over the file: one more pass, encrypting fixed-size chunks as separate messages
+        if (ThroughputTimeline.isEnabled()) {
+            checkCancelled();
+            performance.setTimeline(ThroughputTimeline.record(algo, plaintext, ThroughputTimeline.getConfiguredChunkSize()));
+        }
+        return performance;
+    }
+
+    // Single chunked pass over the file with bounded memory
+    private AlgorithmEvaluator.AlgorithmPerformance analyzeFused(FusedAnalysisPipeline pipeline, EncryptionAlgorithm algo) throws Exception {
+        FusedAnalysisPipeline.Result result = pipeline.analyze(algo, selectedFile);
+        AlgorithmEvaluator.AlgorithmPerformance performance = result.getPerformance();
+        publish(algo.getName() + " Encryption Time (ms): " + performance.getEncryptionTime());
+        publish(algo.getName() + " Throughput (MB/s): " + performance.getThroughput());
+        displayFileSamples(result.getPlaintextSample(), result.getCiphertextSample(), algo.getName());
+        publish(algo.getName() + " Decryption Time (ms): " + performance.getDecryptionTime());
+        publish(algo.getName() + " Decryption Throughput (MB/s): " + performance.getDecryptionThroughput());
+        publish(algo.getName() + " Round Trip: " + (performance.isRoundTripVerified() ? "verified" : "FAILED"));
+        publish(algo.getName() + " Avalanche Effect Hamming Distance (first chunk): " + performance.getAvalancheEffect());
+        publish(algo.getName() + " Ciphertext Shannon Entropy: " + performance.getEntropy());
+        publish(algo.getName() + " Key Length (bits): " + performance.getKeyLength());
+        return performance;
+    }
+
+    // Stratified sample of the file, extrapolated to the whole file
+    private AlgorithmEvaluator.AlgorithmPerformance analyzeSampled(SampledAnalysis sampler, EncryptionAlgorithm algo) throws Exception {
+        SampledAnalysis.Result result = sampler.analyze(algo, selectedFile);
+        AlgorithmEvaluator.AlgorithmPerformance performance = result.getPerformance();
+        publish(String.format("%s sampled %d blocks, %.2f MB of %.2f MB", algo.getName(), result.getBlocks(),
+                result.getSampledBytes() / (1024.0 * 1024.0), selectedFile.length() / (1024.0 * 1024.0)));
+        publish(algo.getName() + " Encryption Time (ms, estimated): " + performance.getEncryptionTime()
+                + " +/- " + performance.getEncryptionTimeError());
+        publish(algo.getName() + " Throughput (MB/s, estimated): " + performance.getThroughput());
+        displayFileSamples(result.getPlaintextSample(), result.getCiphertextSample(), algo.getName());
+        publish(algo.getName() + " Decryption Time (ms, estimated): " + performance.getDecryptionTime()
+                + " +/- " + performance.getDecryptionTimeError());
+        publish(algo.getName() + " Decryption Throughput (MB/s, estimated): " + performance.getDecryptionThroughput());
+        publish(algo.getName() + " Round Trip (sampled blocks): " + (performance.isRoundTripVerified() ? "verified" : "FAILED"));
+        publish(algo.getName() + " Avalanche Effect Hamming Distance (first block): " + performance.getAvalancheEffect());
+        publish(algo.getName() + " Ciphertext Shannon Entropy (sampled blocks): " + performance.getEntropy());
+        publish(algo.getName() + " Key Length (bits): " + performance.getKeyLength());
+        return performance;
+    }
+
+    private static void checkCancelled() throws InterruptedException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedException("Analysis cancelled");
+        }
+    }
+
+    // RSA encrypts 245-byte blocks one after another, which takes minutes on a large file. It is run
+    // here in slices of whole blocks with a cancellation check between them; the blocks are
+    // independent, so the output is the same as from one call
+    private static byte[] encryptCancellable(EncryptionAlgorithm algo, byte[] plaintext) throws Exception {
+        if (!(algo instanceof RSA)) {
+            return algo.encrypt(plaintext);
+        }
+        RSA rsa = (RSA) algo;
+        byte[] ciphertext = new byte[rsa.getMaxEncryptedLength(plaintext.length)];
+        int sliceBytes = RSA.INPUT_BLOCK_SIZE * RSA_SLICE_BLOCKS;
+        int position = 0;
+        for (int offset = 0; offset < plaintext.length; offset += sliceBytes) {
+            checkCancelled();
+            position += rsa.encrypt(plaintext, offset, Math.min(sliceBytes, plaintext.length - offset), ciphertext, position);
+        }
+        return position == ciphertext.length ? ciphertext : Arrays.copyOf(ciphertext, position);
+    }
+
+    private static byte[] decryptCancellable(EncryptionAlgorithm algo, byte[] ciphertext) throws Exception {
+        if (!(algo instanceof RSA)) {
+            return algo.decrypt(ciphertext);
+        }
+        RSA rsa = (RSA) algo;
+        byte[] plaintext = new byte[rsa.getMaxDecryptedLength(ciphertext.length)];
+        int sliceBytes = RSA.OUTPUT_BLOCK_SIZE * RSA_SLICE_BLOCKS;
+        int position = 0;
+        for (int offset = 0; offset < ciphertext.length; offset += sliceBytes) {
+            checkCancelled();
+            position += rsa.decrypt(ciphertext, offset, Math.min(sliceBytes, ciphertext.length - offset), plaintext, position);
+        }
+        return position == plaintext.length ? plaintext : Arrays.copyOf(plaintext, position);
     }
 
     private void displayFileSamples(byte[] original, byte[] encrypted, String algorithmName) {
@@ -327,54 +674,43 @@ public class EncryptionAnalysisGUI extends JFrame {
         return distance;
     }
 
-    // Utility: Calculate Shannon entropy of data
-    private double calculateEntropy(byte[] data) {
-        int[] freq = new int[256];
-        for (byte b : data) {
-            freq[b & 0xFF]++;
-        }
-        double entropy = 0.0;
-        int length = data.length;
-        for (int count : freq) {
-            if (count == 0) continue;
-            double p = (double) count / length;
-            entropy -= p * (Math.log(p) / Math.log(2));
-        }
-        return entropy;
-    }
-
     private void createComparisonTable() {
-        DefaultTableModel model = (DefaultTableModel) resultsTable.getModel();
+        // Replace the incrementally added rows with the final, score-ordered rows
+        List<AlgorithmEvaluator.AlgorithmPerformance> sortedPerformances = new ArrayList<>(performances);
+        SwingUtilities.invokeLater(() -> {
+            applyPendingResults();
+            DefaultTableModel model = (DefaultTableModel) resultsTable.getModel();
+            model.setRowCount(0);
+            for (AlgorithmEvaluator.AlgorithmPerformance perf : sortedPerformances) {
+                addTableRow(model, perf);
+            }
+        });
 
         publish("\n===================================================");
         publish("           ALGORITHM COMPARISON RESULTS           ");
         publish("===================================================");
 
         // Display comparison table header
-        publish(String.format("%-15s %-15s %-15s %-15s %-15s %-15s", 
-                "Algorithm", "Encrypt Time", "Throughput", "Avalanche", "Entropy", "Key Length"));
+        publish(String.format("%-15s %-15s %-15s %-15s %-15s %-15s %-15s %-15s %-15s", 
+                "Algorithm", "Encrypt Time", "Throughput", "Decrypt Time", "Decrypt Thru", "Round Trip", "Avalanche", "Entropy", "Key Length"));
         publish("-------------------------------------------------------------------------------------------------------------------");
 
-        // Display each algorithm's metrics
+        // Display each algorithm's metrics (estimated ones are marked with *)
         for (AlgorithmEvaluator.AlgorithmPerformance perf : performances) {
-            String row = String.format("%-15s %-15.2f %-15.2f %-15d %-15.4f %-15d", 
-                perf.getName(), 
+            String row = String.format("%-15s %-15.2f %-15.2f %-15.2f %-15.2f %-15s %-15d %-15.4f %-15d", 
+                perf.isEstimated() ? perf.getName() + "*" : perf.getName(), 
                 perf.getEncryptionTime(), 
                 perf.getThroughput(), 
+                perf.getDecryptionTime(), 
+                perf.getDecryptionThroughput(), 
+                perf.isRoundTripVerified() ? "verified" : "FAILED", 
                 perf.getAvalancheEffect(), 
                 perf.getEntropy(),
                 perf.getKeyLength());
             publish(row);
-
-            // Add to table
-            model.addRow(new Object[] {
-                perf.getName(), 
-                perf.getEncryptionTime(), 
-                perf.getThroughput(), 
-                perf.getAvalancheEffect(), 
-                perf.getEntropy(), 
-                perf.getKeyLength()
-            });
+        }
+        for (String line : Main.formatEstimateNotes(performances)) {
+            publish(line);
         }
 
         publish("\n===================================================");
@@ -382,15 +718,17 @@ public class EncryptionAnalysisGUI extends JFrame {
         publish("===================================================");
 
         // Display normalized scores
-        publish(String.format("%-15s %-15s %-15s %-15s %-15s %-15s %-15s", 
-                "Algorithm", "Speed", "Throughput", "Avalanche", "Entropy", "Key Strength", "Total Score"));
+        publish(String.format("%-15s %-15s %-15s %-15s %-15s %-15s %-15s %-15s %-15s", 
+                "Algorithm", "Speed", "Throughput", "Decrypt Speed", "Decrypt Thru", "Avalanche", "Entropy", "Key Strength", "Total Score"));
         publish("-----------------------------------------------------------------------------------------------------------------------");
 
         for (AlgorithmEvaluator.AlgorithmPerformance perf : performances) {
-            publish(String.format("%-15s %-15.2f %-15.2f %-15.2f %-15.2f %-15.2f %-15.2f", 
+            publish(String.format("%-15s %-15.2f %-15.2f %-15.2f %-15.2f %-15.2f %-15.2f %-15.2f %-15.2f", 
                 perf.getName(), 
                 perf.getScore("encryptionTime"), 
                 perf.getScore("throughput"), 
+                perf.getScore("decryptionTime"), 
+                perf.getScore("decryptionThroughput"), 
                 perf.getScore("avalancheEffect"),
                 perf.getScore("entropy"),
                 perf.getScore("keyLength"),
@@ -398,32 +736,93 @@ public class EncryptionAnalysisGUI extends JFrame {
         }
     }
 
+    private void addTableRow(DefaultTableModel model, AlgorithmEvaluator.AlgorithmPerformance perf) {
+        model.addRow(new Object[] {
+            perf.getName(), 
+            perf.getEncryptionTime(), 
+            perf.getThroughput(), 
+            perf.getDecryptionTime(), 
+            perf.getDecryptionThroughput(), 
+            perf.isRoundTripVerified() ? "verified" : "FAILED", 
+            perf.getAvalancheEffect(), 
+            perf.getEntropy(), 
+            perf.getKeyLength(),
+            perf.isEstimated() ? String.format("estimated (+/- %.1f%%)", 100 * perf.getRelativeError()) : "full file"
+        });
+    }
+
+    // Add every finished result to the table and charts in one batch (EDT only)
+    private void applyPendingResults() {
+        AlgorithmEvaluator.AlgorithmPerformance perf = pendingResults.poll();
+        if (perf == null) {
+            return;
+        }
+
+        // Suspend chart change events so each chart redraws once per batch
+        for (JFreeChart chart : charts) {
+            chart.setNotify(false);
+        }
+        DefaultTableModel model = (DefaultTableModel) resultsTable.getModel();
+        while (perf != null) {
+            addTableRow(model, perf);
+            encryptionTimeDataset.addValue(perf.getEncryptionTime(), "Encryption Time (ms)", perf.getName());
+            encryptionTimeDataset.addValue(perf.getDecryptionTime(), "Decryption Time (ms)", perf.getName());
+            throughputDataset.addValue(perf.getThroughput(), "Encryption (MB/s)", perf.getName());
+            throughputDataset.addValue(perf.getDecryptionThroughput(), "Decryption (MB/s)", perf.getName());
+            avalancheDataset.addValue(perf.getAvalancheEffect(), "Avalanche Effect", perf.getName());
+            entropyDataset.addValue(perf.getEntropy(), "Entropy", perf.getName());
+            addTimeline(perf);
+            perf = pendingResults.poll();
+        }
+        for (JFreeChart chart : charts) {
+            chart.setNotify(true);
+        }
+    }
+
+    // Plot the per-chunk throughput of one result, marking the chunks during which a GC ran
+    private void addTimeline(AlgorithmEvaluator.AlgorithmPerformance perf) {
+        ThroughputTimeline timeline = perf.getTimeline();
+        if (timeline == null || timeline.getChunks() == 0) {
+            return;
+        }
+        XYSeries series = new XYSeries(perf.getName(), false, true);
+        XYSeries gcEvents = new XYSeries(perf.getName() + " GC", false, true);
+        for (int i = 0; i < timeline.getChunks(); i++) {
+            series.add(timeline.getOffsetMB(i), timeline.getThroughput(i), false);
+            if (timeline.getGcCount(i) > 0) {
+                gcEvents.add(timeline.getOffsetMB(i), timeline.getThroughput(i), false);
+            }
+        }
+        timelineDataset.addSeries(series);
+        if (gcEvents.getItemCount() > 0) {
+            gcEventDataset.addSeries(gcEvents);
+        }
+    }
+
+    // Create the (initially empty) charts; they are filled as each algorithm finishes
     private void createCharts() {
         chartsPanel.removeAll();
+        charts.clear();
 
         // Create dataset for the encryption time chart
-        DefaultCategoryDataset encryptionTimeDataset = new DefaultCategoryDataset();
+        encryptionTimeDataset = new DefaultCategoryDataset();
 
         // Create dataset for the throughput chart
-        DefaultCategoryDataset throughputDataset = new DefaultCategoryDataset();
+        throughputDataset = new DefaultCategoryDataset();
 
         // Create dataset for the avalanche effect chart
-        DefaultCategoryDataset avalancheDataset = new DefaultCategoryDataset();
+        avalancheDataset = new DefaultCategoryDataset();
 
         // Create dataset for the entropy chart
-        DefaultCategoryDataset entropyDataset = new DefaultCategoryDataset();
+        entropyDataset = new DefaultCategoryDataset();
 
-        // Add data to datasets
-        for (AlgorithmEvaluator.AlgorithmPerformance perf : performances) {
-            encryptionTimeDataset.addValue(perf.getEncryptionTime(), "Encryption Time (ms)", perf.getName());
-            throughputDataset.addValue(perf.getThroughput(), "Throughput (MB/s)", perf.getName());
-            avalancheDataset.addValue(perf.getAvalancheEffect(), "Avalanche Effect", perf.getName());
-            entropyDataset.addValue(perf.getEntropy(), "Entropy", perf.getName());
-        }
+        // Create datasets for the throughput timeline: one line per algorithm, GC events as markers
+        timelineDataset = new XYSeriesCollection();
+        gcEventDataset = new XYSeriesCollection();
 
         // Create charts
         JFreeChart encryptionTimeChart = ChartFactory.createBarChart(
-                "Encryption Time", "Algorithm", "Time (ms)",
+                "Encryption / Decryption Time", "Algorithm", "Time (ms)",
                 encryptionTimeDataset, PlotOrientation.VERTICAL, true, true, false);
 
         JFreeChart throughputChart = ChartFactory.createBarChart(
@@ -438,27 +837,35 @@ public class EncryptionAnalysisGUI extends JFrame {
                 "Entropy", "Algorithm", "Shannon Entropy",
                 entropyDataset, PlotOrientation.VERTICAL, true, true, false);
 
-        // Updated chart panel size
-        ChartPanel encryptionTimeChartPanel = new ChartPanel(encryptionTimeChart);
-        encryptionTimeChartPanel.setPreferredSize(new Dimension(400, 300));
-        chartsPanel.add(encryptionTimeChartPanel);
-
-        ChartPanel throughputChartPanel = new ChartPanel(throughputChart);
-        throughputChartPanel.setPreferredSize(new Dimension(400, 300));
-        chartsPanel.add(throughputChartPanel);
-
-        ChartPanel avalancheChartPanel = new ChartPanel(avalancheChart);
-        avalancheChartPanel.setPreferredSize(new Dimension(400, 300));
-        chartsPanel.add(avalancheChartPanel);
-
-        ChartPanel entropyChartPanel = new ChartPanel(entropyChart);
-        entropyChartPanel.setPreferredSize(new Dimension(400, 300));
-        chartsPanel.add(entropyChartPanel);
+        JFreeChart timelineChart = ChartFactory.createXYLineChart(
+                "Throughput Timeline", "Offset (MB)", "MB/s",
+                timelineDataset, PlotOrientation.VERTICAL, true, true, false);
+        XYPlot timelinePlot = timelineChart.getXYPlot();
+        // Algorithms differ by orders of magnitude, so a log scale keeps every line readable
+        LogAxis timelineAxis = new LogAxis("MB/s (log)");
+        timelineAxis.setNumberFormatOverride(new java.text.DecimalFormat("#,##0.##"));
+        timelinePlot.setRangeAxis(timelineAxis);
+        timelinePlot.setDataset(1, gcEventDataset);
+        timelinePlot.setRenderer(1, new XYLineAndShapeRenderer(false, true));
+
+        addChart(encryptionTimeChart);
+        addChart(throughputChart);
+        addChart(avalancheChart);
+        addChart(entropyChart);
+        addChart(timelineChart);
 
         chartsPanel.revalidate();
         chartsPanel.repaint();
     }
 
+    private void addChart(JFreeChart chart) {
+        charts.add(chart);
+        // Updated chart panel size
+        ChartPanel chartPanel = new ChartPanel(chart);
+        chartPanel.setPreferredSize(new Dimension(400, 300));
+        chartsPanel.add(chartPanel);
+    }
+
     private void createRecommendations(AlgorithmEvaluator evaluator) {
         recommendationsPanel.removeAll();
 
@@ -491,8 +898,8 @@ public class EncryptionAnalysisGUI extends JFrame {
 
         addRecommendationSection(recPanel, "Best for Speed", 
                 bestSpeed.getName(), 
-                String.format("Encryption Time: %.2fms, Throughput: %.2fMB/s", 
-                        bestSpeed.getEncryptionTime(), bestSpeed.getThroughput()),
+                String.format("Encryption Time: %.2fms, Throughput: %.2fMB/s, Decryption Time: %.2fms", 
+                        bestSpeed.getEncryptionTime(), bestSpeed.getThroughput(), bestSpeed.getDecryptionTime()),
                 "Optimal choice when speed is the primary concern");
 
         addRecommendationSection(recPanel, "Best for Security", 
@@ -520,6 +927,46 @@ public class EncryptionAnalysisGUI extends JFrame {
         recommendationsPanel.repaint();
     }
 
+    // Move the weight sliders to the selected profile's weights
+    private void loadProfileWeights() {
+        WeightProfile profile = weightProfiles.get((String) profileComboBox.getSelectedItem());
+        updatingWeightSliders = true;
+        speedWeightSlider.setValue((int) Math.round(profile.getSpeedWeight() * 100));
+        securityWeightSlider.setValue((int) Math.round(profile.getSecurityWeight() * 100));
+        updatingWeightSliders = false;
+    }
+
+    // Re-rank the last analysis with the current weights (EDT only). Only the weighted sums are
+    // recomputed; the normalized scores are reused.
+    private void refreshRanking() {
+        if (rankingEvaluator == null || updatingWeightSliders) {
+            return;
+        }
+        WeightProfile profile = weightProfiles.get((String) profileComboBox.getSelectedItem())
+                .withCategoryWeights(speedWeightSlider.getValue() / 100.0, securityWeightSlider.getValue() / 100.0);
+        ScoringEngine engine = rankingEvaluator.getScoringEngine();
+        double[] totals = engine.totals(profile);
+        double[] speed = engine.speedScores(profile);
+        double[] security = engine.securityScores(profile);
+        Set<Integer> frontier = new HashSet<>();
+        for (int row : engine.paretoFrontier(profile)) {
+            frontier.add(row);
+        }
+        DefaultTableModel model = (DefaultTableModel) rankingTable.getModel();
+        model.setRowCount(0);
+        int rank = 1;
+        for (int row : engine.rank(profile)) {
+            model.addRow(new Object[] {
+                rank++,
+                engine.getLabel(row),
+                String.format("%.2f", speed[row]),
+                String.format("%.2f", security[row]),
+                String.format("%.2f", totals[row]),
+                frontier.contains(row) ? "yes" : ""
+            });
+        }
+    }
+
     private void addRecommendationSection(JPanel panel, String title, String algorithm, String metrics, String description) {
         JPanel section = new JPanel();
         section.setLayout(new BoxLayout(section, BoxLayout.Y_AXIS));
@@ -568,11 +1015,19 @@ public class EncryptionAnalysisGUI extends JFrame {
         }
     }
 
+    // Queue a log line; it is shown by the next timer tick rather than with one EDT event per line
     private void publish(String message) {
-        SwingUtilities.invokeLater(() -> {
-            logTextArea.append(message + "\n");
-            logBuilder.append(message).append("\n");
-        });
+        logQueue.put(message);
+    }
+
+    // Append all queued log lines in batches (EDT only)
+    private void drainLog() {
+        StringBuilder batch = new StringBuilder();
+        while (logQueue.drainTo(batch, LOG_BATCH_LINES) > 0) {
+            logTextArea.append(batch.toString());
+            logBuilder.append(batch);
+            batch.setLength(0);
+        }
     }
 
     public static void main(String[] args) {
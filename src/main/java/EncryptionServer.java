@@ -0,0 +1,289 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Local encryption server: a single selector thread handles all socket I/O on loopback,
+// while a worker pool runs the EncryptionAlgorithm. Every message on a connection is framed as
+// a 4-byte big-endian length followed by the payload; the reply uses the same framing.
+//
+// For algorithms that implement BufferedEncryption, message bodies are read into arrays borrowed
+// from a BufferArena and the reply is encrypted straight into another borrowed array, so a steady
+// stream of messages reuses the same buffers instead of allocating two arrays per message.
+public class EncryptionServer implements Closeable {
+
+    public static final int MAX_MESSAGE_BYTES = 64 * 1024 * 1024;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private final EncryptionAlgorithm algorithm;
+    private final BufferedEncryption buffered; // null = plain byte[] API
+    private final BufferArena arena;
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final ExecutorService workers;
+    // Work handed back to the selector thread (e.g. a finished reply ready to be written)
+    private final Queue<Runnable> selectorTasks = new ConcurrentLinkedQueue<>();
+    private Thread selectorThread;
+    private volatile boolean running;
+
+    private final AtomicLong connectionsAccepted = new AtomicLong();
+    private final AtomicLong messagesProcessed = new AtomicLong();
+    private final AtomicLong bytesReceived = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+
+    public EncryptionServer(EncryptionAlgorithm algorithm, int port, int workerThreads) throws IOException {
+        this(algorithm, port, workerThreads, BufferArena.getShared());
+    }
+
+    public EncryptionServer(EncryptionAlgorithm algorithm, int port, int workerThreads, BufferArena arena) throws IOException {
+        this.algorithm = algorithm;
+        this.buffered = algorithm instanceof BufferedEncryption ? (BufferedEncryption) algorithm : null;
+        this.arena = arena;
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        this.workers = Executors.newFixedThreadPool(Math.max(1, workerThreads));
+    }
+
+    public InetSocketAddress getAddress() throws IOException {
+        return (InetSocketAddress) serverChannel.getLocalAddress();
+    }
+
+    public EncryptionAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    public BufferArena getArena() {
+        return arena;
+    }
+
+    public void start() {
+        running = true;
+        selectorThread = new Thread(this::runSelectorLoop, "encryption-server-selector");
+        selectorThread.setDaemon(true);
+        selectorThread.start();
+    }
+
+    // Per-connection state, only touched by the selector thread (except the encrypted reply)
+    private static class Connection {
+        final SocketChannel channel;
+        final ByteBuffer header = ByteBuffer.allocate(4);
+        ByteBuffer body;
+        ByteBuffer reply;
+        // Arena arrays backing body / reply, returned once the message is done
+        byte[] bodyBuffer;
+        byte[] replyBuffer;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    private void runSelectorLoop() {
+        while (running) {
+            try {
+                selector.select();
+                Runnable task;
+                while ((task = selectorTasks.poll()) != null) {
+                    task.run();
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) continue;
+                    try {
+                        if (key.isAcceptable()) {
+                            accept();
+                        } else if (key.isReadable()) {
+                            read(key);
+                        } else if (key.isWritable()) {
+                            write(key);
+                        }
+                    } catch (IOException e) {
+                        closeConnection(key);
+                    }
+                }
+            } catch (IOException e) {
+                if (running) {
+                    System.err.println("Encryption server error: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            channel.register(selector, SelectionKey.OP_READ, new Connection(channel));
+            connectionsAccepted.incrementAndGet();
+        }
+    }
+
+    private void read(SelectionKey key) throws IOException {
+        Connection connection = (Connection) key.attachment();
+        if (connection.body == null) {
+            if (connection.channel.read(connection.header) < 0) {
+                closeConnection(key);
+                return;
+            }
+            if (connection.header.hasRemaining()) return;
+            int length = connection.header.getInt(0);
+            if (length < 0 || length > MAX_MESSAGE_BYTES) {
+                throw new IOException("Invalid message length: " + length);
+            }
+            if (buffered != null) {
+                connection.bodyBuffer = arena.acquire(length);
+                connection.body = ByteBuffer.wrap(connection.bodyBuffer, 0, length);
+            } else {
+                connection.body = ByteBuffer.allocate(length);
+            }
+        }
+
+        while (connection.body.hasRemaining()) {
+            int read = connection.channel.read(connection.body);
+            if (read < 0) {
+                closeConnection(key);
+                return;
+            }
+            if (read == 0) return;
+            bytesReceived.addAndGet(read);
+        }
+
+        // Full message received: stop reading until the reply has been written, then encrypt off the selector thread
+        byte[] plaintext = connection.body.array();
+        int length = connection.body.limit();
+        connection.body = null;
+        connection.bodyBuffer = null; // now owned by the worker
+        connection.header.clear();
+        key.interestOps(0);
+        workers.execute(() -> encrypt(key, connection, plaintext, length));
+    }
+
+    private void encrypt(SelectionKey key, Connection connection, byte[] plaintext, int length) {
+        byte[] replyBuffer = null;
+        try {
+            ByteBuffer reply;
+            if (buffered != null) {
+                // Encrypt straight into the reply array, after room for the length prefix
+                replyBuffer = arena.acquire(4 + buffered.getMaxEncryptedLength(length));
+                int ciphertextLength = buffered.encrypt(plaintext, 0, length, replyBuffer, 4);
+                reply = ByteBuffer.wrap(replyBuffer, 0, 4 + ciphertextLength);
+                reply.putInt(0, ciphertextLength);
+            } else {
+                byte[] ciphertext = algorithm.encrypt(plaintext);
+                reply = ByteBuffer.allocate(4 + ciphertext.length);
+                reply.putInt(ciphertext.length).put(ciphertext).flip();
+            }
+            messagesProcessed.incrementAndGet();
+            byte[] pooledReply = replyBuffer;
+            selectorTasks.add(() -> {
+                if (!key.isValid()) {
+                    arena.release(pooledReply);
+                    return;
+                }
+                connection.reply = reply;
+                connection.replyBuffer = pooledReply;
+                key.interestOps(SelectionKey.OP_WRITE);
+            });
+        } catch (Exception e) {
+            errors.incrementAndGet();
+            arena.release(replyBuffer);
+            selectorTasks.add(() -> closeConnection(key));
+        } finally {
+            if (buffered != null) {
+                arena.release(plaintext);
+            }
+        }
+        selector.wakeup();
+    }
+
+    private void write(SelectionKey key) throws IOException {
+        Connection connection = (Connection) key.attachment();
+        int written = connection.channel.write(connection.reply);
+        bytesSent.addAndGet(written);
+        if (!connection.reply.hasRemaining()) {
+            connection.reply = null;
+            arena.release(connection.replyBuffer);
+            connection.replyBuffer = null;
+            key.interestOps(SelectionKey.OP_READ);
+        }
+    }
+
+    private void closeConnection(SelectionKey key) {
+        key.cancel();
+        // Return the buffers of a partly read message or an unsent reply
+        if (key.attachment() instanceof Connection) {
+            Connection connection = (Connection) key.attachment();
+            arena.release(connection.bodyBuffer);
+            arena.release(connection.replyBuffer);
+            connection.bodyBuffer = null;
+            connection.replyBuffer = null;
+        }
+        try {
+            key.channel().close();
+        } catch (IOException ignored) {
+            // Already closed by the peer
+        }
+    }
+
+    public long getConnectionsAccepted() {
+        return connectionsAccepted.get();
+    }
+
+    public long getMessagesProcessed() {
+        return messagesProcessed.get();
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived.get();
+    }
+
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    public long getErrors() {
+        return errors.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        selector.wakeup();
+        if (selectorThread != null) {
+            try {
+                selectorThread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        workers.shutdown();
+        try {
+            workers.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (SelectionKey key : selector.keys()) {
+            key.channel().close();
+        }
+        selector.close();
+    }
+}
@@ -0,0 +1,135 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Measures each algorithm in a fresh child JVM, so JIT profiles, heap state and loaded classes left
+// behind by earlier algorithms cannot skew later ones (in one JVM the order of the list changes the
+// results). The child runs Main's "fork-child" command with the given heap/GC flags, streams its log
+// to the parent and writes its result as one JSON line to a temporary file, which the parent reads
+// back into an AlgorithmPerformance.
+public class ForkedRunner {
+
+    public static final String CHILD_COMMAND = "fork-child";
+    // Settings that shape the measurement and are passed on to the children
+    private static final String[] FORWARDED_PROPERTY_PREFIXES = {"analysis.", "cipher.", "pbe.", "arena."};
+    private static final long DEFAULT_TIMEOUT_SECONDS = 600;
+
+    private final List<String> jvmArgs;
+    private final long timeoutSeconds;
+
+    public ForkedRunner(List<String> jvmArgs, long timeoutSeconds) {
+        this.jvmArgs = new ArrayList<>(jvmArgs);
+        this.timeoutSeconds = timeoutSeconds;
+    }
+
+    // Runner configured with -Danalysis.fork.jvmArgs and -Danalysis.fork.timeout (seconds per algorithm)
+    public static ForkedRunner fromSystemProperties() {
+        return new ForkedRunner(getConfiguredJvmArgs(), Long.getLong("analysis.fork.timeout", DEFAULT_TIMEOUT_SECONDS));
+    }
+
+    // Whether analyses fork a JVM per algorithm, e.g. -Danalysis.fork=true (default: false)
+    public static boolean isEnabled() {
+        return Boolean.getBoolean("analysis.fork");
+    }
+
+    // Child JVM flags, e.g. -Danalysis.fork.jvmArgs="-Xms1g -Xmx1g -XX:+UseParallelGC" (default: none)
+    public static List<String> getConfiguredJvmArgs() {
+        String args = System.getProperty("analysis.fork.jvmArgs", "").trim();
+        return args.isEmpty() ? new ArrayList<>() : Arrays.asList(args.split("\\s+"));
+    }
+
+    public List<String> getJvmArgs() {
+        return jvmArgs;
+    }
+
+    // Command line of the child JVM for one algorithm
+    List<String> command(String algorithm, File file, Path resultFile) {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArgs);
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith("analysis.fork")) continue;
+            for (String prefix : FORWARDED_PROPERTY_PREFIXES) {
+                if (name.startsWith(prefix)) {
+                    command.add("-D" + name + "=" + System.getProperty(name));
+                    break;
+                }
+            }
+        }
+        // A child with other heap flags could resolve "auto" differently from the run config, so it
+        // gets the pipeline this JVM picked
+        if (System.getProperty("analysis.pipeline") == null) {
+            command.add("-Danalysis.pipeline=" + FusedAnalysisPipeline.resolve(file));
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(Main.class.getName());
+        command.add(CHILD_COMMAND);
+        command.add(algorithm);
+        command.add(file.getAbsolutePath());
+        command.add(resultFile.toString());
+        return command;
+    }
+
+    // Measure one algorithm in a child JVM; every line the child prints is passed to log
+    public AlgorithmEvaluator.AlgorithmPerformance run(String algorithm, File file, Consumer<String> log) throws Exception {
+        Path resultFile = Files.createTempFile("fork-" + algorithm.replaceAll("[^A-Za-z0-9._-]", "_") + "-", ".json");
+        try {
+            long start = System.nanoTime();
+            Process process = new ProcessBuilder(command(algorithm, file, resultFile)).redirectErrorStream(true).start();
+            // Pump the child's output on its own thread so the timeout below still applies when it goes quiet
+            Thread pump = new Thread(() -> {
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        log.accept(line);
+                    }
+                } catch (IOException e) {
+                    // The child was killed; its exit status is reported below
+                }
+            }, "fork-output-" + algorithm);
+            pump.setDaemon(true);
+            pump.start();
+            boolean finished;
+            try {
+                finished = process.waitFor(timeoutSeconds, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                // Cancelled: do not leave the child running
+                process.destroyForcibly();
+                throw e;
+            }
+            if (!finished) {
+                process.destroyForcibly().waitFor();
+                throw new IOException("Forked run of " + algorithm + " timed out after " + timeoutSeconds + " s");
+            }
+            pump.join();
+            if (process.exitValue() != 0) {
+                throw new IOException("Forked run of " + algorithm + " failed with exit code " + process.exitValue());
+            }
+            List<String> lines = Files.readAllLines(resultFile, StandardCharsets.UTF_8);
+            if (lines.isEmpty()) {
+                throw new IOException("Forked run of " + algorithm + " wrote no result");
+            }
+            log.accept(String.format("%s measured in a forked JVM (%.0f ms including JVM startup)", algorithm,
+                    (System.nanoTime() - start) / 1_000_000.0));
+            return new ResultsStore.StoredResult(ResultsStore.parseJson(lines.get(0))).toPerformance();
+        } finally {
+            Files.deleteIfExists(resultFile);
+        }
+    }
+
+    // Child side: write the measured performance as one JSON line
+    public static void writeResult(AlgorithmEvaluator.AlgorithmPerformance performance, Path resultFile) throws IOException {
+        Files.write(resultFile, Arrays.asList(ResultsStore.toJson(ResultsStore.resultValues(performance))), StandardCharsets.UTF_8);
+    }
+}
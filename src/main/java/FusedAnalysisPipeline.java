@@ -0,0 +1,237 @@
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+// Single-pass analysis: the file is read in fixed-size chunks and every chunk is encrypted once.
+// In the same pass the pipeline times encryption and decryption, verifies the round trip,
+// accumulates the ciphertext byte histogram for entropy, captures the data samples and measures
+// the avalanche effect on the first chunk. Only a few chunk-sized buffers are live at any time,
+// whatever the file size.
+//
+// Each chunk is encrypted as a separate message (like EncryptedContainer does), so algorithms that
+// add a nonce/IV or padding per message are charged for it once per chunk. The avalanche distance
+// covers the first chunk only, since flipping one input bit cannot change later, separately
+// encrypted chunks.
+//
+// The chunk buffers come from a BufferArena and are returned after the pass, so analysing several
+// algorithms (or files) one after another reuses the same few buffers. The encryption throughput of
+// every chunk is kept as a ThroughputTimeline.
+public class FusedAnalysisPipeline {
+
+    public static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+    public static final int SAMPLE_BYTES = 50;
+
+    // Outcome of one pass over the file
+    public static class Result {
+        private final AlgorithmEvaluator.AlgorithmPerformance performance;
+        private final byte[] plaintextSample;
+        private final byte[] ciphertextSample;
+        private final int chunks;
+
+        public Result(AlgorithmEvaluator.AlgorithmPerformance performance, byte[] plaintextSample,
+                      byte[] ciphertextSample, int chunks) {
+            this.performance = performance;
+            this.plaintextSample = plaintextSample;
+            this.ciphertextSample = ciphertextSample;
+            this.chunks = chunks;
+        }
+
+        public AlgorithmEvaluator.AlgorithmPerformance getPerformance() {
+            return performance;
+        }
+
+        public byte[] getPlaintextSample() {
+            return plaintextSample;
+        }
+
+        public byte[] getCiphertextSample() {
+            return ciphertextSample;
+        }
+
+        public int getChunks() {
+            return chunks;
+        }
+    }
+
+    private final int chunkSize;
+    private final int samples;
+    private final BufferArena arena;
+
+    public FusedAnalysisPipeline(int chunkSize, int samples) {
+        this(chunkSize, samples, BufferArena.getShared());
+    }
+
+    public FusedAnalysisPipeline(int chunkSize, int samples, BufferArena arena) {
+        this.chunkSize = chunkSize;
+        this.samples = Math.max(1, samples);
+        this.arena = arena;
+    }
+
+    // Chunk size from -Danalysis.chunkSize (default 1 MB)
+    public static int getConfiguredChunkSize() {
+        return Integer.getInteger("analysis.chunkSize", DEFAULT_CHUNK_SIZE);
+    }
+
+    // Whether to use the fused pipeline: -Danalysis.pipeline=fused forces it, =classic disables it,
+    // otherwise it is used when the classic analysis (about five copies of the file) would not fit
+    public static boolean isEnabled(File file) {
+        String pipeline = System.getProperty("analysis.pipeline", "auto");
+        if (pipeline.equalsIgnoreCase("fused")) {
+            return true;
+        }
+        if (pipeline.equalsIgnoreCase("classic")) {
+            return false;
+        }
+        return file.length() * 5 > Runtime.getRuntime().maxMemory() / 2;
+    }
+
+    // The pipeline isEnabled picks for this file in this JVM, "fused" or "classic"
+    public static String resolve(File file) {
+        return isEnabled(file) ? "fused" : "classic";
+    }
+
+    // The first chunk of a file, for the benchmarks that need an in-memory payload
+    public static byte[] readHead(File file, int length) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            byte[] head = new byte[(int) Math.min(length, file.length())];
+            int filled = readFully(in, head, head.length);
+            return filled == head.length ? head : Arrays.copyOf(head, filled);
+        }
+    }
+
+    public Result analyze(EncryptionAlgorithm algorithm, File file) throws Exception {
+        long fileSize = file.length();
+        long[] histogram = new long[256];
+        long ciphertextBytes = 0;
+        long encryptNanos = 0;
+        long decryptNanos = 0;
+        boolean roundTripVerified = true;
+        int avalancheDistance = 0;
+        byte[] plaintextSample = new byte[0];
+        byte[] ciphertextSample = new byte[0];
+
+        // Chunk times are grouped into contiguous sample groups, each scaled to the whole file
+        int chunkCount = (int) Math.max(1, (fileSize + chunkSize - 1) / chunkSize);
+        int groups = Math.min(samples, chunkCount);
+        long[] groupEncryptNanos = new long[groups];
+        long[] groupDecryptNanos = new long[groups];
+        long[] groupBytes = new long[groups];
+        ThroughputTimeline timeline = new ThroughputTimeline(chunkSize);
+
+        // Algorithms that can encrypt into a supplied array read, encrypt and decrypt every chunk in
+        // buffers borrowed from the arena. The others get an exact-length chunk array for the
+        // byte[] API (arena buffers are rounded up to their size class).
+        int bufferLength = (int) Math.min(chunkSize, Math.max(1, fileSize));
+        BufferedEncryption buffered = algorithm instanceof BufferedEncryption ? (BufferedEncryption) algorithm : null;
+        byte[] buffer = null;
+        byte[] ciphertextBuffer = null;
+        byte[] decryptedBuffer = null;
+        try (InputStream in = new FileInputStream(file)) {
+            if (buffered != null) {
+                buffer = arena.acquire(bufferLength);
+                ciphertextBuffer = arena.acquire(buffered.getMaxEncryptedLength(bufferLength));
+                decryptedBuffer = arena.acquire(buffered.getMaxDecryptedLength(buffered.getMaxEncryptedLength(bufferLength)));
+            } else {
+                buffer = new byte[bufferLength];
+            }
+            int index = 0;
+            int read;
+            while ((read = readFully(in, buffer, bufferLength)) > 0) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedException("Analysis cancelled");
+                }
+                byte[] ciphertext;
+                int ciphertextLength;
+                timeline.startChunk();
+                long start = System.nanoTime();
+                long encrypted;
+                long decryptedAt;
+                if (buffered != null) {
+                    ciphertext = ciphertextBuffer;
+                    ciphertextLength = buffered.encrypt(buffer, 0, read, ciphertext, 0);
+                    encrypted = System.nanoTime();
+                    int decryptedLength = buffered.decrypt(ciphertext, 0, ciphertextLength, decryptedBuffer, 0);
+                    decryptedAt = System.nanoTime();
+                    roundTripVerified &= decryptedLength == read && Arrays.equals(buffer, 0, read, decryptedBuffer, 0, read);
+                } else {
+                    // The byte[] API needs an array of exactly the chunk length
+                    byte[] chunk = read == buffer.length ? buffer : Arrays.copyOf(buffer, read);
+                    ciphertext = algorithm.encrypt(chunk);
+                    encrypted = System.nanoTime();
+                    ciphertextLength = ciphertext.length;
+                    byte[] decrypted = algorithm.decrypt(ciphertext);
+                    decryptedAt = System.nanoTime();
+                    roundTripVerified &= Arrays.equals(chunk, decrypted);
+                }
+
+                timeline.endChunk(read, encrypted - start);
+
+                int group = (int) ((long) index * groups / chunkCount);
+                groupEncryptNanos[group] += encrypted - start;
+                groupDecryptNanos[group] += decryptedAt - encrypted;
+                groupBytes[group] += read;
+                encryptNanos += encrypted - start;
+                decryptNanos += decryptedAt - encrypted;
+
+                for (int i = 0; i < ciphertextLength; i++) {
+                    histogram[ciphertext[i] & 0xFF]++;
+                }
+                ciphertextBytes += ciphertextLength;
+
+                if (index == 0) {
+                    plaintextSample = Arrays.copyOf(buffer, Math.min(SAMPLE_BYTES, read));
+                    ciphertextSample = Arrays.copyOf(ciphertext, Math.min(SAMPLE_BYTES, ciphertextLength));
+                    // Avalanche: flip the first bit and encrypt the chunk again
+                    byte[] modified = Arrays.copyOf(buffer, read);
+                    modified[0] ^= 0x01;
+                    avalancheDistance = Main.hammingDistance(Arrays.copyOf(ciphertext, ciphertextLength), algorithm.encrypt(modified));
+                }
+                index++;
+            }
+        } finally {
+            if (buffered != null) {
+                arena.release(buffer);
+            }
+            arena.release(ciphertextBuffer);
+            arena.release(decryptedBuffer);
+        }
+
+        double fileSizeMB = fileSize / (1024.0 * 1024.0);
+        double encTimeMs = encryptNanos / 1_000_000.0;
+        double decTimeMs = decryptNanos / 1_000_000.0;
+        double[] encSamples = new double[groups];
+        double[] decSamples = new double[groups];
+        for (int g = 0; g < groups; g++) {
+            double scale = groupBytes[g] == 0 ? 0 : (double) fileSize / groupBytes[g];
+            encSamples[g] = groupEncryptNanos[g] * scale / 1_000_000.0;
+            decSamples[g] = groupDecryptNanos[g] * scale / 1_000_000.0;
+        }
+
+        AlgorithmEvaluator.AlgorithmPerformance performance = new AlgorithmEvaluator.AlgorithmPerformance(algorithm.getName());
+        performance.setEncryptionTime(encTimeMs);
+        performance.setThroughput(fileSizeMB / (encTimeMs / 1000.0));
+        performance.setEncryptionTimeSamples(encSamples, fileSizeMB);
+        performance.setDecryptionTime(decTimeMs);
+        performance.setDecryptionThroughput(fileSizeMB / (decTimeMs / 1000.0));
+        performance.setDecryptionTimeSamples(decSamples);
+        performance.setRoundTripVerified(roundTripVerified);
+        performance.setAvalancheEffect(avalancheDistance);
+        performance.setEntropy(Main.entropy(histogram, ciphertextBytes));
+        performance.setKeyLength(algorithm.getKeyLength());
+        performance.setTimeline(timeline);
+        return new Result(performance, plaintextSample, ciphertextSample, chunkCount);
+    }
+
+    // Fill buffer[0, length) as far as the stream allows; returns the number of bytes read
+    private static int readFully(InputStream in, byte[] buffer, int length) throws IOException {
+        int filled = 0;
+        while (filled < length) {
+            int read = in.read(buffer, filled, length - filled);
+            if (read < 0) break;
+            filled += read;
+        }
+        return filled;
+    }
+}
@@ -0,0 +1,139 @@
+import javax.crypto.KeyGenerator;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Incremental encryption: data is split with a content-defined chunker and every chunk is looked
+// up in a local index of chunk hash -> ciphertext. Only chunks not seen before go through the
+// EncryptionAlgorithm, so re-encrypting a slightly changed file reuses most of the work.
+//
+// Chunk hashes are keyed (HMAC-SHA256) so the index does not reveal plaintext hashes. The index is
+// tied to this encryptor's algorithm instance, whose key only lives in memory.
+public class IncrementalEncryptor {
+
+    private final EncryptionAlgorithm algorithm;
+    private final ContentDefinedChunker chunker;
+    private final SecretKey hashKey;
+    private final Map<String, byte[]> chunkIndex = new HashMap<>();
+
+    // Outcome of one incremental encryption pass
+    public static class Result {
+        private final List<String> manifest;
+        private final int reusedChunks;
+        private final long bytes;
+        private final long reusedBytes;
+        private final long elapsedNanos;
+
+        public Result(List<String> manifest, int reusedChunks, long bytes, long reusedBytes, long elapsedNanos) {
+            this.manifest = manifest;
+            this.reusedChunks = reusedChunks;
+            this.bytes = bytes;
+            this.reusedBytes = reusedBytes;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        // Ordered chunk hashes; together with the index they make up the encrypted file
+        public List<String> getManifest() {
+            return manifest;
+        }
+
+        public int getChunks() {
+            return manifest.size();
+        }
+
+        public int getReusedChunks() {
+            return reusedChunks;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getReusedBytes() {
+            return reusedBytes;
+        }
+
+        public double getReusedFraction() {
+            return bytes == 0 ? 0.0 : (double) reusedBytes / bytes;
+        }
+
+        public double getElapsedMs() {
+            return elapsedNanos / 1_000_000.0;
+        }
+    }
+
+    public IncrementalEncryptor(EncryptionAlgorithm algorithm) throws Exception {
+        this(algorithm, new ContentDefinedChunker());
+    }
+
+    public IncrementalEncryptor(EncryptionAlgorithm algorithm, ContentDefinedChunker chunker) throws Exception {
+        this.algorithm = algorithm;
+        this.chunker = chunker;
+        this.hashKey = KeyGenerator.getInstance("HmacSHA256").generateKey();
+    }
+
+    // Encrypt data, reusing indexed ciphertext for chunks that have been encrypted before
+    public Result encrypt(byte[] data) throws Exception {
+        long start = System.nanoTime();
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(hashKey);
+        Base64.Encoder encoder = Base64.getEncoder();
+
+        List<String> manifest = new ArrayList<>();
+        int reusedChunks = 0;
+        long reusedBytes = 0;
+        int chunkStart = 0;
+        for (int chunkEnd : chunker.split(data)) {
+            mac.update(data, chunkStart, chunkEnd - chunkStart);
+            String hash = encoder.encodeToString(mac.doFinal());
+            if (chunkIndex.containsKey(hash)) {
+                reusedChunks++;
+                reusedBytes += chunkEnd - chunkStart;
+            } else {
+                byte[] chunk = new byte[chunkEnd - chunkStart];
+                System.arraycopy(data, chunkStart, chunk, 0, chunk.length);
+                chunkIndex.put(hash, algorithm.encrypt(chunk));
+            }
+            manifest.add(hash);
+            chunkStart = chunkEnd;
+        }
+        return new Result(manifest, reusedChunks, data.length, reusedBytes, System.nanoTime() - start);
+    }
+
+    // Reassemble and decrypt the data described by a manifest
+    public byte[] decrypt(List<String> manifest) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        for (String hash : manifest) {
+            byte[] ciphertext = chunkIndex.get(hash);
+            if (ciphertext == null) {
+                throw new IllegalStateException("Chunk missing from index: " + hash);
+            }
+            output.write(algorithm.decrypt(ciphertext));
+        }
+        return output.toByteArray();
+    }
+
+    // Drop every indexed chunk that the given manifests no longer reference
+    public void retainOnly(List<List<String>> manifests) {
+        Set<String> live = new HashSet<>();
+        for (List<String> manifest : manifests) {
+            live.addAll(manifest);
+        }
+        chunkIndex.keySet().retainAll(live);
+    }
+
+    public int getIndexSize() {
+        return chunkIndex.size();
+    }
+
+    public EncryptionAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+}
@@ -0,0 +1,10 @@
+// Sibling of EncryptionAlgorithm for integrity protection: message digests and MACs
+public interface IntegrityAlgorithm {
+    // Compute the digest or tag of the whole message in one call
+    byte[] compute(byte[] data) throws Exception;
+    // Compute the same value, feeding the data in chunks of chunkSize bytes as a stream would
+    byte[] computeStreaming(byte[] data, int chunkSize) throws Exception;
+    int getOutputLength();
+    int getKeyLength(); // 0 for unkeyed digests
+    String getName();
+}
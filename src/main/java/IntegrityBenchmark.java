@@ -0,0 +1,99 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+// Creates the integrity algorithms (digests and MACs) and measures their streaming throughput
+// and small-message latency.
+public class IntegrityBenchmark {
+
+    public static final String[] DIGESTS = {"SHA-256", "SHA-512", "SHA3-256"};
+    public static final String[] MACS = {"HmacSHA256", "Poly1305"};
+    public static final int STREAM_CHUNK_SIZE = 64 * 1024;
+    public static final int SMALL_MESSAGE_SIZE = 64;
+    public static final int SMALL_MESSAGE_ITERATIONS = 20_000;
+    private static final long WARM_UP_BYTES = 32L * 1024 * 1024;
+
+    private final int samples;
+
+    public IntegrityBenchmark(int samples) {
+        this.samples = Math.max(1, samples);
+    }
+
+    // Algorithms named in a comma-separated selection ("all" or empty selects every one, "none" selects
+    // nothing). Algorithms no installed provider offers, such as Poly1305 without the bundled
+    // provider, are left out.
+    public static List<IntegrityAlgorithm> createAvailable(String selection) {
+        List<IntegrityAlgorithm> algorithms = new ArrayList<>();
+        if (selection != null && selection.trim().equalsIgnoreCase("none")) {
+            return algorithms;
+        }
+        ProviderMatrix.installBundledProvider();
+        boolean all = selection == null || selection.trim().isEmpty() || selection.trim().equalsIgnoreCase("all");
+        List<String> wanted = new ArrayList<>();
+        if (!all) {
+            for (String name : selection.split(",")) {
+                wanted.add(name.trim().toLowerCase(Locale.ROOT));
+            }
+        }
+        for (String name : DIGESTS) {
+            if (all || wanted.contains(name.toLowerCase(Locale.ROOT))) {
+                try {
+                    algorithms.add(new DigestIntegrity(name));
+                } catch (Exception e) {
+                    // Not offered by any provider
+                }
+            }
+        }
+        for (String name : MACS) {
+            if (all || wanted.contains(name.toLowerCase(Locale.ROOT))) {
+                try {
+                    algorithms.add(new MacIntegrity(name));
+                } catch (Exception e) {
+                    // Not offered by any provider
+                }
+            }
+        }
+        return algorithms;
+    }
+
+    // Measure one algorithm: streaming throughput over data, latency of small messages
+    public AlgorithmEvaluator.IntegrityPerformance measure(IntegrityAlgorithm algorithm, byte[] data) throws Exception {
+        // Check that streaming and one-shot results agree
+        byte[] expected = algorithm.compute(data);
+        if (!Arrays.equals(expected, algorithm.computeStreaming(data, STREAM_CHUNK_SIZE))) {
+            throw new IllegalStateException(algorithm.getName() + ": streaming result differs from one-shot result");
+        }
+        // Warm-up: digests are fast enough that a single pass over a small file leaves them interpreted
+        for (long warmed = 0; warmed < WARM_UP_BYTES; warmed += Math.max(data.length, STREAM_CHUNK_SIZE)) {
+            algorithm.computeStreaming(data, STREAM_CHUNK_SIZE);
+        }
+
+        double[] times = new double[samples];
+        for (int i = 0; i < samples; i++) {
+            long start = System.nanoTime();
+            algorithm.computeStreaming(data, STREAM_CHUNK_SIZE);
+            times[i] = (System.nanoTime() - start) / 1_000_000.0;
+        }
+        double timeMs = RunComparator.mean(times);
+        double throughput = data.length / (1024.0 * 1024.0) / (timeMs / 1000.0);
+
+        byte[] message = new byte[SMALL_MESSAGE_SIZE];
+        System.arraycopy(data, 0, message, 0, Math.min(data.length, message.length));
+        for (int i = 0; i < SMALL_MESSAGE_ITERATIONS / 10; i++) {
+            algorithm.compute(message);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < SMALL_MESSAGE_ITERATIONS; i++) {
+            algorithm.compute(message);
+        }
+        double latencyUs = (System.nanoTime() - start) / 1000.0 / SMALL_MESSAGE_ITERATIONS;
+
+        AlgorithmEvaluator.IntegrityPerformance performance = new AlgorithmEvaluator.IntegrityPerformance(algorithm.getName());
+        performance.setThroughput(throughput);
+        performance.setSmallMessageLatency(latencyUs);
+        performance.setOutputLength(algorithm.getOutputLength());
+        performance.setKeyLength(algorithm.getKeyLength());
+        return performance;
+    }
+}
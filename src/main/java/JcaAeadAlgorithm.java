@@ -0,0 +1,127 @@
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import java.security.SecureRandom;
+import java.security.spec.AlgorithmParameterSpec;
+
+// Base of the JCA-backed AEAD algorithms (AES-GCM, ChaCha20-Poly1305): a random 96-bit nonce per
+// message, prepended to ciphertext + 128-bit tag. Subclasses supply the transformation, the key and
+// how the nonce is passed to the cipher.
+public abstract class JcaAeadAlgorithm extends JcaAlgorithm implements AeadAlgorithm, BufferedEncryption {
+    private final SecretKey key;
+    private final SecureRandom random = new SecureRandom();
+    private static final int NONCE_LENGTH = 12;
+    private static final int TAG_LENGTH = 16;
+
+    protected JcaAeadAlgorithm(String transformation, String keyAlgorithm, int keyBits) throws Exception {
+        super(transformation);
+        KeyGenerator keyGen = KeyGenerator.getInstance(keyAlgorithm);
+        keyGen.init(keyBits);
+        this.key = keyGen.generateKey();
+    }
+
+    // Cipher parameters carrying the nonce (and tag length where the cipher takes one)
+    protected abstract AlgorithmParameterSpec parameters(byte[] nonce);
+
+    @Override
+    public byte[] encrypt(byte[] plaintext) throws Exception {
+        return encrypt(plaintext, null);
+    }
+
+    @Override
+    public byte[] decrypt(byte[] ciphertext) throws Exception {
+        return decrypt(ciphertext, null);
+    }
+
+    @Override
+    public byte[] encrypt(byte[] plaintext, byte[] aad) throws Exception {
+        byte[] nonce = generateNonce();
+        Cipher cipher = startEncryption(nonce, aad);
+        // Write the nonce and the ciphertext + tag straight into the output array
+        byte[] output = new byte[NONCE_LENGTH + cipher.getOutputSize(plaintext.length)];
+        System.arraycopy(nonce, 0, output, 0, NONCE_LENGTH);
+        cipher.doFinal(plaintext, 0, plaintext.length, output, NONCE_LENGTH);
+        return output;
+    }
+
+    @Override
+    public byte[] decrypt(byte[] ciphertext, byte[] aad) throws Exception {
+        if (ciphertext.length < NONCE_LENGTH + TAG_LENGTH) {
+            throw new IllegalArgumentException("Ciphertext too short");
+        }
+        byte[] nonce = new byte[NONCE_LENGTH];
+        System.arraycopy(ciphertext, 0, nonce, 0, NONCE_LENGTH);
+        Cipher cipher = startDecryption(nonce, aad);
+        return cipher.doFinal(ciphertext, NONCE_LENGTH, ciphertext.length - NONCE_LENGTH);
+    }
+
+    @Override
+    public int getMaxEncryptedLength(int plaintextLength) {
+        return NONCE_LENGTH + plaintextLength + TAG_LENGTH;
+    }
+
+    @Override
+    public int encrypt(byte[] input, int offset, int length, byte[] output, int outputOffset) throws Exception {
+        byte[] nonce = generateNonce();
+        Cipher cipher = startEncryption(nonce, null);
+        System.arraycopy(nonce, 0, output, outputOffset, NONCE_LENGTH);
+        return NONCE_LENGTH + cipher.doFinal(input, offset, length, output, outputOffset + NONCE_LENGTH);
+    }
+
+    @Override
+    public int getMaxDecryptedLength(int ciphertextLength) {
+        return Math.max(0, ciphertextLength - NONCE_LENGTH - TAG_LENGTH);
+    }
+
+    @Override
+    public int decrypt(byte[] input, int offset, int length, byte[] output, int outputOffset) throws Exception {
+        if (length < NONCE_LENGTH + TAG_LENGTH) {
+            throw new IllegalArgumentException("Ciphertext too short");
+        }
+        byte[] nonce = new byte[NONCE_LENGTH];
+        System.arraycopy(input, offset, nonce, 0, NONCE_LENGTH);
+        Cipher cipher = startDecryption(nonce, null);
+        return cipher.doFinal(input, offset + NONCE_LENGTH, length - NONCE_LENGTH, output, outputOffset);
+    }
+
+    @Override
+    public Cipher startEncryption(byte[] nonce, byte[] aad) throws Exception {
+        return start(Cipher.ENCRYPT_MODE, nonce, aad);
+    }
+
+    @Override
+    public Cipher startDecryption(byte[] nonce, byte[] aad) throws Exception {
+        return start(Cipher.DECRYPT_MODE, nonce, aad);
+    }
+
+    private Cipher start(int mode, byte[] nonce, byte[] aad) throws Exception {
+        Cipher cipher = newCipher();
+        cipher.init(mode, key, parameters(nonce));
+        if (aad != null) {
+            cipher.updateAAD(aad);
+        }
+        return cipher;
+    }
+
+    @Override
+    public byte[] generateNonce() {
+        byte[] nonce = new byte[NONCE_LENGTH];
+        random.nextBytes(nonce);
+        return nonce;
+    }
+
+    @Override
+    public int getNonceLength() {
+        return NONCE_LENGTH;
+    }
+
+    @Override
+    public int getTagLength() {
+        return TAG_LENGTH;
+    }
+
+    @Override
+    public int getKeyLength() {
+        return key.getEncoded().length * 8;
+    }
+}
@@ -0,0 +1,32 @@
+import javax.crypto.Cipher;
+import java.security.Provider;
+
+// Base of the algorithms built on a JCA Cipher: holds the transformation and the provider selected
+// through ProviderSelectable, and creates a Cipher from them for each operation
+public abstract class JcaAlgorithm implements ProviderSelectable {
+    private final String transformation;
+    private Provider provider; // null = default provider
+
+    protected JcaAlgorithm(String transformation) {
+        this.transformation = transformation;
+    }
+
+    protected Cipher newCipher() throws Exception {
+        return provider == null ? Cipher.getInstance(transformation) : Cipher.getInstance(transformation, provider);
+    }
+
+    @Override
+    public String getTransformation() {
+        return transformation;
+    }
+
+    @Override
+    public void setProvider(Provider provider) {
+        this.provider = provider;
+    }
+
+    @Override
+    public Provider getProvider() {
+        return provider;
+    }
+}
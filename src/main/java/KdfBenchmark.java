@@ -0,0 +1,155 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Key-derivation benchmark: PBKDF2 latency per iteration count, and derivations per second when
+// several threads derive keys at once (as a server checking many passwords would).
+public class KdfBenchmark {
+
+    public static final String[] KDFS = {"PBKDF2WithHmacSHA256", "PBKDF2WithHmacSHA512"};
+    public static final int[] DEFAULT_ITERATIONS = {1_000, 10_000, 100_000, 300_000};
+    // Each measurement runs for roughly this long, so high iteration counts do not take forever
+    private static final long TARGET_MS = 500;
+    private static final long MIN_WARM_UP_MS = 1_000;
+    private static final long MAX_WARM_UP_MS = 10_000;
+
+    // One (KDF, iterations) measurement
+    public static class Result {
+        private final String kdf;
+        private final int iterations;
+        private final double latencyMs;
+        private final double singleThreadRate;
+        private final int threads;
+        private final double parallelRate;
+
+        public Result(String kdf, int iterations, double latencyMs, double singleThreadRate, int threads, double parallelRate) {
+            this.kdf = kdf;
+            this.iterations = iterations;
+            this.latencyMs = latencyMs;
+            this.singleThreadRate = singleThreadRate;
+            this.threads = threads;
+            this.parallelRate = parallelRate;
+        }
+
+        public String getKdf() {
+            return kdf;
+        }
+
+        public int getIterations() {
+            return iterations;
+        }
+
+        public double getLatencyMs() {
+            return latencyMs;
+        }
+
+        // Derivations per second on one thread
+        public double getSingleThreadRate() {
+            return singleThreadRate;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        // Derivations per second with all threads deriving concurrently
+        public double getParallelRate() {
+            return parallelRate;
+        }
+    }
+
+    private final int threads;
+    private final char[] password = "secretPassword".toCharArray();
+    private final byte[] salt = new byte[16];
+
+    public KdfBenchmark(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    public List<Result> sweep(String[] kdfs, int[] iterationCounts) throws Exception {
+        List<Result> results = new ArrayList<>();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            for (String kdf : kdfs) {
+                warmUp(kdf);
+                for (int iterations : iterationCounts) {
+                    results.add(measure(pool, kdf, iterations));
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return results;
+    }
+
+    // The HMAC takes a while to be fully compiled; without this the first (smallest) iteration
+    // counts measure the interpreter. Derive batches for at least a second and until two
+    // consecutive batches agree within 10%.
+    private void warmUp(String kdf) throws Exception {
+        long minimum = System.nanoTime() + MIN_WARM_UP_MS * 1_000_000L;
+        long deadline = System.nanoTime() + MAX_WARM_UP_MS * 1_000_000L;
+        double previous = Double.MAX_VALUE;
+        while (System.nanoTime() < deadline) {
+            long start = System.nanoTime();
+            for (int i = 0; i < 10; i++) {
+                PBEEncryption.derive(kdf, password, salt, 1_000);
+            }
+            double batch = System.nanoTime() - start;
+            if (System.nanoTime() > minimum && Math.abs(batch - previous) < 0.1 * previous) {
+                return;
+            }
+            previous = batch;
+        }
+    }
+
+    private Result measure(ExecutorService pool, String kdf, int iterations) throws Exception {
+        // Short warm-up for this iteration count; the last derivation sizes the runs below
+        double warmUpMs = 0;
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            PBEEncryption.derive(kdf, password, salt, iterations);
+            warmUpMs = (System.nanoTime() - start) / 1_000_000.0;
+        }
+        int count = (int) Math.max(2, Math.min(1000, TARGET_MS / Math.max(warmUpMs, 0.001)));
+
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            PBEEncryption.derive(kdf, password, salt, iterations);
+        }
+        double singleMs = (System.nanoTime() - start) / 1_000_000.0;
+        double latencyMs = singleMs / count;
+
+        // Every thread derives count keys; the rate is over the wall time of the whole batch
+        int perThread = Math.max(1, count / threads);
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            tasks.add(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    PBEEncryption.derive(kdf, password, salt, iterations);
+                }
+                return null;
+            });
+        }
+        start = System.nanoTime();
+        for (Future<Void> future : pool.invokeAll(tasks)) {
+            future.get();
+        }
+        double parallelMs = (System.nanoTime() - start) / 1_000_000.0;
+
+        return new Result(kdf, iterations, latencyMs, 1000.0 / latencyMs, threads,
+                perThread * threads / (parallelMs / 1000.0));
+    }
+
+    public static void printResults(List<Result> results) {
+        Main.writeResult("\n=== PBKDF2 key derivation ===");
+        Main.writeResultf("%-22s %-12s %-14s %-16s %-16s %-10s%n", "KDF", "Iterations", "Latency (ms)",
+                "Derivations/s", "Parallel/s", "Threads");
+        for (Result result : results) {
+            Main.writeResultf("%-22s %-12d %-14.3f %-16.1f %-16.1f %-10d%n", result.getKdf(), result.getIterations(),
+                    result.getLatencyMs(), result.getSingleThreadRate(), result.getParallelRate(), result.getThreads());
+        }
+    }
+}
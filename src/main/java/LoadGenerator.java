@@ -0,0 +1,203 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Load-generator client for EncryptionServer: opens a number of concurrent connections,
+// sends length-prefixed payloads and measures round-trip latency and throughput.
+public class LoadGenerator {
+
+    // Aggregated results of a load test
+    public static class Report {
+        private final int connections;
+        private final long requests;
+        private final long errors;
+        private final long bytesSent;
+        private final long bytesReceived;
+        private final long elapsedNanos;
+        private final long[] sortedLatenciesNanos;
+
+        public Report(int connections, long errors, long bytesSent, long bytesReceived,
+                      long elapsedNanos, long[] latenciesNanos) {
+            this.connections = connections;
+            this.requests = latenciesNanos.length;
+            this.errors = errors;
+            this.bytesSent = bytesSent;
+            this.bytesReceived = bytesReceived;
+            this.elapsedNanos = elapsedNanos;
+            this.sortedLatenciesNanos = latenciesNanos.clone();
+            Arrays.sort(sortedLatenciesNanos);
+        }
+
+        public int getConnections() {
+            return connections;
+        }
+
+        public long getRequests() {
+            return requests;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        public double getElapsedSeconds() {
+            return elapsedNanos / 1e9;
+        }
+
+        public double getRequestsPerSecond() {
+            return requests / getElapsedSeconds();
+        }
+
+        // Plaintext bytes encrypted per second, in MB/s
+        public double getThroughput() {
+            return bytesSent / (1024.0 * 1024.0) / getElapsedSeconds();
+        }
+
+        public long getBytesReceived() {
+            return bytesReceived;
+        }
+
+        // Latency percentile in milliseconds (p between 0 and 100)
+        public double getLatencyPercentile(double p) {
+            if (sortedLatenciesNanos.length == 0) return Double.NaN;
+            int index = (int) Math.ceil(p / 100.0 * sortedLatenciesNanos.length) - 1;
+            index = Math.max(0, Math.min(sortedLatenciesNanos.length - 1, index));
+            return sortedLatenciesNanos[index] / 1_000_000.0;
+        }
+
+        public double getMeanLatency() {
+            if (sortedLatenciesNanos.length == 0) return Double.NaN;
+            double sum = 0;
+            for (long latency : sortedLatenciesNanos) {
+                sum += latency;
+            }
+            return sum / sortedLatenciesNanos.length / 1_000_000.0;
+        }
+    }
+
+    // Per-connection results collected by each client thread
+    private static class ConnectionResult {
+        long[] latencies;
+        int completed;
+        long errors;
+        long bytesSent;
+        long bytesReceived;
+    }
+
+    public static Report run(InetSocketAddress address, int connections, int requestsPerConnection,
+                             int payloadBytes) throws Exception {
+        ExecutorService clients = Executors.newFixedThreadPool(connections);
+        List<ConnectionResult> results = new ArrayList<>();
+        long elapsed;
+        try {
+            CountDownLatch startSignal = new CountDownLatch(1);
+            List<Future<ConnectionResult>> futures = new ArrayList<>();
+            for (int c = 0; c < connections; c++) {
+                final long seed = c;
+                futures.add(clients.submit(() -> runConnection(address, requestsPerConnection, payloadBytes, seed, startSignal)));
+            }
+
+            long start = System.nanoTime();
+            startSignal.countDown();
+            for (Future<ConnectionResult> future : futures) {
+                results.add(future.get());
+            }
+            elapsed = System.nanoTime() - start;
+        } finally {
+            // Also when a client failed: the pool's threads are not daemons and would keep the JVM alive
+            clients.shutdownNow();
+        }
+
+        int totalRequests = 0;
+        for (ConnectionResult result : results) {
+            totalRequests += result.completed;
+        }
+        long[] latencies = new long[totalRequests];
+        int offset = 0;
+        long errors = 0;
+        long bytesSent = 0;
+        long bytesReceived = 0;
+        for (ConnectionResult result : results) {
+            System.arraycopy(result.latencies, 0, latencies, offset, result.completed);
+            offset += result.completed;
+            errors += result.errors;
+            bytesSent += result.bytesSent;
+            bytesReceived += result.bytesReceived;
+        }
+        return new Report(connections, errors, bytesSent, bytesReceived, elapsed, latencies);
+    }
+
+    private static ConnectionResult runConnection(InetSocketAddress address, int requests, int payloadBytes,
+                                                  long seed, CountDownLatch startSignal) throws InterruptedException {
+        ConnectionResult result = new ConnectionResult();
+        result.latencies = new long[requests];
+
+        byte[] payload = new byte[payloadBytes];
+        new Random(seed).nextBytes(payload);
+        ByteBuffer request = ByteBuffer.allocate(4 + payloadBytes);
+        request.putInt(payloadBytes).put(payload);
+        ByteBuffer header = ByteBuffer.allocate(4);
+        ByteBuffer reply = ByteBuffer.allocate(0);
+
+        startSignal.await();
+        try (SocketChannel channel = SocketChannel.open(address)) {
+            channel.socket().setTcpNoDelay(true);
+            for (int i = 0; i < requests; i++) {
+                long start = System.nanoTime();
+                request.rewind();
+                while (request.hasRemaining()) {
+                    channel.write(request);
+                }
+                header.clear();
+                readFully(channel, header);
+                int length = header.getInt(0);
+                if (reply.capacity() < length) {
+                    reply = ByteBuffer.allocate(length);
+                }
+                reply.clear().limit(length);
+                readFully(channel, reply);
+                result.latencies[result.completed++] = System.nanoTime() - start;
+                result.bytesSent += payloadBytes;
+                result.bytesReceived += length;
+            }
+        } catch (IOException e) {
+            result.errors++;
+        }
+        return result;
+    }
+
+    private static void readFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Server closed the connection");
+            }
+        }
+    }
+
+    // Print a load test report through Main.writeResult
+    public static void printReport(String algorithmName, int payloadBytes, Report report) {
+        Main.writeResult("\n=== Load test: " + algorithmName + " ===");
+        Main.writeResult("Connections: " + report.getConnections());
+        Main.writeResult("Payload size (bytes): " + payloadBytes);
+        Main.writeResult("Requests completed: " + report.getRequests());
+        Main.writeResult("Failed connections: " + report.getErrors());
+        Main.writeResultf("Requests per second: %.1f%n", report.getRequestsPerSecond());
+        Main.writeResultf("Throughput (MB/s): %.2f%n", report.getThroughput());
+        Main.writeResultf("Latency (ms): mean %.3f, p50 %.3f, p95 %.3f, p99 %.3f, max %.3f%n",
+                report.getMeanLatency(),
+                report.getLatencyPercentile(50),
+                report.getLatencyPercentile(95),
+                report.getLatencyPercentile(99),
+                report.getLatencyPercentile(100));
+    }
+}
@@ -0,0 +1,90 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Bounded, lock-free log queue: any number of producer threads, a single consumer
+// (the Swing timer on the EDT) that drains lines in batches. Producers never wait: when the
+// consumer falls behind, lines are dropped and counted, and the consumer reports the count.
+public class LogQueue {
+
+    public static final int DEFAULT_CAPACITY = 16384;
+
+    private final AtomicReferenceArray<String> slots;
+    private final int capacity;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong(); // Next slot claimed by a producer
+    private volatile long head; // Next slot read by the consumer
+    private final AtomicLong dropped = new AtomicLong(); // Lines lost to a full queue, not yet reported
+
+    public LogQueue() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public LogQueue(int requestedCapacity) {
+        // Round up to a power of two so the slot index is a simple mask
+        int size = Integer.highestOneBit(Math.max(2, requestedCapacity - 1)) << 1;
+        this.capacity = size;
+        this.mask = size - 1;
+        this.slots = new AtomicReferenceArray<>(size);
+    }
+
+    // Try to enqueue a line; returns false if the queue is full
+    public boolean offer(String message) {
+        long claimed;
+        do {
+            claimed = tail.get();
+            if (claimed - head >= capacity) {
+                return false;
+            }
+        } while (!tail.compareAndSet(claimed, claimed + 1));
+        slots.lazySet((int) (claimed & mask), message);
+        return true;
+    }
+
+    // Enqueue a line, or drop and count it when the queue is full. Never blocks: the consumer runs on
+    // the EDT, which also publishes, and a waiting analysis thread would be paced by UI repaints.
+    public void put(String message) {
+        if (!offer(message)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    // Drain up to maxLines lines into the builder, one line per entry. Once the queue is empty, lines
+    // dropped since the last report are reported as one more line. Single consumer only.
+    public int drainTo(StringBuilder batch, int maxLines) {
+        long position = head;
+        int drained = 0;
+        while (drained < maxLines) {
+            int index = (int) (position & mask);
+            String message = slots.get(index);
+            if (message == null) {
+                break; // Empty, or a producer has claimed the slot but not yet published
+            }
+            slots.lazySet(index, null);
+            batch.append(message).append('\n');
+            position++;
+            drained++;
+        }
+        head = position;
+        if (drained < maxLines) {
+            long lost = dropped.getAndSet(0);
+            if (lost > 0) {
+                batch.append("[").append(lost).append(" log lines dropped: log queue full]\n");
+                drained++;
+            }
+        }
+        return drained;
+    }
+
+    // Lines dropped and not yet reported by drainTo
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public boolean isEmpty() {
+        return tail.get() == head;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,51 @@
+import javax.crypto.KeyGenerator;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+
+// Keyed message authentication code (HMAC-SHA256, Poly1305, ...)
+public class MacIntegrity implements IntegrityAlgorithm {
+    private final String algorithm;
+    private final SecretKey key;
+    private final int outputLength;
+
+    public MacIntegrity(String algorithm) throws Exception {
+        this.algorithm = algorithm;
+        this.key = KeyGenerator.getInstance(algorithm).generateKey();
+        this.outputLength = newMac().getMacLength();
+    }
+
+    private Mac newMac() throws Exception {
+        Mac mac = Mac.getInstance(algorithm);
+        mac.init(key);
+        return mac;
+    }
+
+    @Override
+    public byte[] compute(byte[] data) throws Exception {
+        return newMac().doFinal(data);
+    }
+
+    @Override
+    public byte[] computeStreaming(byte[] data, int chunkSize) throws Exception {
+        Mac mac = newMac();
+        for (int offset = 0; offset < data.length; offset += chunkSize) {
+            mac.update(data, offset, Math.min(chunkSize, data.length - offset));
+        }
+        return mac.doFinal();
+    }
+
+    @Override
+    public int getOutputLength() {
+        return outputLength * 8;
+    }
+
+    @Override
+    public int getKeyLength() {
+        return key.getEncoded().length * 8;
+    }
+
+    @Override
+    public String getName() {
+        return algorithm;
+    }
+}
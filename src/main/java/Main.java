@@ -1,22 +1,70 @@
 import java.nio.file.Files;
 import java.io.File;
 import java.nio.file.Paths;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
 import java.lang.management.ManagementFactory;
+import javax.crypto.Cipher;
 import com.sun.management.OperatingSystemMXBean;
+import java.io.ByteArrayOutputStream;
 import java.io.PrintWriter;
+import java.io.BufferedWriter;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
+import java.io.OutputStreamWriter;
 import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public class Main {
 
-    // Save output to both console and file
+    // Save output to both console and file (both buffered; flushed between measurements)
     private static PrintWriter resultWriter;
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+    private static final PrintWriter consoleWriter = new PrintWriter(new BufferedWriter(
+            new OutputStreamWriter(new FileOutputStream(FileDescriptor.out)), OUTPUT_BUFFER_SIZE));
+    
+    // Number of timed encryptions per algorithm; several samples are needed to detect regressions
+    public static final int DEFAULT_SAMPLE_COUNT = 3;
+    
+    public static int getSampleCount() {
+        return Math.max(1, Integer.getInteger("analysis.samples", DEFAULT_SAMPLE_COUNT));
+    }
+    
+    // Algorithms to analyze, e.g. -Danalysis.algorithms=AES,ChaCha20 (default: all registered)
+    public static List<String> getSelectedAlgorithms() {
+        return AlgorithmRegistry.getDefault().select(System.getProperty("analysis.algorithms"));
+    }
+    
+    // Digests/MACs measured next to the ciphers, e.g. -Danalysis.integrity=SHA-256,HmacSHA256 or none (default: all available)
+    public static String getIntegritySelection() {
+        return System.getProperty("analysis.integrity", "all");
+    }
+    
+    // Configuration recorded alongside every stored run; the pipeline is the one used for the file
+    // (fused and classic results are not comparable), not the analysis.pipeline setting
+    public static Map<String, String> getRunConfig(String mode, List<String> algorithms, File file) {
+        Map<String, String> config = new LinkedHashMap<>();
+        config.put("mode", mode);
+        config.put("samples", String.valueOf(getSampleCount()));
+        config.put("algorithms", String.join(",", algorithms));
+        config.put("integrity", getIntegritySelection());
+        config.put("pipeline", FusedAnalysisPipeline.resolve(file));
+        config.put("budgetMs", String.valueOf(SampledAnalysis.getConfiguredBudgetMs()));
+        if (ForkedRunner.isEnabled()) {
+            config.put("fork.jvmArgs", String.join(" ", ForkedRunner.getConfiguredJvmArgs()));
+        }
+        return config;
+    }
     
     // Initialize the result file writer
     public static void initResultFile() {
@@ -26,20 +74,20 @@ public class Main {
             String timestamp = sdf.format(new Date());
             
             // Create or overwrite the results.txt file
-            resultWriter = new PrintWriter(new FileWriter("results.txt"));
+            resultWriter = new PrintWriter(new BufferedWriter(new FileWriter("results.txt"), OUTPUT_BUFFER_SIZE));
             resultWriter.println("Encryption Algorithm Analysis Results");
             resultWriter.println("Generated: " + new Date());
             resultWriter.println("=====================================\n");
             
             // Inform the user
-            System.out.println("Results will be saved to results.txt");
+            writeConsole("Results will be saved to results.txt");
         } catch (IOException e) {
             System.err.println("Error creating results file: " + e.getMessage());
         }
     }    // Write to both console and file
     public static void writeResult(String text) {
         // Simple output without colors
-        System.out.println(text);
+        consoleWriter.println(text);
         
         // Write to file
         if (resultWriter != null) {
@@ -51,7 +99,7 @@ public class Main {
         String formattedText = String.format(format, args);
         
         // Simple output without colors
-        System.out.print(formattedText);
+        consoleWriter.print(formattedText);
         
         // Write to file
         if (resultWriter != null) {
@@ -59,12 +107,27 @@ public class Main {
         }
     }
     
+    // Write to the console only (not to results.txt), through the same buffered writer so the
+    // lines stay in order with the results
+    public static void writeConsole(String text) {
+        consoleWriter.println(text);
+    }
+    
+    // Flush buffered output; call between measurements, never inside a timed region
+    public static void flushResults() {
+        consoleWriter.flush();
+        if (resultWriter != null) {
+            resultWriter.flush();
+        }
+    }
+    
     // Close the result file
     public static void closeResultFile() {
         if (resultWriter != null) {
             resultWriter.close();
-            System.out.println("\nResults have been saved to results.txt");
+            writeConsole("\nResults have been saved to results.txt");
         }
+        consoleWriter.flush();
     }
 
     // Measure encryption speed (time and throughput)
@@ -118,15 +181,19 @@ public class Main {
     
     // Utility: Calculate Shannon entropy of data
     public static double calculateEntropy(byte[] data) {
-        int[] freq = new int[256];
+        long[] histogram = new long[256];
         for (byte b : data) {
-            freq[b & 0xFF]++;
+            histogram[b & 0xFF]++;
         }
+        return entropy(histogram, data.length);
+    }
+    
+    // Shannon entropy (bits per byte) of a byte histogram; shared by every analysis that counts bytes
+    public static double entropy(long[] histogram, long total) {
         double entropy = 0.0;
-        int length = data.length;
-        for (int count : freq) {
+        for (long count : histogram) {
             if (count == 0) continue;
-            double p = (double) count / length;
+            double p = (double) count / total;
             entropy -= p * (Math.log(p) / Math.log(2));
         }
         return entropy;
@@ -188,35 +255,43 @@ public class Main {
         writeResult("===================================================");
         
         // Display comparison table header
-        writeResultf("%-15s %-15s %-15s %-15s %-15s %-15s%n", 
-                        "Algorithm", "Encrypt Time", "Throughput", "Avalanche", "Entropy", "Key Length");
+        writeResultf("%-15s %-15s %-15s %-15s %-15s %-15s %-15s %-15s %-15s%n", 
+                        "Algorithm", "Encrypt Time", "Throughput", "Decrypt Time", "Decrypt Thru", "Round Trip", "Avalanche", "Entropy", "Key Length");
         writeResult("-------------------------------------------------------------------------------------------------------------------");
         
-        // Display each algorithm's metrics
+        // Display each algorithm's metrics (estimated ones are marked with *)
         for (AlgorithmEvaluator.AlgorithmPerformance perf : performances) {
-            writeResultf("%-15s %-15.2f %-15.2f %-15d %-15.4f %-15d%n", 
-                            perf.getName(), 
+            writeResultf("%-15s %-15.2f %-15.2f %-15.2f %-15.2f %-15s %-15d %-15.4f %-15d%n", 
+                            perf.isEstimated() ? perf.getName() + "*" : perf.getName(), 
                             perf.getEncryptionTime(), 
                             perf.getThroughput(), 
+                            perf.getDecryptionTime(), 
+                            perf.getDecryptionThroughput(), 
+                            perf.isRoundTripVerified() ? "verified" : "FAILED", 
                             perf.getAvalancheEffect(), 
                             perf.getEntropy(),
                             perf.getKeyLength());
         }
+        for (String line : formatEstimateNotes(performances)) {
+            writeResult(line);
+        }
         
         writeResult("\n===================================================");
         writeResult("              ALGORITHM SCORES (0-10)             ");
         writeResult("===================================================");
         
         // Display normalized scores
-        writeResultf("%-15s %-15s %-15s %-15s %-15s %-15s %-15s%n", 
-                        "Algorithm", "Speed", "Throughput", "Avalanche", "Entropy", "Key Strength", "Total Score");
+        writeResultf("%-15s %-15s %-15s %-15s %-15s %-15s %-15s %-15s %-15s%n", 
+                        "Algorithm", "Speed", "Throughput", "Decrypt Speed", "Decrypt Thru", "Avalanche", "Entropy", "Key Strength", "Total Score");
         writeResult("-----------------------------------------------------------------------------------------------------------------------");
         
         for (AlgorithmEvaluator.AlgorithmPerformance perf : performances) {
-            writeResultf("%-15s %-15.2f %-15.2f %-15.2f %-15.2f %-15.2f %-15.2f%n", 
+            writeResultf("%-15s %-15.2f %-15.2f %-15.2f %-15.2f %-15.2f %-15.2f %-15.2f %-15.2f%n", 
                             perf.getName(), 
                             perf.getScore("encryptionTime"), 
                             perf.getScore("throughput"), 
+                            perf.getScore("decryptionTime"), 
+                            perf.getScore("decryptionThroughput"), 
                             perf.getScore("avalancheEffect"),
                             perf.getScore("entropy"),
                             perf.getScore("keyLength"),
@@ -245,7 +320,141 @@ public class Main {
         writeResult("Best for Small Files: " + bestSmallFiles.getName());
         writeResult("Best for Large Files: " + bestLargeFiles.getName());
     }
+    
+    // Footnotes for the results extrapolated from a sample of the file
+    public static List<String> formatEstimateNotes(List<AlgorithmEvaluator.AlgorithmPerformance> performances) {
+        List<String> lines = new ArrayList<>();
+        for (AlgorithmEvaluator.AlgorithmPerformance perf : performances) {
+            if (!perf.isEstimated()) continue;
+            lines.add(String.format("* %s estimated from a stratified sample (time budget): encrypt %.1f ms +/- %.1f%%, decrypt %.1f ms +/- %.1f%% (95%%)",
+                    perf.getName(), perf.getEncryptionTime(), 100 * perf.getRelativeError(), perf.getDecryptionTime(),
+                    perf.getDecryptionTime() > 0 ? 100 * perf.getDecryptionTimeError() / perf.getDecryptionTime() : 0.0));
+        }
+        return lines;
+    }
+    
+    // Stability of the per-chunk encryption throughput of every result that recorded a timeline
+    public static List<String> formatTimelineReport(List<AlgorithmEvaluator.AlgorithmPerformance> performances) {
+        List<String> lines = new ArrayList<>();
+        for (AlgorithmEvaluator.AlgorithmPerformance perf : performances) {
+            ThroughputTimeline timeline = perf.getTimeline();
+            if (timeline == null || timeline.getChunks() == 0) continue;
+            if (lines.isEmpty()) {
+                lines.add("\n===================================================");
+                lines.add("         THROUGHPUT STABILITY (per chunk)         ");
+                lines.add("===================================================");
+                lines.add(String.format("%-18s %-8s %-10s %-10s %-10s %-8s %-6s %-12s %-12s %-12s", "Algorithm", "Chunks",
+                        "Median", "P5", "Min", "CV", "Dips", "GC Chunks", "GC Median", "Slowest At"));
+                lines.add("---------------------------------------------------------------------------------------------------------------");
+            }
+            ThroughputTimeline.Stability stability = timeline.getStability();
+            lines.add(String.format("%-18s %-8d %-10.2f %-10.2f %-10.2f %-8s %-6d %-12s %-12s %-12s", perf.getName(),
+                    stability.getChunks(), stability.getMedian(), stability.getP5(), stability.getMin(),
+                    String.format("%.1f%%", 100 * stability.getCoefficientOfVariation()), stability.getDips(),
+                    String.format("%d (%.0f ms)", stability.getGcChunks(), stability.getGcMillis()),
+                    Double.isNaN(stability.getMedianWithGc()) ? "-" : String.format("%.2f", stability.getMedianWithGc()),
+                    String.format("%.2f MB", stability.getSlowestOffsetMB())));
+        }
+        if (!lines.isEmpty()) {
+            lines.add("Throughput in MB/s per chunk; dips are chunks below half the median, GC chunks those hit by a collection");
+        }
+        return lines;
+    }
+    
+    // Encrypt, decrypt and tag verification cost of the AEAD algorithms
+    public static List<String> formatAeadReport(List<AlgorithmEvaluator.AlgorithmPerformance> performances) {
+        List<String> lines = new ArrayList<>();
+        for (AlgorithmEvaluator.AlgorithmPerformance perf : performances) {
+            if (!perf.isAuthenticated()) continue;
+            if (lines.isEmpty()) {
+                lines.add("\n===================================================");
+                lines.add("          AUTHENTICATED ENCRYPTION (ms)           ");
+                lines.add("===================================================");
+                lines.add(String.format("%-18s %-15s %-15s %-15s %-15s", "Algorithm", "Encrypt Time", "Decrypt Time", "Tag Verify", "Verify Share"));
+                lines.add("-------------------------------------------------------------------------------");
+            }
+            lines.add(String.format("%-18s %-15.2f %-15.2f %-15.2f %-15s", perf.getName(), perf.getEncryptionTime(),
+                    perf.getDecryptionTime(), perf.getTagVerificationTime(),
+                    String.format("%.0f%%", 100.0 * perf.getTagVerificationTime() / perf.getDecryptionTime())));
+        }
+        return lines;
+    }
+    
+    // Digest/MAC metrics and the encrypt+integrity cost of every cipher/integrity pairing
+    public static List<String> formatIntegrityReport(AlgorithmEvaluator evaluator) {
+        List<String> lines = new ArrayList<>();
+        List<AlgorithmEvaluator.IntegrityPerformance> integrity = evaluator.getIntegrityPerformances();
+        if (integrity.isEmpty()) {
+            return lines;
+        }
+        lines.add("\n===================================================");
+        lines.add("              INTEGRITY ALGORITHMS                ");
+        lines.add("===================================================");
+        lines.add(String.format("%-15s %-15s %-15s %-15s %-15s", "Algorithm", "Throughput", "Cost (ms/MB)", "64B Msg (us)", "Tag/Key (bits)"));
+        lines.add("-------------------------------------------------------------------------------");
+        for (AlgorithmEvaluator.IntegrityPerformance perf : integrity) {
+            lines.add(String.format("%-15s %-15.2f %-15.2f %-15.3f %-15s", perf.getName(), perf.getThroughput(),
+                    perf.getCostPerMB(), perf.getSmallMessageLatency(), perf.getOutputLength() + "/" + perf.getKeyLength()));
+        }
+        
+        if (evaluator.getAllPerformances().isEmpty()) {
+            return lines;
+        }
+        
+        lines.add("\n===================================================");
+        lines.add("        ENCRYPT + INTEGRITY COST (ms/MB)          ");
+        lines.add("===================================================");
+        StringBuilder header = new StringBuilder(String.format("%-15s %-15s", "Cipher", "Encrypt only"));
+        for (AlgorithmEvaluator.IntegrityPerformance perf : integrity) {
+            header.append(String.format(" %-15s", "+" + perf.getName()));
+        }
+        lines.add(header.toString());
+        for (AlgorithmEvaluator.AlgorithmPerformance cipher : evaluator.getAllPerformances()) {
+            StringBuilder row = new StringBuilder(String.format("%-15s %-15.2f", cipher.getName(), 1000.0 / cipher.getThroughput()));
+            for (AlgorithmEvaluator.IntegrityPerformance perf : integrity) {
+                row.append(String.format(" %-15.2f", AlgorithmEvaluator.getCombinedCostPerMB(cipher, perf)));
+            }
+            lines.add(row.toString());
+        }
+        lines.add("Cheapest Encrypt + Integrity: " + evaluator.getBestCombination());
+        return lines;
+    }
+    
+    // Scoring profile in use and the speed/security Pareto frontier
+    public static List<String> formatScoringReport(AlgorithmEvaluator evaluator) {
+        List<String> lines = new ArrayList<>();
+        WeightProfile profile = evaluator.getProfile();
+        lines.add(String.format("Scoring profile: %s (speed %.2f, security %.2f)", profile.getName(),
+                profile.getSpeedWeight(), profile.getSecurityWeight()));
+        StringBuilder frontier = new StringBuilder("Speed/security Pareto frontier (fastest first):");
+        for (AlgorithmEvaluator.AlgorithmPerformance perf : evaluator.getParetoFrontier()) {
+            frontier.append(' ').append(perf.getName());
+        }
+        lines.add(frontier.toString());
+        return lines;
+    }
+    
+    // Buffer arena counters, plus the unreturned buffers when leak tracking (-Darena.debug) is on
+    public static List<String> formatArenaStats(BufferArena arena) {
+        BufferArena.Stats stats = arena.getStats();
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format("Buffer arena: %d hits, %d misses (%.1f%% hit rate), high-water %.2f MB, %d outstanding (%.2f MB), %.2f MB pooled",
+                stats.getHits(), stats.getMisses(), 100.0 * stats.getHitRate(), stats.getHighWaterBytes() / (1024.0 * 1024.0),
+                stats.getOutstandingBuffers(), stats.getOutstandingBytes() / (1024.0 * 1024.0), stats.getRetainedBytes() / (1024.0 * 1024.0)));
+        if (arena.isDebug()) {
+            List<String> leaks = arena.getLeaks();
+            lines.add("Buffer arena leak check: " + (leaks.isEmpty() ? "no buffers outstanding" : leaks.size() + " buffer(s) not returned"));
+            for (String leak : leaks) {
+                lines.add("  " + leak);
+            }
+        }
+        return lines;
+    }
       public static void main(String[] args) throws Exception {
+        if (args.length > 0) {
+            runCommand(args);
+            return;
+        }
         try {
             // Try to set the system look and feel
             try {
@@ -264,17 +473,867 @@ public class Main {
             
             // Fall back to console mode if GUI fails to start
             System.err.println("GUI failed to start. Falling back to console mode.");
-            runConsoleMode();
+            runConsoleMode(null, getSelectedAlgorithms());
+        }
+    }
+    
+    // Command line tools working on the stored results history
+    private static void runCommand(String[] args) throws Exception {
+        ResultsStore store = new ResultsStore();
+        switch (args[0]) {
+            case "algorithms":
+                for (String name : AlgorithmRegistry.getDefault().getNames()) {
+                    writeConsole(name);
+                }
+                flushResults();
+                break;
+            case "runs":
+                for (String runId : store.listRuns()) {
+                    ResultsStore.StoredRun run = store.loadRun(runId);
+                    writeConsole(runId + "  Java " + run.getMetadata("java.version")
+                            + "  " + run.getMetadata("file.path"));
+                }
+                flushResults();
+                break;
+            case "compare":
+                if (args.length < 2) {
+                    System.err.println("Usage: compare <baselineRunId> [candidateRunId|latest]");
+                    System.exit(2);
+                }
+                ResultsStore.StoredRun baseline = store.loadRun(args[1]);
+                ResultsStore.StoredRun candidate = store.loadRun(args.length > 2 ? args[2] : "latest");
+                RunComparator comparator = new RunComparator();
+                boolean regressed = RunComparator.printReport(baseline, candidate, comparator.compare(baseline, candidate));
+                flushResults();
+                // A non-zero exit code lets scripts fail on regressions
+                System.exit(regressed ? 1 : 0);
+                break;
+            case "console":
+                runConsoleMode(args.length > 1 ? new File(args[1]) : null,
+                        args.length > 2 ? AlgorithmRegistry.getDefault().select(args[2]) : getSelectedAlgorithms());
+                break;
+            case "server":
+                runServer(args);
+                break;
+            case "loadtest":
+                runLoadTest(args);
+                break;
+            case "container":
+                runContainerBenchmark(args);
+                break;
+            case "compression":
+                runCompressionAnalysis(args);
+                break;
+            case "incremental":
+                runIncrementalAnalysis(args);
+                break;
+            case "providers":
+                runProviderMatrix(args);
+                break;
+            case "chacha":
+                runChaChaComparison(args);
+                break;
+            case "integrity":
+                runIntegrityAnalysis(args);
+                break;
+            case "modes":
+                runModeMatrix(args);
+                break;
+            case "kdf":
+                runKdfBenchmark(args);
+                break;
+            case "warmup":
+                runWarmupProfile(args);
+                break;
+            case "arena":
+                runArenaBenchmark(args);
+                break;
+            case "overlap":
+                runOverlappedEncryption(args);
+                break;
+            case "rank":
+                runRanking(args);
+                break;
+            case "select":
+                runAlgorithmSelection(args);
+                break;
+            case ForkedRunner.CHILD_COMMAND:
+                // Internal: one algorithm's measurement in a child JVM started by ForkedRunner
+                runForkedChild(args);
+                break;
+            default:
+                System.err.println("Unknown command: " + args[0]);
+                System.err.println("Commands: algorithms | runs | compare <baselineRunId> [candidateRunId|latest] | console [file] [algorithm,...]");
+                System.err.println("          server <algorithm> [port] [workers]");
+                System.err.println("          loadtest <algorithm> [connections] [requestsPerConnection] [payloadBytes] [port]");
+                System.err.println("          container <algorithm> <file> [chunkSize] [threads]");
+                System.err.println("          compression <file> [algorithm...]");
+                System.err.println("          incremental <algorithm> <file> [modifiedFile]");
+                System.err.println("          providers [file|payloadBytes] [algorithm,...]");
+                System.err.println("          chacha [payloadBytes] [iterations]");
+                System.err.println("          integrity [file|payloadBytes] [digest,...]");
+                System.err.println("          modes [file|payloadBytes] [cipher,...]");
+                System.err.println("          kdf [threads] [iterations,...]");
+                System.err.println("          warmup [file|payloadBytes] [algorithm,...] [maxIterations]");
+                System.err.println("          arena [file|payloadBytes] [algorithm,...] [iterations]");
+                System.err.println("          overlap <file> [algorithm,...] [chunkSize]");
+                System.err.println("          rank [runId|all] [profile]");
+                System.err.println("          select <payloadBytes> [concurrency] [minKeyBits] [latencyBudgetMs]");
+                System.exit(2);
+        }
+    }
+    
+    // Run the loopback encryption server until the process is stopped
+    private static void runServer(String[] args) throws Exception {
+        EncryptionAlgorithm algorithm = AlgorithmRegistry.getDefault().create(args.length > 1 ? args[1] : "AES");
+        int port = args.length > 2 ? Integer.parseInt(args[2]) : 9090;
+        int workers = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        EncryptionServer server = new EncryptionServer(algorithm, port, workers);
+        server.start();
+        writeConsole(algorithm.getName() + " encryption server listening on " + server.getAddress());
+        flushResults();
+        Thread.currentThread().join();
+    }
+    
+    // Run the load generator against a server on the given port, or against an embedded server
+    private static void runLoadTest(String[] args) throws Exception {
+        EncryptionAlgorithm algorithm = AlgorithmRegistry.getDefault().create(args.length > 1 ? args[1] : "AES");
+        int connections = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+        int requests = args.length > 3 ? Integer.parseInt(args[3]) : 100;
+        int payloadBytes = args.length > 4 ? Integer.parseInt(args[4]) : 64 * 1024;
+        
+        EncryptionServer embeddedServer = null;
+        InetSocketAddress address;
+        if (args.length > 5) {
+            address = new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(args[5]));
+        } else {
+            embeddedServer = new EncryptionServer(algorithm, 0, Runtime.getRuntime().availableProcessors());
+            embeddedServer.start();
+            address = embeddedServer.getAddress();
+        }
+        try {
+            LoadGenerator.Report report = LoadGenerator.run(address, connections, requests, payloadBytes);
+            LoadGenerator.printReport(algorithm.getName(), payloadBytes, report);
+            if (embeddedServer != null) {
+                for (String line : formatArenaStats(embeddedServer.getArena())) {
+                    writeResult(line);
+                }
+            }
+        } finally {
+            if (embeddedServer != null) {
+                embeddedServer.close();
+            }
+            flushResults();
+        }
+    }
+    
+    // Write a file into an encrypted container, then compare random-range reads with full decryption
+    private static void runContainerBenchmark(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("Usage: container <algorithm> <file> [chunkSize] [threads]");
+            System.exit(2);
+        }
+        EncryptionAlgorithm algorithm = AlgorithmRegistry.getDefault().create(args[1]);
+        Path input = Paths.get(args[2]);
+        int chunkSize = args.length > 3 ? Integer.parseInt(args[3]) : EncryptedContainer.DEFAULT_CHUNK_SIZE;
+        int threads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+        Path containerPath = Paths.get(input.toString() + ".feac");
+        Path decryptedPath = Paths.get(input.toString() + ".decrypted");
+        
+        EncryptedContainer container = new EncryptedContainer(algorithm);
+        long start = System.nanoTime();
+        container.encryptFile(input, containerPath, chunkSize, threads);
+        double encryptMs = (System.nanoTime() - start) / 1_000_000.0;
+        
+        writeResult("\n=== Encrypted container: " + algorithm.getName() + " ===");
+        writeResult("Container: " + containerPath + " (key id " + container.getKeyId() + ")");
+        writeResult("Chunk size (bytes): " + chunkSize + ", threads: " + threads);
+        writeResultf("Container encryption time (ms): %.2f%n", encryptMs);
+        
+        try (EncryptedContainer.Reader reader = container.open(containerPath)) {
+            double fileSizeMB = reader.getPlaintextLength() / (1024.0 * 1024.0);
+            writeResult("Chunks: " + reader.getChunkCount() + ", plaintext bytes: " + reader.getPlaintextLength());
+            writeResultf("Container size overhead: %.2f%%%n",
+                    100.0 * (Files.size(containerPath) - reader.getPlaintextLength()) / Math.max(1, reader.getPlaintextLength()));
+            
+            start = System.nanoTime();
+            reader.decryptTo(decryptedPath, threads);
+            double decryptMs = (System.nanoTime() - start) / 1_000_000.0;
+            writeResultf("Full decryption time (ms): %.2f (%.2f MB/s)%n", decryptMs, fileSizeMB / (decryptMs / 1000.0));
+            
+            // Random 4 KB reads, verified against the original file
+            byte[] original = Files.readAllBytes(input);
+            int readLength = (int) Math.min(4096, reader.getPlaintextLength());
+            int reads = 200;
+            double[] latencies = new double[reads];
+            Random random = new Random(42);
+            for (int i = 0; i < reads; i++) {
+                long offset = (long) (random.nextDouble() * (reader.getPlaintextLength() - readLength));
+                long readStart = System.nanoTime();
+                byte[] range = reader.read(offset, readLength);
+                latencies[i] = (System.nanoTime() - readStart) / 1_000_000.0;
+                if (!Arrays.equals(range, Arrays.copyOfRange(original, (int) offset, (int) offset + readLength))) {
+                    throw new IllegalStateException("Random read at offset " + offset + " returned wrong data");
+                }
+            }
+            Arrays.sort(latencies);
+            writeResultf("Random %d-byte read latency (ms): mean %.3f, p50 %.3f, p99 %.3f%n", readLength,
+                    RunComparator.mean(latencies), latencies[reads / 2], latencies[(int) (reads * 0.99) - 1]);
+            writeResultf("Random read vs full decryption: %.1fx faster%n", decryptMs / RunComparator.mean(latencies));
+        } finally {
+            Files.deleteIfExists(decryptedPath);
+            flushResults();
+        }
+    }
+    
+    // Compare each algorithm with and without the adaptive compression stage
+    private static void runCompressionAnalysis(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: compression <file> [algorithm...]");
+            System.exit(2);
+        }
+        byte[] plaintext = Files.readAllBytes(Paths.get(args[1]));
+        double fileSizeMB = plaintext.length / (1024.0 * 1024.0);
+        List<String> names = args.length > 2 ? Arrays.asList(args).subList(2, args.length)
+                : Arrays.asList("AES", "DES", "TDES", "ChaCha20", "Blowfish", "PBE");
+        
+        double sampleEntropy = CompressingEncryption.estimateEntropy(plaintext);
+        writeResult("\n=== Compress-before-encrypt: " + args[1] + " ===");
+        writeResultf("Sampled entropy: %.3f bits/byte (compression threshold %.1f)%n",
+                sampleEntropy, CompressingEncryption.DEFAULT_ENTROPY_THRESHOLD);
+        writeResultf("%-20s %-12s %-15s %-15s %-15s %-12s%n",
+                "Algorithm", "Stage", "Time (ms)", "Output (bytes)", "Net MB/s", "Compressed");
+        writeResult("-------------------------------------------------------------------------------------------");
+        
+        for (String name : names) {
+            EncryptionAlgorithm algorithm = AlgorithmRegistry.getDefault().create(name);
+            CompressingEncryption staged = new CompressingEncryption(algorithm);
+            for (EncryptionAlgorithm candidate : Arrays.asList(algorithm, staged)) {
+                // Warm up once so both variants are measured with compiled code
+                candidate.encrypt(plaintext);
+                long start = System.nanoTime();
+                byte[] ciphertext = candidate.encrypt(plaintext);
+                double timeMs = (System.nanoTime() - start) / 1_000_000.0;
+                if (!Arrays.equals(plaintext, candidate.decrypt(ciphertext))) {
+                    throw new IllegalStateException(candidate.getName() + " round trip failed");
+                }
+                boolean isStaged = candidate == staged;
+                writeResultf("%-20s %-12s %-15.2f %-15d %-15.2f %-12s%n",
+                        algorithm.getName(),
+                        isStaged ? "deflate" : "none",
+                        timeMs,
+                        ciphertext.length,
+                        fileSizeMB / (timeMs / 1000.0),
+                        isStaged ? (staged.wasLastCompressed() ? "yes" : "skipped") : "-");
+            }
+        }
+        flushResults();
+    }
+    
+    // Encrypt a file, then re-encrypt a changed version and report how much work was reused
+    private static void runIncrementalAnalysis(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("Usage: incremental <algorithm> <file> [modifiedFile]");
+            System.exit(2);
+        }
+        EncryptionAlgorithm algorithm = AlgorithmRegistry.getDefault().create(args[1]);
+        byte[] original = Files.readAllBytes(Paths.get(args[2]));
+        byte[] modified;
+        String modification;
+        if (args.length > 3) {
+            modified = Files.readAllBytes(Paths.get(args[3]));
+            modification = args[3];
+        } else {
+            // Simulate a small edit: three 64-byte insertions and one overwritten byte
+            modified = simulateEdits(original);
+            modification = "3 insertions of 64 bytes and 1 modified byte";
+        }
+        
+        IncrementalEncryptor encryptor = new IncrementalEncryptor(algorithm);
+        IncrementalEncryptor.Result first = encryptor.encrypt(original);
+        IncrementalEncryptor.Result second = encryptor.encrypt(modified);
+        if (!Arrays.equals(modified, encryptor.decrypt(second.getManifest()))) {
+            throw new IllegalStateException("Incremental round trip failed");
         }
+        
+        // Baselines: the changed file encrypted from scratch, chunked and as a whole
+        IncrementalEncryptor.Result fromScratch = new IncrementalEncryptor(algorithm).encrypt(modified);
+        long start = System.nanoTime();
+        algorithm.encrypt(modified);
+        double wholeFileMs = (System.nanoTime() - start) / 1_000_000.0;
+        
+        writeResult("\n=== Incremental encryption: " + algorithm.getName() + " ===");
+        writeResult("Change: " + modification);
+        writeResultf("First pass: %d chunks, %.2f ms%n", first.getChunks(), first.getElapsedMs());
+        writeResultf("Re-encryption: %d chunks, %d reused (%.1f%% of bytes), %.2f ms%n",
+                second.getChunks(), second.getReusedChunks(), second.getReusedFraction() * 100, second.getElapsedMs());
+        writeResultf("Chunked encryption from scratch (ms): %.2f%n", fromScratch.getElapsedMs());
+        writeResultf("Whole-file encryption (ms): %.2f%n", wholeFileMs);
+        writeResultf("Time saved vs from scratch: %.2f ms (%.1f%%)%n",
+                fromScratch.getElapsedMs() - second.getElapsedMs(),
+                100 * (fromScratch.getElapsedMs() - second.getElapsedMs()) / fromScratch.getElapsedMs());
+        writeResult("Chunks in index: " + encryptor.getIndexSize());
+        flushResults();
+    }
+    
+    // Utility: insert three 64-byte blocks and flip one byte, at fixed positions
+    private static byte[] simulateEdits(byte[] data) {
+        byte[] insert = new byte[64];
+        new Random(7).nextBytes(insert);
+        ByteArrayOutputStream edited = new ByteArrayOutputStream(data.length + 3 * insert.length);
+        int[] positions = {data.length / 4, data.length / 2, 3 * data.length / 4};
+        int previous = 0;
+        for (int position : positions) {
+            edited.write(data, previous, position - previous);
+            edited.write(insert, 0, insert.length);
+            previous = position;
+        }
+        edited.write(data, previous, data.length - previous);
+        byte[] result = edited.toByteArray();
+        if (result.length > 0) {
+            result[result.length / 8] ^= 0x01;
+        }
+        return result;
+    }
+    
+    // Measure every algorithm on every JCA provider that offers it
+    private static void runProviderMatrix(String[] args) throws Exception {
+        byte[] payload;
+        String source = args.length > 1 ? args[1] : "1048576";
+        if (source.matches("\\d+")) {
+            payload = new byte[Integer.parseInt(source)];
+            new Random(1).nextBytes(payload);
+            source = payload.length + " random bytes";
+        } else {
+            payload = Files.readAllBytes(Paths.get(source));
+        }
+        List<String> algorithmNames = args.length > 2 ? AlgorithmRegistry.getDefault().select(args[2]) : getSelectedAlgorithms();
+        
+        // The bundled pure-Java provider is optional and can be disabled with -Danalysis.bundledProvider=false
+        if (Boolean.parseBoolean(System.getProperty("analysis.bundledProvider", "true"))) {
+            String bundled = ProviderMatrix.installBundledProvider();
+            writeResult(bundled == null ? "Bundled provider not on the classpath" : "Bundled provider installed: " + bundled);
+        }
+        
+        writeResult("\n=== JCA provider comparison: " + source + " ===");
+        ProviderMatrix matrix = new ProviderMatrix(getSampleCount());
+        List<ProviderMatrix.Cell> cells = new ArrayList<>();
+        for (String name : algorithmNames) {
+            cells.addAll(matrix.measure(AlgorithmRegistry.getDefault().create(name), payload));
+        }
+        ProviderMatrix.printMatrix(cells);
+        flushResults();
+    }
+    
+    // Compare the pure-Java ChaCha20 engine (multi-block and scalar) with the provider implementation
+    private static void runChaChaComparison(String[] args) throws Exception {
+        int payloadBytes = args.length > 1 ? Integer.parseInt(args[1]) : 1024 * 1024;
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+        byte[] payload = new byte[payloadBytes];
+        new Random(3).nextBytes(payload);
+        
+        ChaCha20 provider = new ChaCha20();
+        PureJavaChaCha20 multiBlock = new PureJavaChaCha20();
+        ChaCha20 sameKeyProvider = new ChaCha20(multiBlock.getKey());
+        PureJavaChaCha20 scalar = new PureJavaChaCha20(multiBlock.getKey(), false);
+        
+        // Byte compatibility in both directions, and between the two engine paths
+        boolean compatible = Arrays.equals(payload, sameKeyProvider.decrypt(multiBlock.encrypt(payload)))
+                && Arrays.equals(payload, multiBlock.decrypt(sameKeyProvider.encrypt(payload)))
+                && Arrays.equals(payload, scalar.decrypt(multiBlock.encrypt(payload)));
+        writeResult("\n=== ChaCha20 engines: " + payloadBytes + " bytes x " + iterations + " ===");
+        writeResult("Byte-compatible with ChaCha20 (provider): " + (compatible ? "yes" : "NO"));
+        
+        EncryptionAlgorithm[] engines = {provider, multiBlock, scalar};
+        String[] labels = {"Provider (" + Cipher.getInstance("ChaCha20").getProvider().getName() + ")",
+                "Pure Java, " + multiBlock.getLanes() + " lanes", "Pure Java, scalar"};
+        for (int e = 0; e < engines.length; e++) {
+            // Warm up so the JIT has compiled the hot loops before timing
+            for (int i = 0; i < Math.max(10, iterations / 5); i++) {
+                engines[e].encrypt(payload);
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                engines[e].encrypt(payload);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            writeResultf("%-28s %10.2f MB/s%n", labels[e], payloadBytes * (double) iterations / (1024.0 * 1024.0) / seconds);
+        }
+        flushResults();
+    }
+    
+    // Streaming throughput and small-message latency of the digests and MACs
+    private static void runIntegrityAnalysis(String[] args) throws Exception {
+        byte[] payload;
+        String source;
+        if (args.length > 1 && new File(args[1]).isFile()) {
+            payload = Files.readAllBytes(Paths.get(args[1]));
+            source = args[1];
+        } else {
+            payload = new byte[args.length > 1 ? Integer.parseInt(args[1]) : 1 << 20];
+            new Random(42).nextBytes(payload);
+            source = payload.length + " random bytes";
+        }
+        
+        AlgorithmEvaluator evaluator = new AlgorithmEvaluator();
+        IntegrityBenchmark benchmark = new IntegrityBenchmark(getSampleCount());
+        for (IntegrityAlgorithm algorithm : IntegrityBenchmark.createAvailable(args.length > 2 ? args[2] : getIntegritySelection())) {
+            evaluator.addIntegrityPerformance(benchmark.measure(algorithm, payload));
+        }
+        writeResult("\n=== Integrity algorithms: " + source + " ===");
+        for (String line : formatIntegrityReport(evaluator)) {
+            writeResult(line);
+        }
+        flushResults();
+    }
+    
+    // Every block cipher in every mode of operation
+    private static void runModeMatrix(String[] args) throws Exception {
+        byte[] payload;
+        String source;
+        if (args.length > 1 && new File(args[1]).isFile()) {
+            payload = Files.readAllBytes(Paths.get(args[1]));
+            source = args[1];
+        } else {
+            payload = new byte[args.length > 1 ? Integer.parseInt(args[1]) : 1 << 20];
+            new Random(42).nextBytes(payload);
+            source = payload.length + " random bytes";
+        }
+        List<String> ciphers = args.length > 2 ? Arrays.asList(args[2].split(","))
+                : new ArrayList<>(ModeMatrix.BLOCK_CIPHERS.keySet());
+        
+        writeResult("\n=== Cipher mode matrix: " + source + " ===");
+        ModeMatrix matrix = new ModeMatrix(getSampleCount());
+        List<ModeMatrix.Cell> cells = new ArrayList<>();
+        for (String cipher : ciphers) {
+            cells.addAll(matrix.measure(cipher.trim(), payload));
+        }
+        ModeMatrix.printMatrix(cells);
+        flushResults();
+    }
+    
+    // PBKDF2 iteration sweep, then repeated decryption with and without the derived-key cache
+    private static void runKdfBenchmark(String[] args) throws Exception {
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int[] iterations = KdfBenchmark.DEFAULT_ITERATIONS;
+        if (args.length > 2) {
+            String[] parts = args[2].split(",");
+            iterations = new int[parts.length];
+            for (int i = 0; i < parts.length; i++) {
+                iterations[i] = Integer.parseInt(parts[i].trim());
+            }
+        }
+        KdfBenchmark.printResults(new KdfBenchmark(threads).sweep(KdfBenchmark.KDFS, iterations));
+        flushResults();
+        
+        // Decrypting several files that share a salt: each decrypt derives the key unless it is cached
+        int decrypts = 10;
+        int cacheIterations = Integer.getInteger("pbe.iterations", PBEEncryption.DEFAULT_PBKDF2_ITERATIONS);
+        byte[] payload = new byte[64 * 1024];
+        new Random(42).nextBytes(payload);
+        writeResult("\n=== Derived-key cache: " + decrypts + " decrypts, PBKDF2WithHmacSHA256, " + cacheIterations + " iterations ===");
+        DerivedKeyCache[] caches = {null, new DerivedKeyCache(16)};
+        for (DerivedKeyCache cache : caches) {
+            PBEEncryption pbe = new PBEEncryption("PBKDF2WithHmacSHA256", cacheIterations, "secretPassword".toCharArray(), cache);
+            byte[] ciphertext = pbe.encrypt(payload);
+            long start = System.nanoTime();
+            for (int i = 0; i < decrypts; i++) {
+                if (!Arrays.equals(payload, pbe.decrypt(ciphertext))) {
+                    throw new IllegalStateException("PBE round trip mismatch");
+                }
+            }
+            double elapsedMs = (System.nanoTime() - start) / 1_000_000.0;
+            writeResultf("%-12s %10.2f ms total, %8.3f ms per decrypt%s%n", cache == null ? "No cache" : "LRU cache",
+                    elapsedMs, elapsedMs / decrypts,
+                    cache == null ? "" : " (hits " + cache.getHits() + ", misses " + cache.getMisses() + ")");
+        }
+        flushResults();
+    }
+    
+    // Per-call latency from the first call of each algorithm until steady state
+    private static void runWarmupProfile(String[] args) throws Exception {
+        byte[] payload;
+        String source;
+        if (args.length > 1 && new File(args[1]).isFile()) {
+            payload = Files.readAllBytes(Paths.get(args[1]));
+            source = args[1];
+        } else {
+            payload = new byte[args.length > 1 ? Integer.parseInt(args[1]) : 64 * 1024];
+            new Random(42).nextBytes(payload);
+            source = payload.length + " random bytes";
+        }
+        List<String> algorithmNames = args.length > 2 ? AlgorithmRegistry.getDefault().select(args[2]) : getSelectedAlgorithms();
+        int maxIterations = args.length > 3 ? Integer.parseInt(args[3]) : WarmupProfiler.DEFAULT_MAX_ITERATIONS;
+        
+        writeResult("\n=== Warm-up profile: " + source + " ===");
+        if (algorithmNames.size() > 1) {
+            writeResult("Note: later algorithms start partly warm; profile one algorithm per run for true cold starts.");
+        }
+        WarmupProfiler profiler = new WarmupProfiler(maxIterations, WarmupProfiler.DEFAULT_MAX_MILLIS);
+        List<WarmupProfiler.Profile> profiles = new ArrayList<>();
+        for (String name : algorithmNames) {
+            profiles.add(profiler.profile(name, payload));
+        }
+        WarmupProfiler.printProfiles(profiles);
+        flushResults();
+    }
+    
+    // Allocation per round trip with and without the buffer arena
+    private static void runArenaBenchmark(String[] args) throws Exception {
+        byte[] payload;
+        String source;
+        if (args.length > 1 && new File(args[1]).isFile()) {
+            payload = Files.readAllBytes(Paths.get(args[1]));
+            source = args[1];
+        } else {
+            payload = new byte[args.length > 1 ? Integer.parseInt(args[1]) : 64 * 1024];
+            new Random(42).nextBytes(payload);
+            source = payload.length + " random bytes";
+        }
+        List<String> algorithmNames = args.length > 2 ? AlgorithmRegistry.getDefault().select(args[2]) : getSelectedAlgorithms();
+        int iterations = args.length > 3 ? Integer.parseInt(args[3]) : ArenaBenchmark.DEFAULT_ITERATIONS;
+        
+        writeResult("\n=== Buffer arena: " + source + ", " + iterations + " round trips ===");
+        BufferArena arena = BufferArena.getShared();
+        arena.resetStats();
+        ArenaBenchmark benchmark = new ArenaBenchmark(arena, iterations);
+        List<ArenaBenchmark.Result> results = new ArrayList<>();
+        for (String name : algorithmNames) {
+            results.add(benchmark.measure(AlgorithmRegistry.getDefault().create(name), payload));
+        }
+        ArenaBenchmark.printResults(results, arena);
+        flushResults();
+    }
+    
+    // Disk-to-disk encryption of a file, sequential and with overlapped reads and writes
+    private static void runOverlappedEncryption(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: overlap <file> [algorithm,...] [chunkSize]");
+            System.exit(2);
+        }
+        Path input = Paths.get(args[1]);
+        List<String> algorithmNames = args.length > 2 ? AlgorithmRegistry.getDefault().select(args[2]) : getSelectedAlgorithms();
+        int chunkSize = args.length > 3 ? Integer.parseInt(args[3]) : OverlappedFileEncryptor.DEFAULT_CHUNK_SIZE;
+        // Scratch output next to the input (same disk), never an existing file of the user's
+        Path output = Files.createTempFile(input.toAbsolutePath().getParent(), input.getFileName() + "-", ".enc.tmp");
+        
+        writeResult("\n=== Disk-to-disk encryption: " + input + " (" + Files.size(input) + " bytes, "
+                + chunkSize + "-byte chunks) ===");
+        List<OverlappedFileEncryptor.Result[]> results = new ArrayList<>();
+        try {
+            for (String name : algorithmNames) {
+                OverlappedFileEncryptor encryptor = new OverlappedFileEncryptor(AlgorithmRegistry.getDefault().create(name), chunkSize);
+                // Untimed pass first, so neither mode pays for JIT warm-up or a cold page cache
+                encryptor.encryptFile(input, output, true);
+                OverlappedFileEncryptor.Result sequential = encryptor.encryptFile(input, output, false);
+                OverlappedFileEncryptor.Result overlapped = encryptor.encryptFile(input, output, true);
+                if (!encryptor.verify(input, output)) {
+                    throw new IllegalStateException(name + ": decrypted output does not match " + input);
+                }
+                results.add(new OverlappedFileEncryptor.Result[]{sequential, overlapped});
+            }
+        } finally {
+            Files.deleteIfExists(output);
+        }
+        OverlappedFileEncryptor.printResults(results.toArray(new OverlappedFileEncryptor.Result[0][]));
+        flushResults();
+    }
+    
+    // Score stored results (one run or the whole history) together under a weight profile
+    private static void runRanking(String[] args) throws Exception {
+        ResultsStore store = new ResultsStore();
+        String selection = args.length > 1 ? args[1] : "all";
+        List<String> runIds = selection.equals("all") ? store.listRuns() : Arrays.asList(selection);
+        Map<String, WeightProfile> profiles = WeightProfile.loadConfigured();
+        WeightProfile profile = args.length > 2 ? profiles.get(args[2]) : WeightProfile.getActive();
+        if (profile == null) {
+            throw new IllegalArgumentException("Unknown scoring profile: " + args[2] + " (available: " + profiles.keySet() + ")");
+        }
+        
+        ScoringEngine engine = new ScoringEngine();
+        for (String runId : runIds) {
+            ResultsStore.StoredRun run = store.loadRun(runId);
+            for (ResultsStore.StoredResult result : run.getResults().values()) {
+                engine.add(result.getAlgorithm() + " @ " + run.getRunId(), result.getValue("encryptionTimeMs"),
+                        result.getValue("throughputMBs"), result.getValue("decryptionTimeMs"),
+                        result.getValue("decryptionThroughputMBs"), result.getValue("avalancheEffect"),
+                        result.getValue("entropy"), result.getValue("keyLength"));
+            }
+        }
+        if (engine.size() == 0) {
+            writeResult("No stored results to rank.");
+            flushResults();
+            return;
+        }
+        long start = System.nanoTime();
+        engine.normalize();
+        double normalizeMs = (System.nanoTime() - start) / 1_000_000.0;
+        start = System.nanoTime();
+        int[] order = engine.rank(profile);
+        double rankMs = (System.nanoTime() - start) / 1_000_000.0;
+        double[] totals = engine.totals(profile);
+        double[] speed = engine.speedScores(profile);
+        double[] security = engine.securityScores(profile);
+        
+        writeResult("\n=== Ranking: " + engine.size() + " results from " + runIds.size() + " run(s), profile "
+                + profile.getName() + " ===");
+        writeResultf("%-6s %-48s %-10s %-10s %-10s%n", "Rank", "Result", "Total", "Speed", "Security");
+        for (int i = 0; i < Math.min(20, order.length); i++) {
+            int row = order[i];
+            writeResultf("%-6d %-48s %-10.2f %-10.2f %-10.2f%n", i + 1, engine.getLabel(row), totals[row], speed[row], security[row]);
+        }
+        writeResult("\nSpeed/security Pareto frontier (fastest first):");
+        for (int row : engine.paretoFrontier(profile)) {
+            writeResultf("  %-48s speed %.2f, security %.2f%n", engine.getLabel(row), speed[row], security[row]);
+        }
+        writeResultf("Normalize: %.3f ms, rank: %.3f ms%n", normalizeMs, rankMs);
+        flushResults();
+    }
+    
+    // Pick an algorithm for a workload from the results stored on this host, and time the lookups
+    private static void runAlgorithmSelection(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: select <payloadBytes> [concurrency] [minKeyBits] [latencyBudgetMs]");
+            System.exit(2);
+        }
+        AlgorithmSelector.Workload workload = new AlgorithmSelector.Workload(Long.parseLong(args[1]),
+                args.length > 2 ? Integer.parseInt(args[2]) : 1,
+                args.length > 3 ? Integer.parseInt(args[3]) : 0,
+                args.length > 4 ? Double.parseDouble(args[4]) : 0);
+        long start = System.nanoTime();
+        AlgorithmSelector selector = new AlgorithmSelector(new ResultsStore(), WeightProfile.getActive());
+        double loadMs = (System.nanoTime() - start) / 1_000_000.0;
+        int cpus = Runtime.getRuntime().availableProcessors();
+        
+        writeResult("\n=== Algorithm Selection: " + workload + " ===");
+        writeResultf("Profile %s, %d stored algorithm(s) on this host, loaded in %.1f ms%n",
+                selector.getProfile().getName(), selector.getCandidates().size(), loadMs);
+        if (selector.getCandidates().isEmpty()) {
+            writeResult("No stored results on this host; run an analysis first.");
+            flushResults();
+            return;
+        }
+        writeResultf("%-28s %-6s %-10s %-16s %-10s%n", "Algorithm", "Runs", "Key Bits", "Est. Latency ms", "Eligible");
+        for (AlgorithmSelector.Candidate candidate : selector.getCandidates()) {
+            double latency = candidate.estimateEncryptMs(workload.getPayloadBytes(), workload.getConcurrency(), cpus);
+            boolean eligible = candidate.getKeyLength() >= workload.getMinKeyBits()
+                    && (!workload.hasBudget() || latency <= workload.getLatencyBudgetMs());
+            writeResultf("%-28s %-6d %-10.0f %-16.3f %-10s%n", candidate.getAlgorithm(), candidate.getRuns(),
+                    candidate.getKeyLength(), latency, eligible ? "yes" : "no");
+        }
+        
+        start = System.nanoTime();
+        AlgorithmSelector.Selection selection = selector.select(workload);
+        long coldNs = System.nanoTime() - start;
+        writeResultf("%nSelected: %s (estimated %.3f ms, %.2f MB/s)%s%n", selection.getAlgorithm(),
+                selection.getEstimatedLatencyMs(), selection.getEstimatedThroughput(),
+                selection.isWithinBudget() ? "" : " - nothing fits the budget, fastest above the security floor");
+        
+        // Cached lookups, as a service would make them: the same workload and a spread of nearby payload sizes
+        int lookups = 1_000_000;
+        start = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+            selector.select(workload);
+        }
+        double hitNs = (System.nanoTime() - start) / (double) lookups;
+        long payload = Math.max(1, workload.getPayloadBytes());
+        start = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+            selector.select(payload + i % 1024, workload.getConcurrency(), workload.getMinKeyBits(), workload.getLatencyBudgetMs());
+        }
+        double variedNs = (System.nanoTime() - start) / (double) lookups;
+        writeResultf("First lookup: %.1f us; cached: %.0f ns/lookup; 1024 payload sizes: %.0f ns/lookup (%d cache entries)%n",
+                coldNs / 1000.0, hitNs, variedNs, selector.getCacheSize());
+        
+        EncryptionAlgorithm algorithm = selection.createAlgorithm();
+        writeResult("Created " + algorithm.getName() + " (" + algorithm.getKeyLength() + "-bit key)");
+        flushResults();
+    }
+    
+    // Classic analysis of one algorithm on the whole file held in memory
+    private static AlgorithmEvaluator.AlgorithmPerformance analyzeInMemory(EncryptionAlgorithm algo, byte[] plaintext) throws Exception {
+        // Create performance object for this algorithm
+        AlgorithmEvaluator.AlgorithmPerformance performance = new AlgorithmEvaluator.AlgorithmPerformance(algo.getName());
+        
+        // Speed testing (repeated to collect samples for regression detection)
+        double[] timeSamples = new double[getSampleCount()];
+        byte[] ciphertext = null;
+        for (int s = 0; s < timeSamples.length; s++) {
+            long startEnc = System.nanoTime();
+            ciphertext = algo.encrypt(plaintext);
+            long endEnc = System.nanoTime();
+            timeSamples[s] = (endEnc - startEnc) / 1_000_000.0;
+        }
+        double encTimeMs = RunComparator.mean(timeSamples);
+        double fileSizeMB = plaintext.length / (1024.0 * 1024.0);
+        double throughput = fileSizeMB / (encTimeMs / 1000.0);
+        writeResult(algo.getName() + " Encryption Time (ms): " + encTimeMs);
+        writeResult(algo.getName() + " Throughput (MB/s): " + throughput);
+        
+        // Display samples of original and encrypted data
+        displayFileSamples(plaintext, ciphertext, algo.getName());
+        
+        // Store the speed metrics
+        performance.setEncryptionTime(encTimeMs);
+        performance.setThroughput(throughput);
+        performance.setEncryptionTimeSamples(timeSamples, fileSizeMB);
+        
+        // Decryption speed, verifying the round trip byte for byte (outside the timed region)
+        double[] decryptSamples = new double[timeSamples.length];
+        boolean roundTripVerified = true;
+        for (int s = 0; s < decryptSamples.length; s++) {
+            long startDec = System.nanoTime();
+            byte[] decrypted = algo.decrypt(ciphertext);
+            long endDec = System.nanoTime();
+            decryptSamples[s] = (endDec - startDec) / 1_000_000.0;
+            roundTripVerified &= Arrays.equals(plaintext, decrypted);
+        }
+        double decTimeMs = RunComparator.mean(decryptSamples);
+        double decThroughput = fileSizeMB / (decTimeMs / 1000.0);
+        writeResult(algo.getName() + " Decryption Time (ms): " + decTimeMs);
+        writeResult(algo.getName() + " Decryption Throughput (MB/s): " + decThroughput);
+        writeResult(algo.getName() + " Round Trip: " + (roundTripVerified ? "verified" : "FAILED"));
+        performance.setDecryptionTime(decTimeMs);
+        performance.setDecryptionThroughput(decThroughput);
+        performance.setDecryptionTimeSamples(decryptSamples);
+        performance.setRoundTripVerified(roundTripVerified);
+        
+        // Avalanche Effect testing
+        byte[] originalCipher = ciphertext; // The timed ciphertext; no need to encrypt again
+        byte[] modifiedPlaintext = Arrays.copyOf(plaintext, plaintext.length);
+        modifiedPlaintext[0] ^= 0x01;
+        byte[] modifiedCipher = algo.encrypt(modifiedPlaintext);
+        int distance = hammingDistance(originalCipher, modifiedCipher);
+        writeResult(algo.getName() + " Avalanche Effect Hamming Distance: " + distance);
+        
+        // Store avalanche effect
+        performance.setAvalancheEffect(distance);
+        
+        // Randomness and Entropy testing
+        double entropy = calculateEntropy(ciphertext);
+        writeResult(algo.getName() + " Ciphertext Shannon Entropy: " + entropy);
+        
+        // Store entropy
+        performance.setEntropy(entropy);
+        
+        // Display and store the key length
+        int keyLength = algo.getKeyLength();
+        writeResult(algo.getName() + " Key Length (bits): " + keyLength);
+        performance.setKeyLength(keyLength);
+        
+        // Throughput over the file: one more pass, encrypting fixed-size chunks as separate messages
+        if (ThroughputTimeline.isEnabled()) {
+            performance.setTimeline(ThroughputTimeline.record(algo, plaintext, ThroughputTimeline.getConfiguredChunkSize()));
+        }
+        return performance;
+    }
+    
+    // Single chunked pass over the file with bounded memory
+    private static AlgorithmEvaluator.AlgorithmPerformance analyzeFused(FusedAnalysisPipeline pipeline, EncryptionAlgorithm algo,
+                                                                        File file) throws Exception {
+        FusedAnalysisPipeline.Result result = pipeline.analyze(algo, file);
+        AlgorithmEvaluator.AlgorithmPerformance performance = result.getPerformance();
+        writeResult(algo.getName() + " Encryption Time (ms): " + performance.getEncryptionTime());
+        writeResult(algo.getName() + " Throughput (MB/s): " + performance.getThroughput());
+        displayFileSamples(result.getPlaintextSample(), result.getCiphertextSample(), algo.getName());
+        writeResult(algo.getName() + " Decryption Time (ms): " + performance.getDecryptionTime());
+        writeResult(algo.getName() + " Decryption Throughput (MB/s): " + performance.getDecryptionThroughput());
+        writeResult(algo.getName() + " Round Trip: " + (performance.isRoundTripVerified() ? "verified" : "FAILED"));
+        writeResult(algo.getName() + " Avalanche Effect Hamming Distance (first chunk): " + performance.getAvalancheEffect());
+        writeResult(algo.getName() + " Ciphertext Shannon Entropy: " + performance.getEntropy());
+        writeResult(algo.getName() + " Key Length (bits): " + performance.getKeyLength());
+        return performance;
+    }
+    
+    // Stratified sample of the file, extrapolated to the whole file
+    private static AlgorithmEvaluator.AlgorithmPerformance analyzeSampled(SampledAnalysis sampler, EncryptionAlgorithm algo,
+                                                                          File file) throws Exception {
+        SampledAnalysis.Result result = sampler.analyze(algo, file);
+        AlgorithmEvaluator.AlgorithmPerformance performance = result.getPerformance();
+        writeResultf("%s sampled %d blocks, %.2f MB of %.2f MB%n", algo.getName(), result.getBlocks(),
+                result.getSampledBytes() / (1024.0 * 1024.0), file.length() / (1024.0 * 1024.0));
+        writeResult(algo.getName() + " Encryption Time (ms, estimated): " + performance.getEncryptionTime()
+                + " +/- " + performance.getEncryptionTimeError());
+        writeResult(algo.getName() + " Throughput (MB/s, estimated): " + performance.getThroughput());
+        displayFileSamples(result.getPlaintextSample(), result.getCiphertextSample(), algo.getName());
+        writeResult(algo.getName() + " Decryption Time (ms, estimated): " + performance.getDecryptionTime()
+                + " +/- " + performance.getDecryptionTimeError());
+        writeResult(algo.getName() + " Decryption Throughput (MB/s, estimated): " + performance.getDecryptionThroughput());
+        writeResult(algo.getName() + " Round Trip (sampled blocks): " + (performance.isRoundTripVerified() ? "verified" : "FAILED"));
+        writeResult(algo.getName() + " Avalanche Effect Hamming Distance (first block): " + performance.getAvalancheEffect());
+        writeResult(algo.getName() + " Ciphertext Shannon Entropy (sampled blocks): " + performance.getEntropy());
+        writeResult(algo.getName() + " Key Length (bits): " + performance.getKeyLength());
+        return performance;
+    }
+    
+    // Create and measure one algorithm: whole file in memory, or one chunked pass when it is too large
+    private static AlgorithmEvaluator.AlgorithmPerformance analyzeAlgorithm(String algorithmName, File file, boolean fused,
+                                                                           FusedAnalysisPipeline pipeline, byte[] plaintext) throws Exception {
+        EncryptionAlgorithm algo = AlgorithmRegistry.getDefault().create(algorithmName);
+        writeResult("\n=== Testing " + algo.getName() + " ===");
+        
+        // An algorithm that would overrun its time budget is measured on a sample of the file
+        SampledAnalysis sampler = new SampledAnalysis(SampledAnalysis.getConfiguredBudgetMs(), getSampleCount());
+        AlgorithmEvaluator.AlgorithmPerformance performance;
+        boolean timelinePass = !fused && ThroughputTimeline.isEnabled();
+        boolean sampled = false;
+        if (sampler.exceedsBudget(algo, file, plaintext.length, timelinePass)) {
+            double predictedSeconds = sampler.predictFullMs(algo, file, plaintext.length, timelinePass) / 1000.0;
+            sampled = SampledAnalysis.canSample(file);
+            if (sampled) {
+                writeResultf("%s would take about %.1f s (budget %.1f s); measuring a stratified sample%n", algo.getName(),
+                        predictedSeconds, sampler.getBudgetMs() / 1000.0);
+            } else {
+                writeResultf("%s would take about %.1f s (budget %.1f s), but the file is too small to sample (needs %d KB); time budget not applied%n",
+                        algo.getName(), predictedSeconds, sampler.getBudgetMs() / 1000.0, SampledAnalysis.getMinSampleBytes() / 1024);
+            }
+        }
+        if (sampled) {
+            performance = analyzeSampled(sampler, algo, file);
+        } else {
+            performance = fused ? analyzeFused(pipeline, algo, file) : analyzeInMemory(algo, plaintext);
+        }
+        
+        // Authentication cost: tag verification, with the file name as associated data
+        if (algo instanceof AeadAlgorithm) {
+            AeadBenchmark aead = new AeadBenchmark(getSampleCount());
+            byte[] aad = file.getName().getBytes(StandardCharsets.UTF_8);
+            if (sampled) {
+                // A sampled algorithm only checks one block, scaled up, to stay within its budget
+                aead.measureBlock((AeadAlgorithm) algo, plaintext, SampledAnalysis.PILOT_BYTES, aad, performance);
+                writeResult(algo.getName() + " Tag Verification Time (ms, estimated from the first "
+                        + SampledAnalysis.PILOT_BYTES / 1024 + " KB): " + performance.getTagVerificationTime());
+            } else {
+                aead.measure((AeadAlgorithm) algo, plaintext, aad, performance);
+                writeResult(algo.getName() + " Tag Verification Time (ms): " + performance.getTagVerificationTime());
+            }
+        }
+        return performance;
+    }
+    
+    // Child JVM side of ForkedRunner: measure one algorithm and write the result file (no results.txt)
+    private static void runForkedChild(String[] args) throws Exception {
+        if (args.length < 4) {
+            System.err.println("Usage: " + ForkedRunner.CHILD_COMMAND + " <algorithm> <file> <resultFile>");
+            System.exit(2);
+        }
+        File file = new File(args[2]);
+        boolean fused = FusedAnalysisPipeline.isEnabled(file);
+        FusedAnalysisPipeline pipeline = new FusedAnalysisPipeline(FusedAnalysisPipeline.getConfiguredChunkSize(), getSampleCount());
+        byte[] plaintext = fused ? FusedAnalysisPipeline.readHead(file, FusedAnalysisPipeline.getConfiguredChunkSize())
+                : Files.readAllBytes(file.toPath());
+        AlgorithmEvaluator.AlgorithmPerformance performance = analyzeAlgorithm(args[1], file, fused, pipeline, plaintext);
+        ForkedRunner.writeResult(performance, Paths.get(args[3]));
+        flushResults();
     }
     
     // Original console mode method (as a fallback)
-    private static void runConsoleMode() throws Exception {
+    private static void runConsoleMode(File inputFile, List<String> algorithmNames) throws Exception {
         // Initialize result file
         initResultFile();
 
-        // Use the file explorer to let the user choose a file.
-        File selectedFile = FileImporter.chooseFile();
+        // Use the given file, or let the user choose one with the file explorer.
+        File selectedFile = inputFile != null ? inputFile : FileImporter.chooseFile();
         if (selectedFile == null) {
             writeResult("No file selected. Exiting.");
             closeResultFile();
@@ -283,72 +1342,50 @@ public class Main {
         String filePath = selectedFile.getAbsolutePath();
         writeResult("Selected file: " + filePath);
         
-        // Load plaintext from the selected file (used for avalanche effect and entropy tests)
-        byte[] plaintext = Files.readAllBytes(Paths.get(filePath));
-        
-        List<EncryptionAlgorithm> algorithms = Arrays.asList(
-            new AES(),
-            new DES(),
-            new TDES(),
-            new RSA(),
-            new ChaCha20(),
-            new Blowfish(),
-            new PBEEncryption()
-        );
+        // Load plaintext from the selected file (used for avalanche effect and entropy tests). The fused
+        // pipeline streams the file instead and only keeps its first chunk for the AEAD and digest benchmarks.
+        boolean fused = FusedAnalysisPipeline.isEnabled(selectedFile);
+        FusedAnalysisPipeline pipeline = new FusedAnalysisPipeline(FusedAnalysisPipeline.getConfiguredChunkSize(), getSampleCount());
+        byte[] plaintext = fused ? FusedAnalysisPipeline.readHead(selectedFile, FusedAnalysisPipeline.getConfiguredChunkSize())
+                : Files.readAllBytes(Paths.get(filePath));
+        if (fused) {
+            writeResult("Pipeline: fused single pass, " + FusedAnalysisPipeline.getConfiguredChunkSize() + "-byte chunks");
+        }
         
         // Create an evaluator to collect performance data
         AlgorithmEvaluator evaluator = new AlgorithmEvaluator();
+        ForkedRunner forkedRunner = ForkedRunner.isEnabled() ? ForkedRunner.fromSystemProperties() : null;
+        if (forkedRunner != null) {
+            writeResult("Isolation: one forked JVM per algorithm " + forkedRunner.getJvmArgs());
+        }
         
-        // Loop through each algorithm and run the tests
-        for (EncryptionAlgorithm algo : algorithms) {
-            writeResult("\n=== Testing " + algo.getName() + " ===");
-            
-            // Create performance object for this algorithm
-            AlgorithmEvaluator.AlgorithmPerformance performance = new AlgorithmEvaluator.AlgorithmPerformance(algo.getName());
-            
-            // Speed testing
-            byte[] fileBytes = Files.readAllBytes(Paths.get(filePath));
-            long startEnc = System.nanoTime();
-            byte[] ciphertext = algo.encrypt(fileBytes);
-            long endEnc = System.nanoTime();
-            double encTimeMs = (endEnc - startEnc) / 1_000_000.0;
-            double fileSizeMB = fileBytes.length / (1024.0 * 1024.0);
-            double throughput = fileSizeMB / ((endEnc - startEnc) / 1e9);
-            writeResult(algo.getName() + " Encryption Time (ms): " + encTimeMs);
-            writeResult(algo.getName() + " Throughput (MB/s): " + throughput);
-            
-            // Display samples of original and encrypted data
-            displayFileSamples(fileBytes, ciphertext, algo.getName());
-            
-            // Store the speed metrics
-            performance.setEncryptionTime(encTimeMs);
-            performance.setThroughput(throughput);
-            
-            // Avalanche Effect testing
-            byte[] originalCipher = algo.encrypt(plaintext);
-            byte[] modifiedPlaintext = Arrays.copyOf(plaintext, plaintext.length);
-            modifiedPlaintext[0] ^= 0x01;
-            byte[] modifiedCipher = algo.encrypt(modifiedPlaintext);
-            int distance = hammingDistance(originalCipher, modifiedCipher);
-            writeResult(algo.getName() + " Avalanche Effect Hamming Distance: " + distance);
-            
-            // Store avalanche effect
-            performance.setAvalancheEffect(distance);
-            
-            // Randomness and Entropy testing
-            double entropy = calculateEntropy(ciphertext);
-            writeResult(algo.getName() + " Ciphertext Shannon Entropy: " + entropy);
-            
-            // Store entropy
-            performance.setEntropy(entropy);
-            
-            // Display and store the key length
-            int keyLength = algo.getKeyLength();
-            writeResult(algo.getName() + " Key Length (bits): " + keyLength);
-            performance.setKeyLength(keyLength);
+        // Loop through each selected algorithm and run the tests; each is created (and keyed) only when its turn comes
+        for (String algorithmName : algorithmNames) {
+            AlgorithmEvaluator.AlgorithmPerformance performance;
+            try {
+                performance = forkedRunner != null
+                        ? forkedRunner.run(algorithmName, selectedFile, Main::writeResult)
+                        : analyzeAlgorithm(algorithmName, selectedFile, fused, pipeline, plaintext);
+            } finally {
+                // Keep the log of a failed measurement (e.g. a child JVM's stack trace)
+                flushResults();
+            }
             
             // Add this algorithm's performance to the evaluator
             evaluator.addPerformance(performance);
+            
+            // Write out this algorithm's log before the next one is measured
+            flushResults();
+        }
+        
+        // Digest/MAC costs on the same data, for the combined encrypt+integrity view
+        IntegrityBenchmark integrityBenchmark = new IntegrityBenchmark(getSampleCount());
+        for (IntegrityAlgorithm integrity : IntegrityBenchmark.createAvailable(getIntegritySelection())) {
+            writeResult("\n=== Testing " + integrity.getName() + " ===");
+            AlgorithmEvaluator.IntegrityPerformance integrityPerformance = integrityBenchmark.measure(integrity, plaintext);
+            writeResult(integrity.getName() + " Throughput (MB/s): " + integrityPerformance.getThroughput());
+            writeResult(integrity.getName() + " Small Message Latency (us): " + integrityPerformance.getSmallMessageLatency());
+            evaluator.addIntegrityPerformance(integrityPerformance);
         }
         
         // Normalize scores and compare algorithms
@@ -357,9 +1394,34 @@ public class Main {
         
         // Display comparison and recommendations
         compareAndRecommend(sortedPerformances);
+        for (String line : formatScoringReport(evaluator)) {
+            writeResult(line);
+        }
+        for (String line : formatAeadReport(sortedPerformances)) {
+            writeResult(line);
+        }
+        for (String line : formatTimelineReport(sortedPerformances)) {
+            writeResult(line);
+        }
+        for (String line : formatIntegrityReport(evaluator)) {
+            writeResult(line);
+        }
         
         // check system resource usage after running tests
         measureResourceUsage();
+        if (fused) {
+            for (String line : formatArenaStats(BufferArena.getShared())) {
+                writeResult(line);
+            }
+        }
+        
+        // Append this run to the structured results history
+        try {
+            ResultsStore store = new ResultsStore();
+            writeResult("Run stored in " + store.recordRun(selectedFile, sortedPerformances, getRunConfig("console", algorithmNames, selectedFile)));
+        } catch (IOException e) {
+            System.err.println("Error storing run: " + e.getMessage());
+        }
 
         // Close result file
         closeResultFile();
@@ -0,0 +1,153 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Runs every block cipher in every mode of operation and collects a cipher x mode matrix of
+// encryption and decryption throughput.
+public class ModeMatrix {
+
+    // Creates a block cipher in the given mode (null padding = the mode's default)
+    public interface BlockCipherFactory {
+        EncryptionAlgorithm create(BlockCipherMode mode, String padding) throws Exception;
+    }
+
+    public static final Map<String, BlockCipherFactory> BLOCK_CIPHERS = new LinkedHashMap<>();
+
+    static {
+        BLOCK_CIPHERS.put("AES", AES::new);
+        BLOCK_CIPHERS.put("DES", DES::new);
+        BLOCK_CIPHERS.put("TDES", TDES::new);
+        BLOCK_CIPHERS.put("Blowfish", Blowfish::new);
+    }
+
+    // One cell of the matrix
+    public static class Cell {
+        private final String cipher;
+        private final BlockCipherMode mode;
+        private final double encryptThroughput;
+        private final double decryptThroughput;
+        private final String error;
+
+        public Cell(String cipher, BlockCipherMode mode, double encryptThroughput, double decryptThroughput, String error) {
+            this.cipher = cipher;
+            this.mode = mode;
+            this.encryptThroughput = encryptThroughput;
+            this.decryptThroughput = decryptThroughput;
+            this.error = error;
+        }
+
+        public String getCipher() {
+            return cipher;
+        }
+
+        public BlockCipherMode getMode() {
+            return mode;
+        }
+
+        public double getEncryptThroughput() {
+            return encryptThroughput;
+        }
+
+        public double getDecryptThroughput() {
+            return decryptThroughput;
+        }
+
+        public boolean isSupported() {
+            return error == null;
+        }
+
+        public String getError() {
+            return error;
+        }
+    }
+
+    private final int samples;
+
+    public ModeMatrix(int samples) {
+        this.samples = Math.max(1, samples);
+    }
+
+    // Measure one cipher in every mode
+    public List<Cell> measure(String cipher, byte[] payload) {
+        BlockCipherFactory factory = BLOCK_CIPHERS.get(cipher);
+        if (factory == null) {
+            throw new IllegalArgumentException("Not a block cipher: " + cipher + " (available: " + BLOCK_CIPHERS.keySet() + ")");
+        }
+        List<Cell> cells = new ArrayList<>();
+        for (BlockCipherMode mode : BlockCipherMode.values()) {
+            cells.add(measureCell(factory, cipher, mode, payload));
+        }
+        return cells;
+    }
+
+    private Cell measureCell(BlockCipherFactory factory, String cipher, BlockCipherMode mode, byte[] payload) {
+        try {
+            EncryptionAlgorithm algorithm = factory.create(mode, null);
+            // Warm-up call, also checks that IV handling round-trips the data
+            byte[] ciphertext = algorithm.encrypt(payload);
+            if (!Arrays.equals(payload, algorithm.decrypt(ciphertext))) {
+                return new Cell(cipher, mode, Double.NaN, Double.NaN, "round trip mismatch");
+            }
+            double[] encryptTimes = new double[samples];
+            double[] decryptTimes = new double[samples];
+            for (int i = 0; i < samples; i++) {
+                long start = System.nanoTime();
+                ciphertext = algorithm.encrypt(payload);
+                encryptTimes[i] = (System.nanoTime() - start) / 1_000_000.0;
+                start = System.nanoTime();
+                algorithm.decrypt(ciphertext);
+                decryptTimes[i] = (System.nanoTime() - start) / 1_000_000.0;
+            }
+            double sizeMB = payload.length / (1024.0 * 1024.0);
+            return new Cell(cipher, mode, sizeMB / (RunComparator.mean(encryptTimes) / 1000.0),
+                    sizeMB / (RunComparator.mean(decryptTimes) / 1000.0), null);
+        } catch (Exception e) {
+            return new Cell(cipher, mode, Double.NaN, Double.NaN, e.getClass().getSimpleName() + ": " + e.getMessage());
+        }
+    }
+
+    // Print encryption and decryption matrices (ciphers as rows, modes as columns)
+    public static void printMatrix(List<Cell> cells) {
+        printTable("Encrypt throughput (MB/s)", cells, true);
+        printTable("Decrypt throughput (MB/s)", cells, false);
+
+        Main.writeResult("\nBlock-parallel modes (P) can process blocks independently; sequential modes (S) chain every block:");
+        for (BlockCipherMode mode : BlockCipherMode.values()) {
+            Main.writeResult(String.format("  %-4s encrypt %s, decrypt %s, padding %s", mode,
+                    mode.isParallelEncrypt() ? "P" : "S", mode.isParallelDecrypt() ? "P" : "S", mode.getDefaultPadding()));
+        }
+        for (Cell cell : cells) {
+            if (!cell.isSupported()) {
+                Main.writeResult("  " + cell.getCipher() + " in " + cell.getMode() + " skipped: " + cell.getError());
+            }
+        }
+    }
+
+    private static void printTable(String title, List<Cell> cells, boolean encrypt) {
+        Main.writeResult("\n=== " + title + " ===");
+        StringBuilder header = new StringBuilder(String.format("%-10s", "Cipher"));
+        for (BlockCipherMode mode : BlockCipherMode.values()) {
+            boolean parallel = encrypt ? mode.isParallelEncrypt() : mode.isParallelDecrypt();
+            header.append(String.format(" %-10s", mode + (parallel ? " (P)" : " (S)")));
+        }
+        Main.writeResult(header.toString());
+        String cipher = null;
+        StringBuilder row = null;
+        for (Cell cell : cells) {
+            if (!cell.getCipher().equals(cipher)) {
+                if (row != null) {
+                    Main.writeResult(row.toString());
+                }
+                cipher = cell.getCipher();
+                row = new StringBuilder(String.format("%-10s", cipher));
+            }
+            row.append(String.format(" %-10s", !cell.isSupported() ? "n/a"
+                    : String.format("%.2f", encrypt ? cell.getEncryptThroughput() : cell.getDecryptThroughput())));
+        }
+        if (row != null) {
+            Main.writeResult(row.toString());
+        }
+    }
+}
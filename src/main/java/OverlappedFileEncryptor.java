@@ -0,0 +1,320 @@
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+
+// Disk-to-disk encryption with overlapped I/O. Three chunk slots rotate so that, while chunk i is
+// encrypted on the calling thread, chunk i+1 is already being read and chunk i-1 written through
+// AsynchronousFileChannel. A slot is only refilled once its previous write has completed.
+//
+// The output is a sequence of records: a 4-byte big-endian ciphertext length followed by the
+// ciphertext of one chunk (each chunk is encrypted as a separate message).
+//
+// The calling thread's time is split into encryption and waiting for reads or writes, so the
+// fraction of the job that is CPU-bound vs I/O-bound can be reported. The same loop also runs
+// without overlap (read, encrypt, write one chunk after the other) as a baseline.
+public class OverlappedFileEncryptor {
+
+    public static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+    private static final int SLOTS = 3;
+
+    // Outcome of one disk-to-disk pass
+    public static class Result {
+        private final String algorithm;
+        private final boolean overlapped;
+        private final long bytes;
+        private final int chunks;
+        private final long elapsedNanos;
+        private final long encryptNanos;
+        private final long readWaitNanos;
+        private final long writeWaitNanos;
+
+        public Result(String algorithm, boolean overlapped, long bytes, int chunks, long elapsedNanos,
+                      long encryptNanos, long readWaitNanos, long writeWaitNanos) {
+            this.algorithm = algorithm;
+            this.overlapped = overlapped;
+            this.bytes = bytes;
+            this.chunks = chunks;
+            this.elapsedNanos = elapsedNanos;
+            this.encryptNanos = encryptNanos;
+            this.readWaitNanos = readWaitNanos;
+            this.writeWaitNanos = writeWaitNanos;
+        }
+
+        public String getAlgorithm() {
+            return algorithm;
+        }
+
+        public boolean isOverlapped() {
+            return overlapped;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public int getChunks() {
+            return chunks;
+        }
+
+        public double getElapsedMs() {
+            return elapsedNanos / 1_000_000.0;
+        }
+
+        public double getEncryptMs() {
+            return encryptNanos / 1_000_000.0;
+        }
+
+        // Time the encrypting thread spent waiting for a chunk to be read
+        public double getReadWaitMs() {
+            return readWaitNanos / 1_000_000.0;
+        }
+
+        // Time the encrypting thread spent waiting for a slot's write (and the final flush)
+        public double getWriteWaitMs() {
+            return writeWaitNanos / 1_000_000.0;
+        }
+
+        public double getThroughput() {
+            return bytes / (1024.0 * 1024.0) / (elapsedNanos / 1e9);
+        }
+
+        // Share of the elapsed time spent encrypting
+        public double getCpuFraction() {
+            return elapsedNanos == 0 ? 0.0 : (double) encryptNanos / elapsedNanos;
+        }
+
+        // Share of the elapsed time spent waiting for the disk
+        public double getIoFraction() {
+            return elapsedNanos == 0 ? 0.0 : (double) (readWaitNanos + writeWaitNanos) / elapsedNanos;
+        }
+
+        // The limiting resource: the disk when waiting for it took longer than encrypting
+        public boolean isIoBound() {
+            return readWaitNanos + writeWaitNanos > encryptNanos;
+        }
+    }
+
+    // Buffers of one chunk in flight
+    private static class Slot {
+        byte[] plaintext;
+        ByteBuffer record;  // length prefix + ciphertext, as written
+        byte[] recordArray; // arena array behind record, if any
+        CompletableFuture<Integer> read;
+        CompletableFuture<Void> write;
+    }
+
+    private final EncryptionAlgorithm algorithm;
+    private final BufferedEncryption buffered; // null = plain byte[] API
+    private final int chunkSize;
+    private final BufferArena arena;
+
+    public OverlappedFileEncryptor(EncryptionAlgorithm algorithm, int chunkSize) {
+        this(algorithm, chunkSize, BufferArena.getShared());
+    }
+
+    public OverlappedFileEncryptor(EncryptionAlgorithm algorithm, int chunkSize, BufferArena arena) {
+        this.algorithm = algorithm;
+        this.buffered = algorithm instanceof BufferedEncryption ? (BufferedEncryption) algorithm : null;
+        this.chunkSize = chunkSize;
+        this.arena = arena;
+    }
+
+    // Encrypt input into output; overlapped = false runs read, encrypt and write strictly in turn
+    public Result encryptFile(Path input, Path output, boolean overlapped) throws Exception {
+        long fileSize = Files.size(input);
+        Slot[] slots = new Slot[SLOTS];
+        for (int i = 0; i < SLOTS; i++) {
+            slots[i] = new Slot();
+            slots[i].plaintext = arena.acquire(chunkSize);
+        }
+        long encryptNanos = 0;
+        long readWaitNanos = 0;
+        long writeWaitNanos = 0;
+        int chunks = 0;
+        long start = System.nanoTime();
+        try (AsynchronousFileChannel in = AsynchronousFileChannel.open(input, StandardOpenOption.READ);
+             AsynchronousFileChannel out = AsynchronousFileChannel.open(output, StandardOpenOption.WRITE,
+                     StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long readPosition = 0;
+            long writePosition = 0;
+            slots[0].read = readFully(in, ByteBuffer.wrap(slots[0].plaintext, 0, chunkSize), readPosition);
+            for (int index = 0; ; index++) {
+                Slot slot = slots[index % SLOTS];
+                long waitStart = System.nanoTime();
+                int read = slot.read.get();
+                readWaitNanos += System.nanoTime() - waitStart;
+                if (read <= 0) break;
+                readPosition += read;
+
+                Slot next = slots[(index + 1) % SLOTS];
+                if (overlapped && readPosition < fileSize) {
+                    // Start reading the next chunk before encrypting this one
+                    next.read = readFully(in, ByteBuffer.wrap(next.plaintext, 0, chunkSize), readPosition);
+                }
+
+                // The slot's record buffer is free once its previous write has finished
+                waitStart = System.nanoTime();
+                completeWrite(slot);
+                writeWaitNanos += System.nanoTime() - waitStart;
+
+                long encryptStart = System.nanoTime();
+                encryptRecord(slot, read);
+                encryptNanos += System.nanoTime() - encryptStart;
+
+                int recordLength = slot.record.remaining();
+                slot.write = writeFully(out, slot.record, writePosition);
+                writePosition += recordLength;
+                chunks++;
+
+                if (!overlapped) {
+                    waitStart = System.nanoTime();
+                    completeWrite(slot);
+                    writeWaitNanos += System.nanoTime() - waitStart;
+                }
+                if (!overlapped || readPosition >= fileSize) {
+                    next.read = readPosition >= fileSize ? CompletableFuture.completedFuture(-1)
+                            : readFully(in, ByteBuffer.wrap(next.plaintext, 0, chunkSize), readPosition);
+                }
+            }
+            // Drain the remaining writes and flush them to the device
+            long waitStart = System.nanoTime();
+            for (Slot slot : slots) {
+                completeWrite(slot);
+            }
+            out.force(false);
+            writeWaitNanos += System.nanoTime() - waitStart;
+        } finally {
+            for (Slot slot : slots) {
+                arena.release(slot.plaintext);
+                arena.release(slot.recordArray);
+            }
+        }
+        return new Result(algorithm.getName(), overlapped, fileSize, chunks, System.nanoTime() - start,
+                encryptNanos, readWaitNanos, writeWaitNanos);
+    }
+
+    // Encrypt the slot's plaintext into its record buffer: length prefix, then the ciphertext
+    private void encryptRecord(Slot slot, int length) throws Exception {
+        if (buffered != null) {
+            int capacity = 4 + buffered.getMaxEncryptedLength(length);
+            if (slot.recordArray == null || slot.recordArray.length < capacity) {
+                arena.release(slot.recordArray);
+                slot.recordArray = arena.acquire(capacity);
+            }
+            int ciphertextLength = buffered.encrypt(slot.plaintext, 0, length, slot.recordArray, 4);
+            slot.record = ByteBuffer.wrap(slot.recordArray, 0, 4 + ciphertextLength);
+            slot.record.putInt(0, ciphertextLength);
+        } else {
+            byte[] ciphertext = algorithm.encrypt(Arrays.copyOf(slot.plaintext, length));
+            slot.record = ByteBuffer.allocate(4 + ciphertext.length);
+            slot.record.putInt(ciphertext.length).put(ciphertext).flip();
+        }
+    }
+
+    private static void completeWrite(Slot slot) throws Exception {
+        if (slot.write != null) {
+            slot.write.get();
+            slot.write = null;
+        }
+    }
+
+    // Read until the buffer is full or the file ends; completes with the bytes read (-1 at end of file)
+    private static CompletableFuture<Integer> readFully(AsynchronousFileChannel channel, ByteBuffer buffer, long position) {
+        CompletableFuture<Integer> done = new CompletableFuture<>();
+        channel.read(buffer, position, null, new CompletionHandler<Integer, Void>() {
+            private int total;
+
+            @Override
+            public void completed(Integer read, Void attachment) {
+                if (read > 0) {
+                    total += read;
+                }
+                if (read < 0 || !buffer.hasRemaining()) {
+                    done.complete(total == 0 && read < 0 ? -1 : total);
+                } else {
+                    channel.read(buffer, position + total, null, this);
+                }
+            }
+
+            @Override
+            public void failed(Throwable error, Void attachment) {
+                done.completeExceptionally(error);
+            }
+        });
+        return done;
+    }
+
+    // Write the whole buffer, continuing after short writes
+    private static CompletableFuture<Void> writeFully(AsynchronousFileChannel channel, ByteBuffer buffer, long position) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        channel.write(buffer, position, null, new CompletionHandler<Integer, Void>() {
+            private long written;
+
+            @Override
+            public void completed(Integer count, Void attachment) {
+                written += count;
+                if (buffer.hasRemaining()) {
+                    channel.write(buffer, position + written, null, this);
+                } else {
+                    done.complete(null);
+                }
+            }
+
+            @Override
+            public void failed(Throwable error, Void attachment) {
+                done.completeExceptionally(error);
+            }
+        });
+        return done;
+    }
+
+    // Decrypt every record of an encrypted file and compare it with the original, chunk by chunk
+    public boolean verify(Path original, Path encrypted) throws Exception {
+        try (InputStream plain = new BufferedInputStream(Files.newInputStream(original));
+             DataInputStream records = new DataInputStream(new BufferedInputStream(Files.newInputStream(encrypted)))) {
+            byte[] expected = new byte[chunkSize];
+            while (true) {
+                int length;
+                try {
+                    length = records.readInt();
+                } catch (EOFException e) {
+                    return plain.read() < 0;
+                }
+                byte[] ciphertext = new byte[length];
+                records.readFully(ciphertext);
+                byte[] decrypted = algorithm.decrypt(ciphertext);
+                if (decrypted.length > chunkSize || plain.readNBytes(expected, 0, decrypted.length) != decrypted.length
+                        || !Arrays.equals(expected, 0, decrypted.length, decrypted, 0, decrypted.length)) {
+                    return false;
+                }
+            }
+        }
+    }
+
+    public static void printResults(Result[][] results) {
+        Main.writeResult("\n=== Disk-to-disk encryption: sequential vs overlapped ===");
+        Main.writeResultf("%-18s %-12s %-12s %-12s %-10s %-10s %-8s %-8s %-8s%n", "Algorithm", "Seq MB/s",
+                "Ovl MB/s", "Speedup", "Encrypt", "I/O wait", "CPU %", "I/O %", "Bound");
+        for (Result[] pair : results) {
+            Result sequential = pair[0];
+            Result overlapped = pair[1];
+            Main.writeResultf("%-18s %-12.2f %-12.2f %-12s %-10.1f %-10.1f %-8.0f %-8.0f %-8s%n", overlapped.getAlgorithm(),
+                    sequential.getThroughput(), overlapped.getThroughput(),
+                    String.format("%.2fx", sequential.getElapsedMs() / overlapped.getElapsedMs()),
+                    overlapped.getEncryptMs(), overlapped.getReadWaitMs() + overlapped.getWriteWaitMs(),
+                    100.0 * overlapped.getCpuFraction(), 100.0 * overlapped.getIoFraction(),
+                    overlapped.isIoBound() ? "I/O" : "CPU");
+        }
+        Main.writeResult("Encrypt / I/O wait in ms of the overlapped run; CPU % and I/O % are shares of its elapsed time.");
+    }
+}
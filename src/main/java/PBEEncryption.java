@@ -1,52 +1,133 @@
 import javax.crypto.Cipher;
 import javax.crypto.SecretKey;
 import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.PBEKeySpec;
 import javax.crypto.spec.PBEParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
 import java.security.SecureRandom;
 
-public class PBEEncryption implements EncryptionAlgorithm {
+// Password-based encryption. The default configuration is PBEWithMD5AndDES, where the key is
+// re-derived inside every Cipher.init. The PBKDF2 configurations derive an AES-256 key explicitly
+// (optionally through a DerivedKeyCache) and store the salt and IV in front of the ciphertext,
+// so the cost of key derivation is visible and can be skipped for data sharing a salt.
+public class PBEEncryption extends JcaAlgorithm implements EncryptionAlgorithm {
+    public static final int DEFAULT_PBKDF2_ITERATIONS = 100_000;
+    private static final int PBKDF2_SALT_LENGTH = 16;
+    private static final int AES_KEY_BITS = 256;
+    private static final int IV_LENGTH = 16;
+
     private SecretKey key;
     private byte[] salt;
-    private final int iterationCount = 1000;
-    private final String transformation = "PBEWithMD5AndDES";
+    private final int iterationCount;
+    private final String kdf; // null = PBEWithMD5AndDES
+    private final char[] password;
+    private final DerivedKeyCache keyCache; // null = derive on every operation
 
     public PBEEncryption() throws Exception {
+        super("PBEWithMD5AndDES");
         // Fixed password for demonstration purposes
         String password = "secretPassword";
+        this.password = password.toCharArray();
+        this.iterationCount = 1000;
+        this.kdf = null;
+        this.keyCache = null;
         // Generate an 8-byte salt
         salt = new byte[8];
         SecureRandom random = new SecureRandom();
         random.nextBytes(salt);
 
-        PBEKeySpec keySpec = new PBEKeySpec(password.toCharArray());
-        SecretKeyFactory keyFactory = SecretKeyFactory.getInstance(transformation);
+        PBEKeySpec keySpec = new PBEKeySpec(this.password);
+        SecretKeyFactory keyFactory = SecretKeyFactory.getInstance(getTransformation());
         key = keyFactory.generateSecret(keySpec);
     }
 
+    // PBKDF2 key derivation (e.g. "PBKDF2WithHmacSHA256") followed by AES-256-CBC
+    public PBEEncryption(String kdf, int iterations, char[] password, DerivedKeyCache keyCache) throws Exception {
+        super("AES/CBC/PKCS5Padding");
+        this.kdf = kdf;
+        this.iterationCount = iterations;
+        this.password = password.clone();
+        this.keyCache = keyCache;
+        salt = new byte[PBKDF2_SALT_LENGTH];
+        new SecureRandom().nextBytes(salt);
+        // Fails early if the KDF is not available
+        SecretKeyFactory.getInstance(kdf);
+    }
+
+    // PBKDF2 configuration with the demonstration password, iterations from -Dpbe.iterations
+    public static PBEEncryption pbkdf2(String kdf) throws Exception {
+        return new PBEEncryption(kdf, Integer.getInteger("pbe.iterations", DEFAULT_PBKDF2_ITERATIONS),
+                "secretPassword".toCharArray(), DerivedKeyCache.getShared());
+    }
+
     @Override
     public byte[] encrypt(byte[] plaintext) throws Exception {
-        Cipher cipher = Cipher.getInstance(transformation);
-        PBEParameterSpec paramSpec = new PBEParameterSpec(salt, iterationCount);
-        cipher.init(Cipher.ENCRYPT_MODE, key, paramSpec);
-        return cipher.doFinal(plaintext);
+        Cipher cipher = newCipher();
+        if (kdf == null) {
+            PBEParameterSpec paramSpec = new PBEParameterSpec(salt, iterationCount);
+            cipher.init(Cipher.ENCRYPT_MODE, key, paramSpec);
+            return cipher.doFinal(plaintext);
+        }
+        byte[] iv = new byte[IV_LENGTH];
+        new SecureRandom().nextBytes(iv);
+        cipher.init(Cipher.ENCRYPT_MODE, deriveKey(salt), new IvParameterSpec(iv));
+        // Output: salt || IV || ciphertext
+        byte[] output = new byte[salt.length + IV_LENGTH + cipher.getOutputSize(plaintext.length)];
+        System.arraycopy(salt, 0, output, 0, salt.length);
+        System.arraycopy(iv, 0, output, salt.length, IV_LENGTH);
+        cipher.doFinal(plaintext, 0, plaintext.length, output, salt.length + IV_LENGTH);
+        return output;
     }
 
     @Override
     public byte[] decrypt(byte[] ciphertext) throws Exception {
-        Cipher cipher = Cipher.getInstance(transformation);
-        PBEParameterSpec paramSpec = new PBEParameterSpec(salt, iterationCount);
-        cipher.init(Cipher.DECRYPT_MODE, key, paramSpec);
-        return cipher.doFinal(ciphertext);
+        Cipher cipher = newCipher();
+        if (kdf == null) {
+            PBEParameterSpec paramSpec = new PBEParameterSpec(salt, iterationCount);
+            cipher.init(Cipher.DECRYPT_MODE, key, paramSpec);
+            return cipher.doFinal(ciphertext);
+        }
+        int headerLength = PBKDF2_SALT_LENGTH + IV_LENGTH;
+        if (ciphertext.length < headerLength) {
+            throw new IllegalArgumentException("Ciphertext too short");
+        }
+        byte[] messageSalt = new byte[PBKDF2_SALT_LENGTH];
+        System.arraycopy(ciphertext, 0, messageSalt, 0, PBKDF2_SALT_LENGTH);
+        cipher.init(Cipher.DECRYPT_MODE, deriveKey(messageSalt), new IvParameterSpec(ciphertext, PBKDF2_SALT_LENGTH, IV_LENGTH));
+        return cipher.doFinal(ciphertext, headerLength, ciphertext.length - headerLength);
+    }
+
+    // Derive the AES key for a salt, through the cache when one is configured
+    private SecretKey deriveKey(byte[] keySalt) throws Exception {
+        if (keyCache == null) {
+            return derive(kdf, password, keySalt, iterationCount);
+        }
+        return keyCache.get(kdf, password, keySalt, iterationCount, () -> derive(kdf, password, keySalt, iterationCount));
+    }
+
+    // One PBKDF2 derivation of an AES-256 key
+    public static SecretKey derive(String kdf, char[] password, byte[] salt, int iterations) throws Exception {
+        PBEKeySpec keySpec = new PBEKeySpec(password, salt, iterations, AES_KEY_BITS);
+        try {
+            byte[] encoded = SecretKeyFactory.getInstance(kdf).generateSecret(keySpec).getEncoded();
+            return new SecretKeySpec(encoded, "AES");
+        } finally {
+            keySpec.clearPassword();
+        }
+    }
+
+    public DerivedKeyCache getKeyCache() {
+        return keyCache;
     }
 
     @Override
     public int getKeyLength() {
-        return key.getEncoded().length * 8;
+        return kdf == null ? key.getEncoded().length * 8 : AES_KEY_BITS;
     }
 
     @Override
     public String getName() {
-        return "PBEWithMD5AndDES";
+        return kdf == null ? "PBEWithMD5AndDES" : kdf.replace("PBKDF2WithHmac", "PBKDF2-") + "-AES";
     }
 }
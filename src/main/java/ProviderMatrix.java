@@ -0,0 +1,192 @@
+import java.security.Provider;
+import java.security.Security;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import javax.crypto.Cipher;
+
+// Runs every algorithm against every installed JCA provider that offers its transformation and
+// collects a provider x algorithm throughput/latency matrix.
+public class ProviderMatrix {
+
+    public static final String BUNDLED_PROVIDER_CLASS = "org.bouncycastle.jce.provider.BouncyCastleProvider";
+    public static final int DEFAULT_SAMPLES = 5;
+
+    // One cell of the matrix
+    public static class Cell {
+        private final String algorithm;
+        private final String provider;
+        private final double latencyMs;
+        private final double throughput;
+        private final String error;
+
+        public Cell(String algorithm, String provider, double latencyMs, double throughput, String error) {
+            this.algorithm = algorithm;
+            this.provider = provider;
+            this.latencyMs = latencyMs;
+            this.throughput = throughput;
+            this.error = error;
+        }
+
+        public String getAlgorithm() {
+            return algorithm;
+        }
+
+        public String getProvider() {
+            return provider;
+        }
+
+        public double getLatencyMs() {
+            return latencyMs;
+        }
+
+        public double getThroughput() {
+            return throughput;
+        }
+
+        public boolean isSupported() {
+            return error == null;
+        }
+
+        public String getError() {
+            return error;
+        }
+    }
+
+    private final int samples;
+
+    public ProviderMatrix(int samples) {
+        this.samples = Math.max(1, samples);
+    }
+
+    // Register the optional bundled pure-Java provider if it is on the classpath.
+    // Returns its name, or null if it is not available.
+    public static String installBundledProvider() {
+        try {
+            Provider provider = (Provider) Class.forName(BUNDLED_PROVIDER_CLASS).getDeclaredConstructor().newInstance();
+            if (Security.getProvider(provider.getName()) == null) {
+                // Lowest priority, so the default provider selection is not affected
+                Security.addProvider(provider);
+            }
+            return provider.getName();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    // Providers that offer the cipher algorithm of a transformation such as "AES/ECB/PKCS5Padding"
+    public static List<Provider> providersFor(String transformation) {
+        String cipherAlgorithm = transformation.split("/")[0];
+        List<Provider> providers = new ArrayList<>();
+        for (Provider provider : Security.getProviders()) {
+            try {
+                Cipher.getInstance(transformation, provider);
+                providers.add(provider);
+            } catch (Exception e) {
+                // Only the base algorithm may be registered; check the service table as well
+                if (provider.getService("Cipher", cipherAlgorithm) != null) {
+                    providers.add(provider);
+                }
+            }
+        }
+        return providers;
+    }
+
+    // Measure one algorithm on every provider offering its transformation
+    public List<Cell> measure(EncryptionAlgorithm algorithm, byte[] payload) {
+        List<Cell> cells = new ArrayList<>();
+        if (!(algorithm instanceof ProviderSelectable)) {
+            cells.add(measureCell(algorithm, "default", payload));
+            return cells;
+        }
+        ProviderSelectable selectable = (ProviderSelectable) algorithm;
+        Provider original = selectable.getProvider();
+        try {
+            for (Provider provider : providersFor(selectable.getTransformation())) {
+                selectable.setProvider(provider);
+                cells.add(measureCell(algorithm, provider.getName(), payload));
+            }
+        } finally {
+            selectable.setProvider(original);
+        }
+        return cells;
+    }
+
+    private Cell measureCell(EncryptionAlgorithm algorithm, String providerName, byte[] payload) {
+        try {
+            // Warm-up call, also checks that the provider accepts the key and round-trips the data
+            byte[] ciphertext = algorithm.encrypt(payload);
+            if (!Arrays.equals(payload, algorithm.decrypt(ciphertext))) {
+                return new Cell(algorithm.getName(), providerName, Double.NaN, Double.NaN, "round trip mismatch");
+            }
+            double[] times = new double[samples];
+            for (int i = 0; i < samples; i++) {
+                long start = System.nanoTime();
+                algorithm.encrypt(payload);
+                times[i] = (System.nanoTime() - start) / 1_000_000.0;
+            }
+            double latencyMs = RunComparator.mean(times);
+            double throughput = payload.length / (1024.0 * 1024.0) / (latencyMs / 1000.0);
+            return new Cell(algorithm.getName(), providerName, latencyMs, throughput, null);
+        } catch (Exception e) {
+            return new Cell(algorithm.getName(), providerName, Double.NaN, Double.NaN,
+                    e.getClass().getSimpleName() + ": " + e.getMessage());
+        }
+    }
+
+    // Print throughput and latency matrices (algorithms as rows, providers as columns)
+    public static void printMatrix(List<Cell> cells) {
+        Set<String> algorithms = new LinkedHashSet<>();
+        Set<String> providers = new LinkedHashSet<>();
+        for (Cell cell : cells) {
+            algorithms.add(cell.getAlgorithm());
+            providers.add(cell.getProvider());
+        }
+        printTable("Throughput (MB/s)", cells, algorithms, providers, true);
+        printTable("Latency (ms)", cells, algorithms, providers, false);
+
+        Main.writeResult("\nFastest provider per algorithm:");
+        for (String algorithm : algorithms) {
+            Cell best = null;
+            for (Cell cell : cells) {
+                if (cell.getAlgorithm().equals(algorithm) && cell.isSupported()
+                        && (best == null || cell.getThroughput() > best.getThroughput())) {
+                    best = cell;
+                }
+            }
+            Main.writeResult(String.format("  %-18s %s", algorithm, best == null ? "none" : best.getProvider()
+                    + String.format(" (%.2f MB/s)", best.getThroughput())));
+        }
+        for (Cell cell : cells) {
+            if (!cell.isSupported()) {
+                Main.writeResult("  " + cell.getAlgorithm() + " on " + cell.getProvider() + " skipped: " + cell.getError());
+            }
+        }
+    }
+
+    private static void printTable(String title, List<Cell> cells, Set<String> algorithms, Set<String> providers,
+                                   boolean throughput) {
+        Main.writeResult("\n=== " + title + " ===");
+        StringBuilder header = new StringBuilder(String.format("%-18s", "Algorithm"));
+        for (String provider : providers) {
+            header.append(String.format(" %-12s", provider));
+        }
+        Main.writeResult(header.toString());
+        for (String algorithm : algorithms) {
+            StringBuilder row = new StringBuilder(String.format("%-18s", algorithm));
+            for (String provider : providers) {
+                String value = "-";
+                for (Cell cell : cells) {
+                    if (cell.getAlgorithm().equals(algorithm) && cell.getProvider().equals(provider)) {
+                        value = !cell.isSupported() ? "n/a"
+                                : String.format("%.2f", throughput ? cell.getThroughput() : cell.getLatencyMs());
+                    }
+                }
+                row.append(String.format(" %-12s", value));
+            }
+            Main.writeResult(row.toString());
+        }
+    }
+}
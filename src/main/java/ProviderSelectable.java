@@ -0,0 +1,12 @@
+import java.security.Provider;
+
+// Implemented by algorithms built on a JCA Cipher, so they can be measured against a specific provider
+public interface ProviderSelectable {
+    // The Cipher transformation the algorithm requests, e.g. "AES/ECB/PKCS5Padding"
+    String getTransformation();
+
+    // Use the given provider for all cipher operations; null selects the default provider
+    void setProvider(Provider provider);
+
+    Provider getProvider();
+}
@@ -0,0 +1,246 @@
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+// Pure-Java ChaCha20 (RFC 7539) engine, byte-compatible with the ChaCha20 class: a random 12-byte
+// nonce is prepended to the ciphertext and the block counter starts at 1.
+//
+// The multi-block function computes LANES blocks at once. Each of the 16 state words is an array
+// holding that word for every block, so every step of a quarter round is a fixed-length loop over
+// adjacent ints that the JIT compiles to SIMD instructions. Blocks that do not fill all lanes, and
+// every block when the multi-block path is disabled (-Dchacha20.lanes=1), use the scalar block function.
+public class PureJavaChaCha20 implements EncryptionAlgorithm, BufferedEncryption {
+
+    public static final int LANES = 16;
+    private static final int NONCE_LENGTH = 12;
+    private static final int BLOCK_SIZE = 64;
+    private static final int INITIAL_COUNTER = 1;
+    private static final VarHandle LE_INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final SecretKey key;
+    private final int[] keyWords = new int[8];
+    private final boolean multiBlock;
+    private final SecureRandom random = new SecureRandom();
+
+    public PureJavaChaCha20() throws Exception {
+        this(generateKey(), Integer.getInteger("chacha20.lanes", LANES) > 1);
+    }
+
+    // Use an existing ChaCha20 key, e.g. to exchange data with the ChaCha20 class
+    public PureJavaChaCha20(SecretKey key, boolean multiBlock) {
+        byte[] encoded = key.getEncoded();
+        if (encoded.length != 32) {
+            throw new IllegalArgumentException("ChaCha20 requires a 256-bit key");
+        }
+        this.key = key;
+        this.multiBlock = multiBlock;
+        for (int i = 0; i < 8; i++) {
+            keyWords[i] = (int) LE_INT.get(encoded, i * 4);
+        }
+    }
+
+    private static SecretKey generateKey() throws Exception {
+        KeyGenerator keyGen = KeyGenerator.getInstance("ChaCha20");
+        keyGen.init(256);
+        return keyGen.generateKey();
+    }
+
+    public SecretKey getKey() {
+        return key;
+    }
+
+    // Blocks computed per call of the block function
+    public int getLanes() {
+        return multiBlock ? LANES : 1;
+    }
+
+    @Override
+    public byte[] encrypt(byte[] plaintext) throws Exception {
+        // Write the nonce and the ciphertext straight into the output array
+        byte[] output = new byte[NONCE_LENGTH + plaintext.length];
+        encrypt(plaintext, 0, plaintext.length, output, 0);
+        return output;
+    }
+
+    @Override
+    public byte[] decrypt(byte[] ciphertext) throws Exception {
+        if (ciphertext.length < NONCE_LENGTH) {
+            throw new IllegalArgumentException("Ciphertext too short");
+        }
+        byte[] output = new byte[ciphertext.length - NONCE_LENGTH];
+        decrypt(ciphertext, 0, ciphertext.length, output, 0);
+        return output;
+    }
+
+    @Override
+    public int getMaxEncryptedLength(int plaintextLength) {
+        return NONCE_LENGTH + plaintextLength;
+    }
+
+    @Override
+    public int encrypt(byte[] input, int offset, int length, byte[] output, int outputOffset) {
+        byte[] nonce = new byte[NONCE_LENGTH];
+        random.nextBytes(nonce);
+        System.arraycopy(nonce, 0, output, outputOffset, NONCE_LENGTH);
+        xorKeyStream(output, outputOffset, input, offset, output, outputOffset + NONCE_LENGTH, length);
+        return NONCE_LENGTH + length;
+    }
+
+    @Override
+    public int getMaxDecryptedLength(int ciphertextLength) {
+        return Math.max(0, ciphertextLength - NONCE_LENGTH);
+    }
+
+    @Override
+    public int decrypt(byte[] input, int offset, int length, byte[] output, int outputOffset) {
+        if (length < NONCE_LENGTH) {
+            throw new IllegalArgumentException("Ciphertext too short");
+        }
+        // The nonce is read in place from the front of the ciphertext
+        xorKeyStream(input, offset, input, offset + NONCE_LENGTH, output, outputOffset, length - NONCE_LENGTH);
+        return length - NONCE_LENGTH;
+    }
+
+    // XOR length bytes of input with the key stream for the nonce at nonce[nonceOffset]
+    private void xorKeyStream(byte[] nonce, int nonceOffset, byte[] in, int inOffset, byte[] out, int outOffset, int length) {
+        int[] initial = new int[16];
+        initial[0] = 0x61707865;
+        initial[1] = 0x3320646e;
+        initial[2] = 0x79622d32;
+        initial[3] = 0x6b206574;
+        System.arraycopy(keyWords, 0, initial, 4, 8);
+        initial[13] = (int) LE_INT.get(nonce, nonceOffset);
+        initial[14] = (int) LE_INT.get(nonce, nonceOffset + 4);
+        initial[15] = (int) LE_INT.get(nonce, nonceOffset + 8);
+
+        int counter = INITIAL_COUNTER;
+        int position = 0;
+        if (multiBlock) {
+            int[][] state = new int[16][LANES];
+            int groupBytes = BLOCK_SIZE * LANES;
+            while (length - position >= groupBytes) {
+                multiBlock(initial, counter, state);
+                for (int lane = 0; lane < LANES; lane++) {
+                    int blockOffset = position + lane * BLOCK_SIZE;
+                    for (int word = 0; word < 16; word++) {
+                        int inIndex = inOffset + blockOffset + word * 4;
+                        LE_INT.set(out, outOffset + blockOffset + word * 4, (int) LE_INT.get(in, inIndex) ^ state[word][lane]);
+                    }
+                }
+                counter += LANES;
+                position += groupBytes;
+            }
+        }
+
+        // Scalar fallback for the remaining blocks
+        int[] block = new int[16];
+        byte[] keyStreamBytes = new byte[BLOCK_SIZE];
+        while (position < length) {
+            initial[12] = counter++;
+            scalarBlock(initial, block);
+            int count = Math.min(BLOCK_SIZE, length - position);
+            if (count == BLOCK_SIZE) {
+                for (int word = 0; word < 16; word++) {
+                    int offset = position + word * 4;
+                    LE_INT.set(out, outOffset + offset, (int) LE_INT.get(in, inOffset + offset) ^ block[word]);
+                }
+            } else {
+                for (int word = 0; word < 16; word++) {
+                    LE_INT.set(keyStreamBytes, word * 4, block[word]);
+                }
+                for (int i = 0; i < count; i++) {
+                    out[outOffset + position + i] = (byte) (in[inOffset + position + i] ^ keyStreamBytes[i]);
+                }
+            }
+            position += count;
+        }
+    }
+
+    // LANES consecutive blocks starting at the given counter; x[word][lane] = rounds(input) + input
+    private static void multiBlock(int[] initial, int counter, int[][] x) {
+        for (int word = 0; word < 16; word++) {
+            Arrays.fill(x[word], initial[word]);
+        }
+        int[] counters = x[12];
+        for (int l = 0; l < LANES; l++) {
+            counters[l] = counter + l;
+        }
+        for (int round = 0; round < 10; round++) {
+            // Column rounds
+            quarterRound(x[0], x[4], x[8], x[12]);
+            quarterRound(x[1], x[5], x[9], x[13]);
+            quarterRound(x[2], x[6], x[10], x[14]);
+            quarterRound(x[3], x[7], x[11], x[15]);
+            // Diagonal rounds
+            quarterRound(x[0], x[5], x[10], x[15]);
+            quarterRound(x[1], x[6], x[11], x[12]);
+            quarterRound(x[2], x[7], x[8], x[13]);
+            quarterRound(x[3], x[4], x[9], x[14]);
+        }
+        for (int word = 0; word < 16; word++) {
+            int[] w = x[word];
+            int add = initial[word];
+            for (int l = 0; l < LANES; l++) {
+                w[l] += word == 12 ? counter + l : add;
+            }
+        }
+    }
+
+    private static void quarterRound(int[] a, int[] b, int[] c, int[] d) {
+        for (int l = 0; l < LANES; l++) {
+            a[l] += b[l];
+            d[l] = Integer.rotateLeft(d[l] ^ a[l], 16);
+            c[l] += d[l];
+            b[l] = Integer.rotateLeft(b[l] ^ c[l], 12);
+            a[l] += b[l];
+            d[l] = Integer.rotateLeft(d[l] ^ a[l], 8);
+            c[l] += d[l];
+            b[l] = Integer.rotateLeft(b[l] ^ c[l], 7);
+        }
+    }
+
+    // Single-block ChaCha20 block function
+    static void scalarBlock(int[] input, int[] output) {
+        int x0 = input[0], x1 = input[1], x2 = input[2], x3 = input[3];
+        int x4 = input[4], x5 = input[5], x6 = input[6], x7 = input[7];
+        int x8 = input[8], x9 = input[9], x10 = input[10], x11 = input[11];
+        int x12 = input[12], x13 = input[13], x14 = input[14], x15 = input[15];
+        for (int round = 0; round < 10; round++) {
+            x0 += x4; x12 = Integer.rotateLeft(x12 ^ x0, 16); x8 += x12; x4 = Integer.rotateLeft(x4 ^ x8, 12);
+            x0 += x4; x12 = Integer.rotateLeft(x12 ^ x0, 8); x8 += x12; x4 = Integer.rotateLeft(x4 ^ x8, 7);
+            x1 += x5; x13 = Integer.rotateLeft(x13 ^ x1, 16); x9 += x13; x5 = Integer.rotateLeft(x5 ^ x9, 12);
+            x1 += x5; x13 = Integer.rotateLeft(x13 ^ x1, 8); x9 += x13; x5 = Integer.rotateLeft(x5 ^ x9, 7);
+            x2 += x6; x14 = Integer.rotateLeft(x14 ^ x2, 16); x10 += x14; x6 = Integer.rotateLeft(x6 ^ x10, 12);
+            x2 += x6; x14 = Integer.rotateLeft(x14 ^ x2, 8); x10 += x14; x6 = Integer.rotateLeft(x6 ^ x10, 7);
+            x3 += x7; x15 = Integer.rotateLeft(x15 ^ x3, 16); x11 += x15; x7 = Integer.rotateLeft(x7 ^ x11, 12);
+            x3 += x7; x15 = Integer.rotateLeft(x15 ^ x3, 8); x11 += x15; x7 = Integer.rotateLeft(x7 ^ x11, 7);
+
+            x0 += x5; x15 = Integer.rotateLeft(x15 ^ x0, 16); x10 += x15; x5 = Integer.rotateLeft(x5 ^ x10, 12);
+            x0 += x5; x15 = Integer.rotateLeft(x15 ^ x0, 8); x10 += x15; x5 = Integer.rotateLeft(x5 ^ x10, 7);
+            x1 += x6; x12 = Integer.rotateLeft(x12 ^ x1, 16); x11 += x12; x6 = Integer.rotateLeft(x6 ^ x11, 12);
+            x1 += x6; x12 = Integer.rotateLeft(x12 ^ x1, 8); x11 += x12; x6 = Integer.rotateLeft(x6 ^ x11, 7);
+            x2 += x7; x13 = Integer.rotateLeft(x13 ^ x2, 16); x8 += x13; x7 = Integer.rotateLeft(x7 ^ x8, 12);
+            x2 += x7; x13 = Integer.rotateLeft(x13 ^ x2, 8); x8 += x13; x7 = Integer.rotateLeft(x7 ^ x8, 7);
+            x3 += x4; x14 = Integer.rotateLeft(x14 ^ x3, 16); x9 += x14; x4 = Integer.rotateLeft(x4 ^ x9, 12);
+            x3 += x4; x14 = Integer.rotateLeft(x14 ^ x3, 8); x9 += x14; x4 = Integer.rotateLeft(x4 ^ x9, 7);
+        }
+        output[0] = x0 + input[0]; output[1] = x1 + input[1]; output[2] = x2 + input[2]; output[3] = x3 + input[3];
+        output[4] = x4 + input[4]; output[5] = x5 + input[5]; output[6] = x6 + input[6]; output[7] = x7 + input[7];
+        output[8] = x8 + input[8]; output[9] = x9 + input[9]; output[10] = x10 + input[10]; output[11] = x11 + input[11];
+        output[12] = x12 + input[12]; output[13] = x13 + input[13]; output[14] = x14 + input[14]; output[15] = x15 + input[15];
+    }
+
+    @Override
+    public int getKeyLength() {
+        return key.getEncoded().length * 8;
+    }
+
+    @Override
+    public String getName() {
+        return "ChaCha20-Java";
+    }
+}
@@ -1,17 +1,20 @@
 import javax.crypto.Cipher;
-import java.io.ByteArrayOutputStream;
 import java.security.KeyPair;
 import java.security.KeyPairGenerator;
 import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.util.Arrays;
 
-public class RSA implements EncryptionAlgorithm {
+public class RSA extends JcaAlgorithm implements EncryptionAlgorithm, BufferedEncryption {
     private PublicKey publicKey;
     private PrivateKey privateKey;
-    private final String transformation = "RSA/ECB/PKCS1Padding"; // RSA transformation
+    // Maximum block size for RSA with PKCS1Padding on a 2048-bit key is 245 bytes
+    public static final int INPUT_BLOCK_SIZE = 245;
+    // The output block size of RSA encryption for a 2048-bit key is 256 bytes
+    public static final int OUTPUT_BLOCK_SIZE = 256;
 
     public RSA() throws Exception {
+        super("RSA/ECB/PKCS1Padding");
         KeyPairGenerator keyGen = KeyPairGenerator.getInstance("RSA");
         keyGen.initialize(2048); // RSA key size (2048 bits is recommended)
         KeyPair keyPair = keyGen.generateKeyPair();
@@ -21,36 +24,54 @@ public class RSA implements EncryptionAlgorithm {
 
     @Override
     public byte[] encrypt(byte[] plaintext) throws Exception {
-        Cipher cipher = Cipher.getInstance(transformation);
-        cipher.init(Cipher.ENCRYPT_MODE, publicKey);
-        // Maximum block size for RSA with PKCS1Padding on a 2048-bit key is 245 bytes
-        int inputBlockSize = 245;
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        // Every block encrypts to exactly one output block, so the output size is known up front
+        byte[] output = new byte[getMaxEncryptedLength(plaintext.length)];
+        encrypt(plaintext, 0, plaintext.length, output, 0);
+        return output;
+    }
+
+    @Override
+    public byte[] decrypt(byte[] ciphertext) throws Exception {
+        // The last block may decrypt to fewer bytes than a full input block
+        byte[] output = new byte[getMaxDecryptedLength(ciphertext.length)];
+        int length = decrypt(ciphertext, 0, ciphertext.length, output, 0);
+        return length == output.length ? output : Arrays.copyOf(output, length);
+    }
+
+    @Override
+    public int getMaxEncryptedLength(int plaintextLength) {
+        return (plaintextLength + INPUT_BLOCK_SIZE - 1) / INPUT_BLOCK_SIZE * OUTPUT_BLOCK_SIZE;
+    }
 
-        for (int i = 0; i < plaintext.length; i += inputBlockSize) {
-            int blockLength = Math.min(inputBlockSize, plaintext.length - i);
-            byte[] chunk = Arrays.copyOfRange(plaintext, i, i + blockLength);
-            byte[] encryptedChunk = cipher.doFinal(chunk);
-            outputStream.write(encryptedChunk);
+    @Override
+    public int encrypt(byte[] input, int offset, int length, byte[] output, int outputOffset) throws Exception {
+        Cipher cipher = newCipher();
+        cipher.init(Cipher.ENCRYPT_MODE, publicKey);
+        int position = outputOffset;
+        for (int i = 0; i < length; i += INPUT_BLOCK_SIZE) {
+            int blockLength = Math.min(INPUT_BLOCK_SIZE, length - i);
+            position += cipher.doFinal(input, offset + i, blockLength, output, position);
         }
-        return outputStream.toByteArray();
+        return position - outputOffset;
     }
 
     @Override
-    public byte[] decrypt(byte[] ciphertext) throws Exception {
-        Cipher cipher = Cipher.getInstance(transformation);
-        cipher.init(Cipher.DECRYPT_MODE, privateKey);
-        // The output block size of RSA encryption for a 2048-bit key is 256 bytes
-        int outputBlockSize = 256;
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    public int getMaxDecryptedLength(int ciphertextLength) {
+        int blocks = (ciphertextLength + OUTPUT_BLOCK_SIZE - 1) / OUTPUT_BLOCK_SIZE;
+        // The provider wants room for a whole key-size block even when it writes fewer bytes
+        return blocks == 0 ? 0 : (blocks - 1) * INPUT_BLOCK_SIZE + OUTPUT_BLOCK_SIZE;
+    }
 
-        for (int i = 0; i < ciphertext.length; i += outputBlockSize) {
-            int blockLength = Math.min(outputBlockSize, ciphertext.length - i);
-            byte[] chunk = Arrays.copyOfRange(ciphertext, i, i + blockLength);
-            byte[] decryptedChunk = cipher.doFinal(chunk);
-            outputStream.write(decryptedChunk);
+    @Override
+    public int decrypt(byte[] input, int offset, int length, byte[] output, int outputOffset) throws Exception {
+        Cipher cipher = newCipher();
+        cipher.init(Cipher.DECRYPT_MODE, privateKey);
+        int position = outputOffset;
+        for (int i = 0; i < length; i += OUTPUT_BLOCK_SIZE) {
+            int blockLength = Math.min(OUTPUT_BLOCK_SIZE, length - i);
+            position += cipher.doFinal(input, offset + i, blockLength, output, position);
         }
-        return outputStream.toByteArray();
+        return position - outputOffset;
     }
 
     @Override
@@ -0,0 +1,442 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Append-only store of analysis runs. Every run is written to its own JSON lines file:
+// the first line holds the run metadata (JVM, host, file, config), followed by one line per algorithm.
+public class ResultsStore {
+
+    public static final String DEFAULT_DIRECTORY = "results-history";
+    private static final String RUN_FILE_SUFFIX = ".jsonl";
+
+    private final Path directory;
+
+    public ResultsStore() {
+        this(Paths.get(System.getProperty("results.dir", DEFAULT_DIRECTORY)));
+    }
+
+    public ResultsStore(Path directory) {
+        this.directory = directory;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    // A single algorithm's stored measurements
+    public static class StoredResult {
+        private final Map<String, Object> values;
+
+        public StoredResult(Map<String, Object> values) {
+            this.values = values;
+        }
+
+        public String getAlgorithm() {
+            return (String) values.get("algorithm");
+        }
+
+        public double getValue(String key) {
+            Object value = values.get(key);
+            return value instanceof Double ? (Double) value : Double.NaN;
+        }
+
+        // A true/false value, or null when absent (older runs stored flags as "true"/"false" strings)
+        public Boolean getFlag(String key) {
+            Object value = values.get(key);
+            if (value instanceof Boolean) {
+                return (Boolean) value;
+            }
+            return value instanceof String ? Boolean.valueOf((String) value) : null;
+        }
+
+        public double[] getSamples(String key) {
+            Object value = values.get(key);
+            return value instanceof double[] ? (double[]) value : new double[0];
+        }
+
+        public Map<String, Object> getValues() {
+            return values;
+        }
+
+        // Rebuild the measured performance; the scores are left for AlgorithmEvaluator to compute
+        public AlgorithmEvaluator.AlgorithmPerformance toPerformance() {
+            AlgorithmEvaluator.AlgorithmPerformance perf = new AlgorithmEvaluator.AlgorithmPerformance(getAlgorithm());
+            perf.setEncryptionTime(getValue("encryptionTimeMs"));
+            perf.setThroughput(getValue("throughputMBs"));
+            // The file size is not stored, but throughput is defined as size over time
+            perf.setEncryptionTimeSamples(getSamples("encryptionTimeSamplesMs"), perf.getThroughput() * perf.getEncryptionTime() / 1000.0);
+            perf.setDecryptionTime(getValue("decryptionTimeMs"));
+            perf.setDecryptionThroughput(getValue("decryptionThroughputMBs"));
+            perf.setDecryptionTimeSamples(getSamples("decryptionTimeSamplesMs"));
+            perf.setRoundTripVerified(Boolean.TRUE.equals(getFlag("roundTripVerified")));
+            if (values.containsKey("tagVerificationTimeMs")) {
+                perf.setTagVerificationTime(getValue("tagVerificationTimeMs"));
+            }
+            if (Boolean.TRUE.equals(getFlag("estimated"))) {
+                perf.setEstimate(getValue("encryptionTimeErrorMs"), getValue("decryptionTimeErrorMs"));
+            }
+            if (values.containsKey("timelineChunkBytes")) {
+                perf.setTimeline(ThroughputTimeline.of((int) getValue("timelineChunkBytes"), getSamples("timelineMBs"),
+                        getSamples("timelineGcMs"), getSamples("timelineGcCounts")));
+            }
+            perf.setAvalancheEffect((int) getValue("avalancheEffect"));
+            perf.setEntropy(getValue("entropy"));
+            perf.setKeyLength((int) getValue("keyLength"));
+            return perf;
+        }
+    }
+
+    // A stored run: metadata plus results keyed by algorithm name
+    public static class StoredRun {
+        private final Map<String, Object> metadata;
+        private final Map<String, StoredResult> results = new LinkedHashMap<>();
+
+        public StoredRun(Map<String, Object> metadata) {
+            this.metadata = metadata;
+        }
+
+        public String getRunId() {
+            return String.valueOf(metadata.get("runId"));
+        }
+
+        public String getMetadata(String key) {
+            Object value = metadata.get(key);
+            if (value instanceof Double && (Double) value == Math.rint((Double) value)) {
+                return String.valueOf(((Double) value).longValue());
+            }
+            return value == null ? "" : String.valueOf(value);
+        }
+
+        public Map<String, Object> getAllMetadata() {
+            return metadata;
+        }
+
+        public Map<String, StoredResult> getResults() {
+            return results;
+        }
+    }
+
+    // Record a finished run and return the path of the file written
+    public Path recordRun(File analyzedFile, List<AlgorithmEvaluator.AlgorithmPerformance> performances,
+                          Map<String, String> config) throws IOException {
+        Files.createDirectories(directory);
+
+        Date now = new Date();
+        String host = hostName();
+        String runId = new SimpleDateFormat("yyyyMMdd_HHmmss_SSS").format(now) + "_" + sanitize(host);
+
+        Map<String, Object> metadata = new LinkedHashMap<>();
+        metadata.put("type", "run");
+        metadata.put("runId", runId);
+        metadata.put("timestamp", now.getTime());
+        metadata.put("host", host);
+        metadata.put("os.name", System.getProperty("os.name"));
+        metadata.put("os.arch", System.getProperty("os.arch"));
+        metadata.put("cpus", Runtime.getRuntime().availableProcessors());
+        metadata.put("java.version", System.getProperty("java.version"));
+        metadata.put("java.vendor", System.getProperty("java.vendor"));
+        metadata.put("java.vm.name", System.getProperty("java.vm.name"));
+        metadata.put("maxHeapBytes", Runtime.getRuntime().maxMemory());
+        if (analyzedFile != null) {
+            metadata.put("file.path", analyzedFile.getAbsolutePath());
+            metadata.put("file.size", analyzedFile.length());
+        }
+        if (config != null) {
+            for (Map.Entry<String, String> entry : config.entrySet()) {
+                metadata.put("config." + entry.getKey(), entry.getValue());
+            }
+        }
+
+        Path runFile = directory.resolve(runId + RUN_FILE_SUFFIX);
+        // CREATE_NEW keeps the store append-only: an existing run is never overwritten
+        try (BufferedWriter writer = Files.newBufferedWriter(runFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            writer.write(toJson(metadata));
+            writer.newLine();
+            for (AlgorithmEvaluator.AlgorithmPerformance perf : performances) {
+                writer.write(toJson(resultValues(perf)));
+                writer.newLine();
+            }
+        }
+        return runFile;
+    }
+
+    static Map<String, Object> resultValues(AlgorithmEvaluator.AlgorithmPerformance perf) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("type", "result");
+        values.put("algorithm", perf.getName());
+        values.put("encryptionTimeMs", perf.getEncryptionTime());
+        values.put("throughputMBs", perf.getThroughput());
+        values.put("decryptionTimeMs", perf.getDecryptionTime());
+        values.put("decryptionThroughputMBs", perf.getDecryptionThroughput());
+        values.put("roundTripVerified", perf.isRoundTripVerified());
+        if (perf.isAuthenticated()) {
+            values.put("tagVerificationTimeMs", perf.getTagVerificationTime());
+        }
+        if (perf.isEstimated()) {
+            values.put("estimated", true);
+            values.put("encryptionTimeErrorMs", perf.getEncryptionTimeError());
+            values.put("decryptionTimeErrorMs", perf.getDecryptionTimeError());
+        }
+        values.put("avalancheEffect", perf.getAvalancheEffect());
+        values.put("entropy", perf.getEntropy());
+        values.put("keyLength", perf.getKeyLength());
+        values.put("totalScore", perf.getTotalScore());
+        values.put("encryptionTimeSamplesMs", perf.getEncryptionTimeSamples());
+        values.put("throughputSamplesMBs", perf.getThroughputSamples());
+        values.put("decryptionTimeSamplesMs", perf.getDecryptionTimeSamples());
+        ThroughputTimeline timeline = perf.getTimeline();
+        if (timeline != null) {
+            values.put("timelineChunkBytes", timeline.getChunkSize());
+            values.put("timelineMBs", timeline.getThroughputs());
+            values.put("timelineGcMs", timeline.getGcMillisPerChunk());
+            values.put("timelineGcCounts", timeline.getGcCountsPerChunk());
+        }
+        return values;
+    }
+
+    // List stored run ids, oldest first
+    public List<String> listRuns() throws IOException {
+        List<String> runIds = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return runIds;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + RUN_FILE_SUFFIX)) {
+            for (Path path : stream) {
+                String fileName = path.getFileName().toString();
+                runIds.add(fileName.substring(0, fileName.length() - RUN_FILE_SUFFIX.length()));
+            }
+        }
+        Collections.sort(runIds);
+        return runIds;
+    }
+
+    // Load a run by id; "latest" resolves to the most recent run
+    public StoredRun loadRun(String runId) throws IOException {
+        if ("latest".equals(runId)) {
+            List<String> runIds = listRuns();
+            if (runIds.isEmpty()) {
+                throw new IOException("No runs stored in " + directory);
+            }
+            runId = runIds.get(runIds.size() - 1);
+        }
+        Path runFile = directory.resolve(runId + RUN_FILE_SUFFIX);
+        if (!Files.exists(runFile)) {
+            // Allow a path to a run file to be passed directly
+            runFile = Paths.get(runId);
+        }
+        if (!Files.exists(runFile)) {
+            throw new IOException("Run not found: " + runId);
+        }
+
+        StoredRun run = null;
+        for (String line : Files.readAllLines(runFile, StandardCharsets.UTF_8)) {
+            if (line.trim().isEmpty()) continue;
+            Map<String, Object> values = parseJson(line);
+            if ("run".equals(values.get("type"))) {
+                run = new StoredRun(values);
+            } else if (run != null && "result".equals(values.get("type"))) {
+                StoredResult result = new StoredResult(values);
+                run.getResults().put(result.getAlgorithm(), result);
+            }
+        }
+        if (run == null) {
+            throw new IOException("Run file has no metadata line: " + runFile);
+        }
+        return run;
+    }
+
+    static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (IOException e) {
+            return "unknown-host";
+        }
+    }
+
+    private static String sanitize(String text) {
+        return text.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+
+    // Utility: Serialize a flat map of strings, numbers, booleans and double arrays as a JSON object
+    static String toJson(Map<String, Object> values) {
+        StringBuilder json = new StringBuilder("{");
+        boolean first = true;
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            if (!first) json.append(',');
+            first = false;
+            appendString(json, entry.getKey());
+            json.append(':');
+            Object value = entry.getValue();
+            if (value == null) {
+                json.append("null");
+            } else if (value instanceof double[]) {
+                json.append('[');
+                double[] array = (double[]) value;
+                for (int i = 0; i < array.length; i++) {
+                    if (i > 0) json.append(',');
+                    appendNumber(json, array[i]);
+                }
+                json.append(']');
+            } else if (value instanceof Number) {
+                appendNumber(json, ((Number) value).doubleValue());
+            } else if (value instanceof Boolean) {
+                json.append(value);
+            } else {
+                appendString(json, String.valueOf(value));
+            }
+        }
+        return json.append('}').toString();
+    }
+
+    private static void appendNumber(StringBuilder json, double number) {
+        if (Double.isNaN(number) || Double.isInfinite(number)) {
+            json.append("null");
+        } else if (number == Math.rint(number) && Math.abs(number) < 1e15) {
+            json.append((long) number);
+        } else {
+            json.append(number);
+        }
+    }
+
+    private static void appendString(StringBuilder json, String text) {
+        json.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"': json.append("\\\""); break;
+                case '\\': json.append("\\\\"); break;
+                case '\n': json.append("\\n"); break;
+                case '\r': json.append("\\r"); break;
+                case '\t': json.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        json.append('"');
+    }
+
+    // Utility: Parse a flat JSON object as written by toJson (numbers become Double, arrays double[])
+    static Map<String, Object> parseJson(String json) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        int[] pos = {skipWhitespace(json, 0)};
+        expect(json, pos, '{');
+        while (true) {
+            pos[0] = skipWhitespace(json, pos[0]);
+            if (json.charAt(pos[0]) == '}') break;
+            String key = readString(json, pos);
+            pos[0] = skipWhitespace(json, pos[0]);
+            expect(json, pos, ':');
+            pos[0] = skipWhitespace(json, pos[0]);
+            values.put(key, readValue(json, pos));
+            pos[0] = skipWhitespace(json, pos[0]);
+            if (json.charAt(pos[0]) == ',') {
+                pos[0]++;
+            }
+        }
+        return values;
+    }
+
+    private static Object readValue(String json, int[] pos) {
+        char c = json.charAt(pos[0]);
+        if (c == '"') {
+            return readString(json, pos);
+        }
+        if (c == '[') {
+            pos[0]++;
+            List<Double> items = new ArrayList<>();
+            while (true) {
+                pos[0] = skipWhitespace(json, pos[0]);
+                if (json.charAt(pos[0]) == ']') {
+                    pos[0]++;
+                    break;
+                }
+                Object item = readValue(json, pos);
+                items.add(item instanceof Double ? (Double) item : Double.NaN);
+                pos[0] = skipWhitespace(json, pos[0]);
+                if (json.charAt(pos[0]) == ',') {
+                    pos[0]++;
+                }
+            }
+            double[] array = new double[items.size()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = items.get(i);
+            }
+            return array;
+        }
+        if (json.startsWith("null", pos[0])) {
+            pos[0] += 4;
+            return null;
+        }
+        if (json.startsWith("true", pos[0])) {
+            pos[0] += 4;
+            return Boolean.TRUE;
+        }
+        if (json.startsWith("false", pos[0])) {
+            pos[0] += 5;
+            return Boolean.FALSE;
+        }
+        int start = pos[0];
+        while (pos[0] < json.length() && "+-0123456789.eE".indexOf(json.charAt(pos[0])) >= 0) {
+            pos[0]++;
+        }
+        return Double.parseDouble(json.substring(start, pos[0]));
+    }
+
+    private static String readString(String json, int[] pos) {
+        expect(json, pos, '"');
+        StringBuilder text = new StringBuilder();
+        while (true) {
+            char c = json.charAt(pos[0]++);
+            if (c == '"') break;
+            if (c == '\\') {
+                char escaped = json.charAt(pos[0]++);
+                switch (escaped) {
+                    case 'n': text.append('\n'); break;
+                    case 'r': text.append('\r'); break;
+                    case 't': text.append('\t'); break;
+                    case 'u':
+                        text.append((char) Integer.parseInt(json.substring(pos[0], pos[0] + 4), 16));
+                        pos[0] += 4;
+                        break;
+                    default: text.append(escaped);
+                }
+            } else {
+                text.append(c);
+            }
+        }
+        return text.toString();
+    }
+
+    private static void expect(String json, int[] pos, char expected) {
+        if (json.charAt(pos[0]) != expected) {
+            throw new IllegalArgumentException("Expected '" + expected + "' at position " + pos[0] + " in: " + json);
+        }
+        pos[0]++;
+    }
+
+    private static int skipWhitespace(String json, int pos) {
+        while (pos < json.length() && Character.isWhitespace(json.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+}
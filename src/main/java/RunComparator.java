@@ -0,0 +1,233 @@
+import java.util.ArrayList;
+import java.util.List;
+
+// Compares a candidate run against a baseline run from the ResultsStore and flags
+// statistically significant throughput or latency regressions (Welch's t-test).
+public class RunComparator {
+
+    public static final double DEFAULT_SIGNIFICANCE = 0.05;
+    // Changes smaller than this are reported as noise even if significant
+    public static final double DEFAULT_MIN_CHANGE = 0.05;
+
+    private final double significance;
+    private final double minRelativeChange;
+
+    public RunComparator() {
+        this(DEFAULT_SIGNIFICANCE, DEFAULT_MIN_CHANGE);
+    }
+
+    public RunComparator(double significance, double minRelativeChange) {
+        this.significance = significance;
+        this.minRelativeChange = minRelativeChange;
+    }
+
+    public enum Verdict { REGRESSION, IMPROVEMENT, NO_CHANGE, INSUFFICIENT_DATA }
+
+    // Result of comparing one metric of one algorithm
+    public static class MetricComparison {
+        private final String algorithm;
+        private final String metric;
+        private final double baselineMean;
+        private final double candidateMean;
+        private final double pValue;
+        private final Verdict verdict;
+
+        public MetricComparison(String algorithm, String metric, double baselineMean, double candidateMean,
+                                double pValue, Verdict verdict) {
+            this.algorithm = algorithm;
+            this.metric = metric;
+            this.baselineMean = baselineMean;
+            this.candidateMean = candidateMean;
+            this.pValue = pValue;
+            this.verdict = verdict;
+        }
+
+        public String getAlgorithm() {
+            return algorithm;
+        }
+
+        public String getMetric() {
+            return metric;
+        }
+
+        public double getBaselineMean() {
+            return baselineMean;
+        }
+
+        public double getCandidateMean() {
+            return candidateMean;
+        }
+
+        public double getRelativeChange() {
+            return baselineMean == 0 ? 0.0 : (candidateMean - baselineMean) / baselineMean;
+        }
+
+        public double getPValue() {
+            return pValue;
+        }
+
+        public Verdict getVerdict() {
+            return verdict;
+        }
+    }
+
+    // Compare every algorithm present in both runs on latency and throughput
+    public List<MetricComparison> compare(ResultsStore.StoredRun baseline, ResultsStore.StoredRun candidate) {
+        List<MetricComparison> comparisons = new ArrayList<>();
+        for (ResultsStore.StoredResult base : baseline.getResults().values()) {
+            ResultsStore.StoredResult cand = candidate.getResults().get(base.getAlgorithm());
+            if (cand == null) continue;
+            // For latency, higher is worse; for throughput, lower is worse
+            comparisons.add(compareMetric(base.getAlgorithm(), "latency (ms)",
+                    base.getSamples("encryptionTimeSamplesMs"), cand.getSamples("encryptionTimeSamplesMs"), true));
+            comparisons.add(compareMetric(base.getAlgorithm(), "throughput (MB/s)",
+                    base.getSamples("throughputSamplesMBs"), cand.getSamples("throughputSamplesMBs"), false));
+            // Runs recorded before decryption was measured have no decryption samples
+            if (base.getSamples("decryptionTimeSamplesMs").length > 0) {
+                comparisons.add(compareMetric(base.getAlgorithm(), "decrypt (ms)",
+                        base.getSamples("decryptionTimeSamplesMs"), cand.getSamples("decryptionTimeSamplesMs"), true));
+            }
+        }
+        return comparisons;
+    }
+
+    private MetricComparison compareMetric(String algorithm, String metric, double[] baseline, double[] candidate,
+                                           boolean higherIsWorse) {
+        double baselineMean = mean(baseline);
+        double candidateMean = mean(candidate);
+        if (baseline.length < 2 || candidate.length < 2) {
+            return new MetricComparison(algorithm, metric, baselineMean, candidateMean, Double.NaN,
+                    Verdict.INSUFFICIENT_DATA);
+        }
+
+        double pValue = welchPValue(baseline, candidate);
+        double relativeChange = baselineMean == 0 ? 0.0 : (candidateMean - baselineMean) / baselineMean;
+        Verdict verdict = Verdict.NO_CHANGE;
+        if (pValue < significance && Math.abs(relativeChange) >= minRelativeChange) {
+            boolean worse = higherIsWorse ? relativeChange > 0 : relativeChange < 0;
+            verdict = worse ? Verdict.REGRESSION : Verdict.IMPROVEMENT;
+        }
+        return new MetricComparison(algorithm, metric, baselineMean, candidateMean, pValue, verdict);
+    }
+
+    // Print a comparison report through Main.writeResult
+    public static boolean printReport(ResultsStore.StoredRun baseline, ResultsStore.StoredRun candidate,
+                                      List<MetricComparison> comparisons) {
+        Main.writeResult("Baseline:  " + baseline.getRunId() + " (" + describe(baseline) + ")");
+        Main.writeResult("Candidate: " + candidate.getRunId() + " (" + describe(candidate) + ")");
+        Main.writeResult("");
+        Main.writeResultf("%-18s %-18s %-14s %-14s %-10s %-10s %-18s%n",
+                "Algorithm", "Metric", "Baseline", "Candidate", "Change", "p-value", "Verdict");
+        Main.writeResult("------------------------------------------------------------------------------------------------------");
+
+        boolean regressed = false;
+        for (MetricComparison comparison : comparisons) {
+            Main.writeResultf("%-18s %-18s %-14.3f %-14.3f %-10s %-10s %-18s%n",
+                    comparison.getAlgorithm(),
+                    comparison.getMetric(),
+                    comparison.getBaselineMean(),
+                    comparison.getCandidateMean(),
+                    String.format("%+.1f%%", comparison.getRelativeChange() * 100),
+                    Double.isNaN(comparison.getPValue()) ? "n/a" : String.format("%.4f", comparison.getPValue()),
+                    comparison.getVerdict());
+            regressed |= comparison.getVerdict() == Verdict.REGRESSION;
+        }
+        return regressed;
+    }
+
+    private static String describe(ResultsStore.StoredRun run) {
+        return "Java " + run.getMetadata("java.version") + ", " + run.getMetadata("host")
+                + ", " + run.getMetadata("file.size") + " bytes";
+    }
+
+    // Utility: arithmetic mean
+    public static double mean(double[] values) {
+        if (values.length == 0) return Double.NaN;
+        double sum = 0;
+        for (double value : values) {
+            sum += value;
+        }
+        return sum / values.length;
+    }
+
+    // Utility: unbiased sample variance
+    public static double variance(double[] values) {
+        double mean = mean(values);
+        double sum = 0;
+        for (double value : values) {
+            sum += (value - mean) * (value - mean);
+        }
+        return sum / (values.length - 1);
+    }
+
+    // Two-sided p-value of Welch's unequal-variance t-test
+    public static double welchPValue(double[] a, double[] b) {
+        double varA = variance(a) / a.length;
+        double varB = variance(b) / b.length;
+        double standardError = Math.sqrt(varA + varB);
+        if (standardError == 0) {
+            return mean(a) == mean(b) ? 1.0 : 0.0;
+        }
+        double t = (mean(a) - mean(b)) / standardError;
+        // Welch-Satterthwaite degrees of freedom
+        double df = (varA + varB) * (varA + varB)
+                / (varA * varA / (a.length - 1) + varB * varB / (b.length - 1));
+        return regularizedIncompleteBeta(df / (df + t * t), df / 2, 0.5);
+    }
+
+    // Regularized incomplete beta function I_x(a, b), evaluated with Lentz's continued fraction
+    static double regularizedIncompleteBeta(double x, double a, double b) {
+        if (x <= 0) return 0.0;
+        if (x >= 1) return 1.0;
+        double front = Math.exp(logGamma(a + b) - logGamma(a) - logGamma(b)
+                + a * Math.log(x) + b * Math.log(1 - x));
+        if (x < (a + 1) / (a + b + 2)) {
+            return front * betaContinuedFraction(x, a, b) / a;
+        }
+        return 1.0 - front * betaContinuedFraction(1 - x, b, a) / b;
+    }
+
+    private static double betaContinuedFraction(double x, double a, double b) {
+        final double tiny = 1e-30;
+        double c = 1.0;
+        double d = 1.0 - (a + b) * x / (a + 1);
+        if (Math.abs(d) < tiny) d = tiny;
+        d = 1.0 / d;
+        double result = d;
+        for (int m = 1; m <= 200; m++) {
+            int m2 = 2 * m;
+            double numerator = m * (b - m) * x / ((a + m2 - 1) * (a + m2));
+            d = 1.0 + numerator * d;
+            if (Math.abs(d) < tiny) d = tiny;
+            c = 1.0 + numerator / c;
+            if (Math.abs(c) < tiny) c = tiny;
+            d = 1.0 / d;
+            result *= d * c;
+
+            numerator = -(a + m) * (a + b + m) * x / ((a + m2) * (a + m2 + 1));
+            d = 1.0 + numerator * d;
+            if (Math.abs(d) < tiny) d = tiny;
+            c = 1.0 + numerator / c;
+            if (Math.abs(c) < tiny) c = tiny;
+            d = 1.0 / d;
+            double delta = d * c;
+            result *= delta;
+            if (Math.abs(delta - 1.0) < 1e-12) break;
+        }
+        return result;
+    }
+
+    // Lanczos approximation of ln(Gamma(x))
+    private static double logGamma(double x) {
+        double[] coefficients = {76.18009172947146, -86.50532032941677, 24.01409824083091,
+                -1.231739572450155, 0.1208650973866179e-2, -0.5395239384953e-5};
+        double y = x;
+        double tmp = x + 5.5;
+        tmp -= (x + 0.5) * Math.log(tmp);
+        double series = 1.000000000190015;
+        for (double coefficient : coefficients) {
+            series += coefficient / ++y;
+        }
+        return -tmp + Math.log(2.5066282746310005 * series / x);
+    }
+}
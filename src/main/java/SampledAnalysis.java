@@ -0,0 +1,311 @@
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Random;
+
+// Time-budgeted analysis. A short pilot on the start of the file predicts how long the full
+// measurement would take; when that exceeds the per-algorithm budget, the algorithm
+// is measured on a stratified sample of the file instead and its times are extrapolated.
+//
+// The file is split into STRATA equal regions and BLOCKS_PER_STRATUM blocks are taken at random
+// offsets within each region, so slow or fast parts of the file are represented in proportion.
+// Every block is encrypted and decrypted as a separate message in every sample pass. The time for
+// the whole file is the sum over the strata of (stratum size x mean time per byte in the stratum),
+// and its error is the usual stratified-sampling standard error, Var = sum(N_h^2 s_h^2 / n_h) over
+// the n_h = BLOCKS_PER_STRATUM blocks of each stratum (each averaged over the passes first),
+// reported as a 95% half-width (1.96 standard errors). The error covers the sampling only, not
+// the per-message overhead of encrypting blocks separately.
+public class SampledAnalysis {
+
+    public static final long DEFAULT_BUDGET_MS = 60_000;
+    public static final int STRATA = 8;
+    public static final int BLOCKS_PER_STRATUM = 2;
+    public static final int PILOT_BYTES = 64 * 1024;
+    private static final int MIN_BLOCK_BYTES = 4 * 1024;
+    private static final double PILOT_TARGET_MS = 20;
+    private static final int PILOT_MAX_ROUNDS = 8;
+    private static final long MAX_SAMPLED_BYTES = 64L * 1024 * 1024;
+    private static final double Z_95 = 1.96;
+
+    // Outcome of a sampled measurement
+    public static class Result {
+        private final AlgorithmEvaluator.AlgorithmPerformance performance;
+        private final byte[] plaintextSample;
+        private final byte[] ciphertextSample;
+        private final int blocks;
+        private final long sampledBytes;
+
+        public Result(AlgorithmEvaluator.AlgorithmPerformance performance, byte[] plaintextSample,
+                      byte[] ciphertextSample, int blocks, long sampledBytes) {
+            this.performance = performance;
+            this.plaintextSample = plaintextSample;
+            this.ciphertextSample = ciphertextSample;
+            this.blocks = blocks;
+            this.sampledBytes = sampledBytes;
+        }
+
+        public AlgorithmEvaluator.AlgorithmPerformance getPerformance() {
+            return performance;
+        }
+
+        public byte[] getPlaintextSample() {
+            return plaintextSample;
+        }
+
+        public byte[] getCiphertextSample() {
+            return ciphertextSample;
+        }
+
+        public int getBlocks() {
+            return blocks;
+        }
+
+        public long getSampledBytes() {
+            return sampledBytes;
+        }
+    }
+
+    private final long budgetMs;
+    private final int samples;
+    // Pilot of the last algorithm predicted, reused when that algorithm is then sampled
+    private EncryptionAlgorithm pilotAlgorithm;
+    private double[] pilotMsPerByte;
+
+    public SampledAnalysis(long budgetMs, int samples) {
+        this.budgetMs = budgetMs;
+        this.samples = Math.max(1, samples);
+    }
+
+    // Per-algorithm budget from -Danalysis.budgetMs (default 60 s; 0 disables sampling)
+    public static long getConfiguredBudgetMs() {
+        return Long.getLong("analysis.budgetMs", DEFAULT_BUDGET_MS);
+    }
+
+    public long getBudgetMs() {
+        return budgetMs;
+    }
+
+    public boolean isEnabled() {
+        return budgetMs > 0;
+    }
+
+    // Predicted duration of the full measurement (every sample pass encrypts and decrypts the whole
+    // file, plus one more encryption for the avalanche test), from a pilot on the start of the file.
+    // An AEAD algorithm also runs the tag verification check on the in-memory payload (payloadBytes:
+    // the whole file, or the head chunk in the fused pipeline), which encrypts it twice and decrypts
+    // it twice plus once per forged-tag sample. The in-memory analysis encrypts the payload once more
+    // for the throughput timeline (timelinePass); a sampled measurement skips that pass
+    public double predictFullMs(EncryptionAlgorithm algorithm, File file, long payloadBytes, boolean timelinePass) throws Exception {
+        if (file.length() == 0) {
+            return 0;
+        }
+        double[] msPerByte = pilotCost(algorithm, file);
+        double predicted = file.length() * ((msPerByte[0] + msPerByte[1]) * samples + msPerByte[0]);
+        if (algorithm instanceof AeadAlgorithm) {
+            predicted += payloadBytes * (2 * msPerByte[0] + (2 + samples) * msPerByte[1]);
+        }
+        if (timelinePass) {
+            predicted += payloadBytes * msPerByte[0];
+        }
+        return predicted;
+    }
+
+    // Smallest file with room for every stratum's blocks
+    public static long getMinSampleBytes() {
+        return (long) STRATA * MIN_BLOCK_BYTES * BLOCKS_PER_STRATUM;
+    }
+
+    // Whether the file has room for every stratum's blocks
+    public static boolean canSample(File file) {
+        return file.length() >= getMinSampleBytes();
+    }
+
+    // Whether the full measurement is predicted to overrun the budget. The caller still has to check
+    // canSample: a file too small to sample is measured in full whatever the prediction
+    public boolean exceedsBudget(EncryptionAlgorithm algorithm, File file, long payloadBytes, boolean timelinePass) throws Exception {
+        return isEnabled() && predictFullMs(algorithm, file, payloadBytes, timelinePass) > budgetMs;
+    }
+
+    // {encrypt, decrypt} milliseconds per byte. After an untimed warm-up round on MIN_BLOCK_BYTES the
+    // pilot grows 4x until a round takes PILOT_TARGET_MS (or reaches PILOT_BYTES), so a slow algorithm
+    // such as RSA is only timed on a few kilobytes. That size is then repeated until the time stops
+    // improving by more than 10% (at most PILOT_MAX_ROUNDS times), since the JIT is still compiling
+    // a fast algorithm's code during the first rounds.
+    private double[] pilotCost(EncryptionAlgorithm algorithm, File file) throws Exception {
+        if (algorithm == pilotAlgorithm) {
+            return pilotMsPerByte;
+        }
+        byte[] head = new byte[(int) Math.min(PILOT_BYTES, file.length())];
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            in.readFully(head);
+        }
+        int length = Math.min(MIN_BLOCK_BYTES, head.length);
+        byte[] warmup = Arrays.copyOf(head, length);
+        algorithm.decrypt(algorithm.encrypt(warmup));
+        double[] best = null;
+        int rounds = 0;
+        while (true) {
+            byte[] pilot = length == head.length ? head : Arrays.copyOf(head, length);
+            long start = System.nanoTime();
+            byte[] ciphertext = algorithm.encrypt(pilot);
+            long encrypted = System.nanoTime();
+            algorithm.decrypt(ciphertext);
+            long decrypted = System.nanoTime();
+            double[] msPerByte = {(encrypted - start) / 1_000_000.0 / length, (decrypted - encrypted) / 1_000_000.0 / length};
+            if (best == null && (decrypted - start) / 1_000_000.0 < PILOT_TARGET_MS && length < head.length) {
+                length = Math.min(length * 4, head.length);
+                continue;
+            }
+            boolean improved = best == null || msPerByte[0] + msPerByte[1] < 0.9 * (best[0] + best[1]);
+            if (best == null || msPerByte[0] + msPerByte[1] < best[0] + best[1]) {
+                best = msPerByte;
+            }
+            if (!improved || ++rounds >= PILOT_MAX_ROUNDS) {
+                break;
+            }
+        }
+        pilotAlgorithm = algorithm;
+        pilotMsPerByte = best;
+        return best;
+    }
+
+    public Result analyze(EncryptionAlgorithm algorithm, File file) throws Exception {
+        if (!canSample(file)) {
+            throw new IllegalArgumentException("File too small to sample: " + file.length() + " bytes");
+        }
+        long fileSize = file.length();
+        long stratumSize = fileSize / STRATA;
+
+        // Spend about half the budget on the sample; the pilot cost sets the block size
+        double[] msPerByte = pilotCost(algorithm, file);
+        int blockCount = STRATA * BLOCKS_PER_STRATUM;
+        double affordableBytes = budgetMs / 2.0 / ((msPerByte[0] + msPerByte[1]) * samples + msPerByte[0]);
+        long blockSize = (long) (affordableBytes / blockCount);
+        blockSize = Math.min(blockSize, Math.min(stratumSize / BLOCKS_PER_STRATUM, MAX_SAMPLED_BYTES / blockCount));
+        int blockLength = (int) Math.max(MIN_BLOCK_BYTES, blockSize);
+
+        // One block at a random offset in each equal slice of each stratum (the last stratum takes the remainder)
+        byte[][] blocks = new byte[blockCount][];
+        long[] stratumBytes = new long[STRATA];
+        Random random = new Random(42);
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            for (int h = 0; h < STRATA; h++) {
+                long start = h * stratumSize;
+                long end = h == STRATA - 1 ? fileSize : start + stratumSize;
+                stratumBytes[h] = end - start;
+                long slice = (end - start) / BLOCKS_PER_STRATUM;
+                for (int j = 0; j < BLOCKS_PER_STRATUM; j++) {
+                    long offset = start + j * slice + (long) (random.nextDouble() * (slice - blockLength));
+                    byte[] block = new byte[blockLength];
+                    in.seek(offset);
+                    in.readFully(block);
+                    blocks[h * BLOCKS_PER_STRATUM + j] = block;
+                }
+            }
+        }
+
+        // Time per byte of every block in every pass, grouped by stratum
+        int observations = BLOCKS_PER_STRATUM * samples;
+        double[][] encryptRates = new double[STRATA][observations];
+        double[][] decryptRates = new double[STRATA][observations];
+        double[] encSamples = new double[samples];
+        double[] decSamples = new double[samples];
+        long[] histogram = new long[256];
+        long ciphertextBytes = 0;
+        boolean roundTripVerified = true;
+        byte[] firstCiphertext = null;
+        for (int s = 0; s < samples; s++) {
+            for (int b = 0; b < blockCount; b++) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedException("Analysis cancelled");
+                }
+                byte[] block = blocks[b];
+                long start = System.nanoTime();
+                byte[] ciphertext = algorithm.encrypt(block);
+                long encrypted = System.nanoTime();
+                byte[] decrypted = algorithm.decrypt(ciphertext);
+                long decryptedAt = System.nanoTime();
+                roundTripVerified &= Arrays.equals(block, decrypted);
+
+                int h = b / BLOCKS_PER_STRATUM;
+                int observation = s * BLOCKS_PER_STRATUM + b % BLOCKS_PER_STRATUM;
+                encryptRates[h][observation] = (encrypted - start) / 1_000_000.0 / block.length;
+                decryptRates[h][observation] = (decryptedAt - encrypted) / 1_000_000.0 / block.length;
+                if (s == 0) {
+                    for (byte value : ciphertext) {
+                        histogram[value & 0xFF]++;
+                    }
+                    ciphertextBytes += ciphertext.length;
+                    if (b == 0) {
+                        firstCiphertext = ciphertext;
+                    }
+                }
+            }
+            encSamples[s] = passEstimate(encryptRates, stratumBytes, s);
+            decSamples[s] = passEstimate(decryptRates, stratumBytes, s);
+        }
+
+        // Avalanche on the first block, as the fused pipeline does on its first chunk
+        byte[] modified = blocks[0].clone();
+        modified[0] ^= 0x01;
+        int avalancheDistance = Main.hammingDistance(firstCiphertext, algorithm.encrypt(modified));
+
+        double fileSizeMB = fileSize / (1024.0 * 1024.0);
+        double encTimeMs = RunComparator.mean(encSamples);
+        double decTimeMs = RunComparator.mean(decSamples);
+        AlgorithmEvaluator.AlgorithmPerformance performance = new AlgorithmEvaluator.AlgorithmPerformance(algorithm.getName());
+        performance.setEncryptionTime(encTimeMs);
+        performance.setThroughput(fileSizeMB / (encTimeMs / 1000.0));
+        performance.setEncryptionTimeSamples(encSamples, fileSizeMB);
+        performance.setDecryptionTime(decTimeMs);
+        performance.setDecryptionThroughput(fileSizeMB / (decTimeMs / 1000.0));
+        performance.setDecryptionTimeSamples(decSamples);
+        performance.setRoundTripVerified(roundTripVerified);
+        performance.setAvalancheEffect(avalancheDistance);
+        performance.setEntropy(Main.entropy(histogram, ciphertextBytes));
+        performance.setKeyLength(algorithm.getKeyLength());
+        performance.setEstimate(errorMs(encryptRates, stratumBytes), errorMs(decryptRates, stratumBytes));
+        return new Result(performance, Arrays.copyOf(blocks[0], Math.min(FusedAnalysisPipeline.SAMPLE_BYTES, blockLength)),
+                Arrays.copyOf(firstCiphertext, Math.min(FusedAnalysisPipeline.SAMPLE_BYTES, firstCiphertext.length)),
+                blockCount, (long) blockCount * blockLength);
+    }
+
+    // Whole-file time of one pass: each stratum's size times its mean time per byte in that pass
+    private static double passEstimate(double[][] rates, long[] stratumBytes, int pass) {
+        double total = 0;
+        for (int h = 0; h < rates.length; h++) {
+            double sum = 0;
+            for (int j = 0; j < BLOCKS_PER_STRATUM; j++) {
+                sum += rates[h][pass * BLOCKS_PER_STRATUM + j];
+            }
+            total += stratumBytes[h] * sum / BLOCKS_PER_STRATUM;
+        }
+        return total;
+    }
+
+    // 95% half-width of the stratified estimate of the whole-file time. The repeated passes time the
+    // same blocks, so they are not independent observations: each block is averaged over its passes
+    // first and the stratum variance is taken over its BLOCKS_PER_STRATUM block means (n_h)
+    private static double errorMs(double[][] rates, long[] stratumBytes) {
+        int passes = rates[0].length / BLOCKS_PER_STRATUM;
+        double variance = 0;
+        for (int h = 0; h < rates.length; h++) {
+            double[] blockMeans = new double[BLOCKS_PER_STRATUM];
+            for (int j = 0; j < BLOCKS_PER_STRATUM; j++) {
+                double sum = 0;
+                for (int pass = 0; pass < passes; pass++) {
+                    sum += rates[h][pass * BLOCKS_PER_STRATUM + j];
+                }
+                blockMeans[j] = sum / passes;
+            }
+            double mean = RunComparator.mean(blockMeans);
+            double squares = 0;
+            for (double rate : blockMeans) {
+                squares += (rate - mean) * (rate - mean);
+            }
+            double sampleVariance = squares / (BLOCKS_PER_STRATUM - 1);
+            variance += (double) stratumBytes[h] * stratumBytes[h] * sampleVariance / BLOCKS_PER_STRATUM;
+        }
+        return Z_95 * Math.sqrt(variance);
+    }
+}
@@ -0,0 +1,219 @@
+import java.util.Arrays;
+
+// Columnar scoring of benchmark results. Each metric is a primitive column (raw value and 0-10
+// score per row), so normalizing is one tight loop per column and re-ranking under new weights is a
+// weighted sum over the score columns plus an index sort - cheap enough to redo on every slider
+// move, even for thousands of (algorithm x mode x size x provider) rows.
+//
+// Scores are min-max normalized per column: 10 for the best row, 0 for the worst, 5 for every row
+// when all values are equal. Missing values (NaN) score 0.
+public class ScoringEngine {
+
+    // Metric columns; the first SPEED_METRICS are the speed category, the rest the security category
+    public static final String[] METRICS = {"encryptionTime", "throughput", "decryptionTime", "decryptionThroughput",
+            "avalancheEffect", "entropy", "keyLength"};
+    public static final int SPEED_METRICS = 4;
+    private static final boolean[] LOWER_IS_BETTER = {true, false, true, false, false, false, false};
+    private static final int INITIAL_CAPACITY = 16;
+
+    private String[] labels = new String[INITIAL_CAPACITY];
+    private double[][] raw = new double[METRICS.length][INITIAL_CAPACITY];
+    private double[][] scores = new double[METRICS.length][INITIAL_CAPACITY];
+    private int size;
+    private boolean normalized;
+
+    public static boolean isSpeedMetric(int metric) {
+        return metric < SPEED_METRICS;
+    }
+
+    // Index of a metric name, or -1
+    public static int metricIndex(String name) {
+        return Arrays.asList(METRICS).indexOf(name);
+    }
+
+    // Add a row with one raw value per metric (in METRICS order); returns its row index
+    public int add(String label, double... values) {
+        if (values.length != METRICS.length) {
+            throw new IllegalArgumentException("Expected " + METRICS.length + " metric values, got " + values.length);
+        }
+        if (size == labels.length) {
+            int capacity = labels.length * 2;
+            labels = Arrays.copyOf(labels, capacity);
+            for (int m = 0; m < METRICS.length; m++) {
+                raw[m] = Arrays.copyOf(raw[m], capacity);
+                scores[m] = Arrays.copyOf(scores[m], capacity);
+            }
+        }
+        labels[size] = label;
+        for (int m = 0; m < METRICS.length; m++) {
+            raw[m][size] = values[m];
+        }
+        normalized = false;
+        return size++;
+    }
+
+    public int add(AlgorithmEvaluator.AlgorithmPerformance perf) {
+        return add(perf.getName(), perf.getEncryptionTime(), perf.getThroughput(), perf.getDecryptionTime(),
+                perf.getDecryptionThroughput(), perf.getAvalancheEffect(), perf.getEntropy(), perf.getKeyLength());
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String getLabel(int row) {
+        return labels[row];
+    }
+
+    public double getRaw(int metric, int row) {
+        return raw[metric][row];
+    }
+
+    // Normalize every column to 0-10
+    public void normalize() {
+        for (int m = 0; m < METRICS.length; m++) {
+            double[] column = raw[m];
+            double[] score = scores[m];
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < size; i++) {
+                double value = column[i];
+                if (value < min) min = value;
+                if (value > max) max = value;
+            }
+            double range = max - min;
+            boolean lowerIsBetter = LOWER_IS_BETTER[m];
+            for (int i = 0; i < size; i++) {
+                double value = column[i];
+                if (Double.isNaN(value)) {
+                    score[i] = 0.0;
+                } else if (range > 0) {
+                    double position = (value - min) / range;
+                    score[i] = 10 * (lowerIsBetter ? 1 - position : position);
+                } else {
+                    score[i] = 5.0;
+                }
+            }
+        }
+        normalized = true;
+    }
+
+    public double getScore(int metric, int row) {
+        ensureNormalized();
+        return scores[metric][row];
+    }
+
+    // Weighted total of every row
+    public double[] totals(WeightProfile profile) {
+        return weightedSum(profile.effectiveWeights());
+    }
+
+    // Speed category score of every row (metric-weighted average of the speed scores)
+    public double[] speedScores(WeightProfile profile) {
+        return weightedSum(categoryWeights(profile, true));
+    }
+
+    // Security category score of every row
+    public double[] securityScores(WeightProfile profile) {
+        return weightedSum(categoryWeights(profile, false));
+    }
+
+    private static double[] categoryWeights(WeightProfile profile, boolean speed) {
+        double[] weights = new double[METRICS.length];
+        double sum = 0;
+        for (int m = 0; m < METRICS.length; m++) {
+            if (isSpeedMetric(m) == speed) {
+                weights[m] = profile.getMetricWeight(m);
+                sum += weights[m];
+            }
+        }
+        for (int m = 0; m < METRICS.length; m++) {
+            weights[m] = sum == 0 ? 0 : weights[m] / sum;
+        }
+        return weights;
+    }
+
+    private double[] weightedSum(double[] weights) {
+        ensureNormalized();
+        double[] result = new double[size];
+        for (int m = 0; m < METRICS.length; m++) {
+            double weight = weights[m];
+            if (weight == 0) continue;
+            double[] score = scores[m];
+            for (int i = 0; i < size; i++) {
+                result[i] += weight * score[i];
+            }
+        }
+        return result;
+    }
+
+    // Row indices ordered by total score, best first
+    public int[] rank(WeightProfile profile) {
+        return sortDescending(totals(profile));
+    }
+
+    // Rows that no other row beats on both speed and security (higher is better for both),
+    // ordered from fastest to most secure
+    public int[] paretoFrontier(WeightProfile profile) {
+        double[] speed = speedScores(profile);
+        double[] security = securityScores(profile);
+        int[] bySpeed = sortDescending(speed, security);
+        int[] frontier = new int[size];
+        int count = 0;
+        double bestSecurity = Double.NEGATIVE_INFINITY;
+        for (int row : bySpeed) {
+            // Rows are visited fastest first, so a row is only dominated by a more secure row already seen
+            if (security[row] > bestSecurity) {
+                frontier[count++] = row;
+                bestSecurity = security[row];
+            }
+        }
+        return Arrays.copyOf(frontier, count);
+    }
+
+    private void ensureNormalized() {
+        if (!normalized) {
+            normalize();
+        }
+    }
+
+    private static int[] sortDescending(double[] keys) {
+        return sortDescending(keys, null);
+    }
+
+    // Stable index sort by keys (then tieBreak, if given), both descending
+    private static int[] sortDescending(double[] keys, double[] tieBreak) {
+        int[] order = new int[keys.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        mergeSort(order, new int[order.length], 0, order.length, keys, tieBreak);
+        return order;
+    }
+
+    private static void mergeSort(int[] order, int[] scratch, int from, int to, double[] keys, double[] tieBreak) {
+        if (to - from < 2) return;
+        int middle = (from + to) >>> 1;
+        mergeSort(order, scratch, from, middle, keys, tieBreak);
+        mergeSort(order, scratch, middle, to, keys, tieBreak);
+        System.arraycopy(order, from, scratch, from, to - from);
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < middle && !before(scratch[right], scratch[left], keys, tieBreak))) {
+                order[i] = scratch[left++];
+            } else {
+                order[i] = scratch[right++];
+            }
+        }
+    }
+
+    // Whether row a sorts strictly before row b
+    private static boolean before(int a, int b, double[] keys, double[] tieBreak) {
+        int compare = Double.compare(keys[a], keys[b]);
+        if (compare == 0 && tieBreak != null) {
+            compare = Double.compare(tieBreak[a], tieBreak[b]);
+        }
+        return compare > 0;
+    }
+}
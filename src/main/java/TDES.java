@@ -1,13 +1,25 @@
-import javax.crypto.Cipher;
 import javax.crypto.KeyGenerator;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
 
-public class TDES implements EncryptionAlgorithm {
+public class TDES extends JcaAlgorithm implements EncryptionAlgorithm, BufferedEncryption {
     private SecretKey key;
-    private final String transformation = "DESede/ECB/PKCS5Padding"; // TDES transformation
+    private final BlockCipherMode mode;
+    private final String padding;
+    private static final int BLOCK_SIZE = 8; // In bytes
 
     public TDES() throws Exception {
+        this(BlockCipherMode.getDefault(), BlockCipherMode.getConfiguredPadding());
+    }
+
+    // Use the given mode; a null padding selects the mode's default padding
+    public TDES(BlockCipherMode mode, String padding) throws Exception {
+        super(mode.transformation("DESede", mode.resolvePadding(padding)));
+        if (!mode.supports(BLOCK_SIZE)) {
+            throw new IllegalArgumentException(mode + " is not supported by TDES");
+        }
+        this.mode = mode;
+        this.padding = mode.resolvePadding(padding);
         KeyGenerator keyGen = KeyGenerator.getInstance("DESede"); // TDES key generator
         keyGen.init(168); // TDES uses a 168-bit key
         this.key = keyGen.generateKey();
@@ -15,16 +27,36 @@ public class TDES implements EncryptionAlgorithm {
 
     @Override
     public byte[] encrypt(byte[] plaintext) throws Exception {
-        Cipher cipher = Cipher.getInstance(transformation);
-        cipher.init(Cipher.ENCRYPT_MODE, key);
-        return cipher.doFinal(plaintext);
+        return mode.encrypt(newCipher(), key, plaintext, BLOCK_SIZE);
     }
 
     @Override
     public byte[] decrypt(byte[] ciphertext) throws Exception {
-        Cipher cipher = Cipher.getInstance(transformation);
-        cipher.init(Cipher.DECRYPT_MODE, key);
-        return cipher.doFinal(ciphertext);
+        return mode.decrypt(newCipher(), key, ciphertext, BLOCK_SIZE);
+    }
+
+    @Override
+    public int getMaxEncryptedLength(int plaintextLength) {
+        return mode.maxEncryptedLength(plaintextLength, BLOCK_SIZE);
+    }
+
+    @Override
+    public int encrypt(byte[] input, int offset, int length, byte[] output, int outputOffset) throws Exception {
+        return mode.encrypt(newCipher(), key, input, offset, length, output, outputOffset, BLOCK_SIZE);
+    }
+
+    @Override
+    public int getMaxDecryptedLength(int ciphertextLength) {
+        return mode.maxDecryptedLength(ciphertextLength, BLOCK_SIZE);
+    }
+
+    @Override
+    public int decrypt(byte[] input, int offset, int length, byte[] output, int outputOffset) throws Exception {
+        return mode.decrypt(newCipher(), key, input, offset, length, output, outputOffset, BLOCK_SIZE);
+    }
+
+    public BlockCipherMode getMode() {
+        return mode;
     }
 
     @Override
@@ -34,6 +66,6 @@ public class TDES implements EncryptionAlgorithm {
 
     @Override
     public String getName() {
-        return "TDES";
+        return mode.displayName("TDES", padding);
     }
 }
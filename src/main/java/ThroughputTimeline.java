@@ -0,0 +1,273 @@
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+
+// Encryption throughput per fixed-size chunk, in file order, with the garbage collections that ran
+// while each chunk was encrypted. One aggregate MB/s hides GC pauses, JIT deoptimization and
+// page-cache misses partway through a file; the timeline shows where they happened.
+//
+// GC activity is read from the collector MXBeans (collection count and accumulated time) before
+// and after every chunk, so each collection is attributed to the chunk it interrupted. The
+// counters are per JVM, so collections caused by other threads are included.
+public class ThroughputTimeline {
+
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+    private static final int INITIAL_CAPACITY = 64;
+    // A chunk slower than this fraction of the median counts as a dip
+    private static final double DIP_FRACTION = 0.5;
+
+    private final int chunkSize;
+    private double[] throughput = new double[INITIAL_CAPACITY]; // MB/s per chunk
+    private double[] gcMillis = new double[INITIAL_CAPACITY]; // GC time during each chunk
+    private int[] gcCounts = new int[INITIAL_CAPACITY];
+    private int chunks;
+
+    // Recording state of the current chunk
+    private final List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+    private long chunkStartNanos;
+    private long chunkStartGcCount;
+    private long chunkStartGcMillis;
+
+    public ThroughputTimeline(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    // Chunk size from -Danalysis.timelineChunkSize (default 64 KB) for the in-memory analysis; the
+    // fused pipeline records one point per pipeline chunk
+    public static int getConfiguredChunkSize() {
+        return Integer.getInteger("analysis.timelineChunkSize", DEFAULT_CHUNK_SIZE);
+    }
+
+    // Whether the in-memory analysis makes the extra chunked pass, e.g. -Danalysis.timeline=false to
+    // skip it (default: true)
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(System.getProperty("analysis.timeline", "true"));
+    }
+
+    // Record a timeline by encrypting data chunk by chunk (each chunk a separate message)
+    public static ThroughputTimeline record(EncryptionAlgorithm algorithm, byte[] data, int chunkSize) throws Exception {
+        ThroughputTimeline timeline = new ThroughputTimeline(chunkSize);
+        BufferedEncryption buffered = algorithm instanceof BufferedEncryption ? (BufferedEncryption) algorithm : null;
+        byte[] output = buffered == null ? null : new byte[buffered.getMaxEncryptedLength(Math.min(chunkSize, data.length))];
+        for (int offset = 0; offset < data.length; offset += chunkSize) {
+            int length = Math.min(chunkSize, data.length - offset);
+            // The byte[] API needs an exact-length array, copied before the clock starts
+            byte[] chunk = buffered == null ? Arrays.copyOfRange(data, offset, offset + length) : null;
+            timeline.startChunk();
+            if (buffered != null) {
+                buffered.encrypt(data, offset, length, output, 0);
+            } else {
+                algorithm.encrypt(chunk);
+            }
+            timeline.endChunk(length);
+        }
+        return timeline;
+    }
+
+    // Rebuild a stored timeline
+    public static ThroughputTimeline of(int chunkSize, double[] throughput, double[] gcMillis, double[] gcCounts) {
+        ThroughputTimeline timeline = new ThroughputTimeline(chunkSize);
+        for (int i = 0; i < throughput.length; i++) {
+            timeline.add(throughput[i], i < gcMillis.length ? gcMillis[i] : 0, i < gcCounts.length ? (int) gcCounts[i] : 0);
+        }
+        return timeline;
+    }
+
+    public void startChunk() {
+        chunkStartGcCount = 0;
+        chunkStartGcMillis = 0;
+        for (GarbageCollectorMXBean collector : collectors) {
+            chunkStartGcCount += Math.max(0, collector.getCollectionCount());
+            chunkStartGcMillis += Math.max(0, collector.getCollectionTime());
+        }
+        chunkStartNanos = System.nanoTime();
+    }
+
+    // Close the current chunk; the timed region is only the encryption between start and end
+    public void endChunk(int chunkBytes) {
+        endChunk(chunkBytes, System.nanoTime() - chunkStartNanos);
+    }
+
+    // Close the current chunk with an encryption time measured by the caller (GC activity still
+    // covers everything since startChunk)
+    public void endChunk(int chunkBytes, long elapsed) {
+        long gcCount = 0;
+        long gcTime = 0;
+        for (GarbageCollectorMXBean collector : collectors) {
+            gcCount += Math.max(0, collector.getCollectionCount());
+            gcTime += Math.max(0, collector.getCollectionTime());
+        }
+        double seconds = Math.max(elapsed, 1) / 1e9;
+        add(chunkBytes / (1024.0 * 1024.0) / seconds, gcTime - chunkStartGcMillis, (int) (gcCount - chunkStartGcCount));
+    }
+
+    private void add(double chunkThroughput, double chunkGcMillis, int chunkGcCount) {
+        if (chunks == throughput.length) {
+            int capacity = chunks * 2;
+            throughput = Arrays.copyOf(throughput, capacity);
+            gcMillis = Arrays.copyOf(gcMillis, capacity);
+            gcCounts = Arrays.copyOf(gcCounts, capacity);
+        }
+        throughput[chunks] = chunkThroughput;
+        gcMillis[chunks] = chunkGcMillis;
+        gcCounts[chunks] = chunkGcCount;
+        chunks++;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public int getChunks() {
+        return chunks;
+    }
+
+    // Start of a chunk in the file, in MB
+    public double getOffsetMB(int chunk) {
+        return (double) chunk * chunkSize / (1024.0 * 1024.0);
+    }
+
+    public double getThroughput(int chunk) {
+        return throughput[chunk];
+    }
+
+    public double getGcMillis(int chunk) {
+        return gcMillis[chunk];
+    }
+
+    public int getGcCount(int chunk) {
+        return gcCounts[chunk];
+    }
+
+    public double[] getThroughputs() {
+        return Arrays.copyOf(throughput, chunks);
+    }
+
+    public double[] getGcMillisPerChunk() {
+        return Arrays.copyOf(gcMillis, chunks);
+    }
+
+    public double[] getGcCountsPerChunk() {
+        double[] counts = new double[chunks];
+        for (int i = 0; i < chunks; i++) {
+            counts[i] = gcCounts[i];
+        }
+        return counts;
+    }
+
+    // Summary of how steady the throughput was over the run
+    public Stability getStability() {
+        return new Stability(this);
+    }
+
+    public static class Stability {
+        private final int chunks;
+        private final double median;
+        private final double min;
+        private final double p5;
+        private final double max;
+        private final double coefficientOfVariation;
+        private final int dips;
+        private final int gcChunks;
+        private final double gcMillis;
+        private final double slowestOffsetMB;
+        private final double medianWithGc;
+
+        Stability(ThroughputTimeline timeline) {
+            chunks = timeline.chunks;
+            double[] sorted = timeline.getThroughputs();
+            Arrays.sort(sorted);
+            median = percentile(sorted, 50);
+            min = chunks == 0 ? 0 : sorted[0];
+            p5 = percentile(sorted, 5);
+            max = chunks == 0 ? 0 : sorted[chunks - 1];
+            double mean = 0;
+            for (double value : sorted) {
+                mean += value;
+            }
+            mean = chunks == 0 ? 0 : mean / chunks;
+            double squares = 0;
+            for (double value : sorted) {
+                squares += (value - mean) * (value - mean);
+            }
+            coefficientOfVariation = chunks < 2 || mean == 0 ? 0 : Math.sqrt(squares / (chunks - 1)) / mean;
+
+            int dipCount = 0;
+            int gcChunkCount = 0;
+            double gcTotal = 0;
+            int slowest = 0;
+            double[] withGc = new double[chunks];
+            for (int i = 0; i < chunks; i++) {
+                if (timeline.throughput[i] < DIP_FRACTION * median) dipCount++;
+                if (timeline.throughput[i] < timeline.throughput[slowest]) slowest = i;
+                if (timeline.gcCounts[i] > 0) {
+                    withGc[gcChunkCount++] = timeline.throughput[i];
+                    gcTotal += timeline.gcMillis[i];
+                }
+            }
+            dips = dipCount;
+            gcChunks = gcChunkCount;
+            gcMillis = gcTotal;
+            slowestOffsetMB = timeline.getOffsetMB(slowest);
+            double[] gcSorted = Arrays.copyOf(withGc, gcChunkCount);
+            Arrays.sort(gcSorted);
+            medianWithGc = gcChunkCount == 0 ? Double.NaN : percentile(gcSorted, 50);
+        }
+
+        // Nearest-rank percentile of sorted values
+        private static double percentile(double[] sorted, double p) {
+            if (sorted.length == 0) return 0;
+            int rank = (int) Math.ceil(p / 100.0 * sorted.length);
+            return sorted[Math.min(sorted.length - 1, Math.max(0, rank - 1))];
+        }
+
+        public int getChunks() {
+            return chunks;
+        }
+
+        public double getMedian() {
+            return median;
+        }
+
+        public double getMin() {
+            return min;
+        }
+
+        public double getP5() {
+            return p5;
+        }
+
+        public double getMax() {
+            return max;
+        }
+
+        // Standard deviation over mean of the chunk throughputs
+        public double getCoefficientOfVariation() {
+            return coefficientOfVariation;
+        }
+
+        // Chunks slower than half the median
+        public int getDips() {
+            return dips;
+        }
+
+        // Chunks during which at least one collection ran
+        public int getGcChunks() {
+            return gcChunks;
+        }
+
+        public double getGcMillis() {
+            return gcMillis;
+        }
+
+        public double getSlowestOffsetMB() {
+            return slowestOffsetMB;
+        }
+
+        // Median throughput of the chunks hit by a collection (NaN when there were none)
+        public double getMedianWithGc() {
+            return medianWithGc;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+import java.util.Arrays;
+import java.util.List;
+
+// Records the latency of every encryption from the very first call of a freshly created algorithm
+// until the latency stabilizes, to separate cold-start cost (short-lived CLI jobs) from steady
+// state (long-running services).
+//
+// Steady state is reached when the coefficient of variation within a window of WINDOW calls is
+// below STABLE_CV and the window mean is within STABLE_DRIFT of the previous window's mean.
+public class WarmupProfiler {
+
+    public static final int WINDOW = 20;
+    public static final double STABLE_CV = 0.10;
+    public static final double STABLE_DRIFT = 0.05;
+    public static final int DEFAULT_MAX_ITERATIONS = 5000;
+    public static final long DEFAULT_MAX_MILLIS = 20_000;
+
+    // Warm-up curve of one algorithm
+    public static class Profile {
+        private final String algorithm;
+        private final double[] latenciesMs;
+        private final int steadyIteration; // Index of the first steady call, -1 if never reached
+        private final double steadyLatencyMs;
+        private final double payloadMB;
+        private final double creationMs;
+
+        public Profile(String algorithm, double[] latenciesMs, int steadyIteration, double steadyLatencyMs,
+                       double payloadMB, double creationMs) {
+            this.algorithm = algorithm;
+            this.latenciesMs = latenciesMs;
+            this.steadyIteration = steadyIteration;
+            this.steadyLatencyMs = steadyLatencyMs;
+            this.payloadMB = payloadMB;
+            this.creationMs = creationMs;
+        }
+
+        public String getAlgorithm() {
+            return algorithm;
+        }
+
+        // Latency of every call, starting with the first
+        public double[] getLatenciesMs() {
+            return latenciesMs;
+        }
+
+        // Key generation and setup before the first call
+        public double getCreationMs() {
+            return creationMs;
+        }
+
+        public double getFirstCallMs() {
+            return latenciesMs[0];
+        }
+
+        public boolean isSteady() {
+            return steadyIteration >= 0;
+        }
+
+        // Calls made before steady state (the first steady call is not counted)
+        public int getIterationsToSteadyState() {
+            return steadyIteration;
+        }
+
+        // Total time spent in the calls before steady state
+        public double getTimeToSteadyStateMs() {
+            double total = 0;
+            int end = isSteady() ? steadyIteration : latenciesMs.length;
+            for (int i = 0; i < end; i++) {
+                total += latenciesMs[i];
+            }
+            return total;
+        }
+
+        public double getSteadyLatencyMs() {
+            return steadyLatencyMs;
+        }
+
+        public double getSteadyThroughput() {
+            return payloadMB / (steadyLatencyMs / 1000.0);
+        }
+    }
+
+    private final int maxIterations;
+    private final long maxMillis;
+
+    public WarmupProfiler(int maxIterations, long maxMillis) {
+        this.maxIterations = Math.max(2 * WINDOW, maxIterations);
+        this.maxMillis = maxMillis;
+    }
+
+    // Create the algorithm and record its warm-up curve on payload. Algorithms measured earlier in the
+    // same JVM have already warmed up shared code (JCA lookup, common cipher classes); profile one
+    // algorithm per JVM for a true cold start.
+    public Profile profile(String algorithmName, byte[] payload) throws Exception {
+        long createStart = System.nanoTime();
+        EncryptionAlgorithm algorithm = AlgorithmRegistry.getDefault().create(algorithmName);
+        double creationMs = (System.nanoTime() - createStart) / 1_000_000.0;
+
+        double[] latencies = new double[maxIterations];
+        long deadline = System.nanoTime() + maxMillis * 1_000_000L;
+        int count = 0;
+        int steadyIteration = -1;
+        double previousWindowMean = Double.NaN;
+        while (count < maxIterations) {
+            long start = System.nanoTime();
+            algorithm.encrypt(payload);
+            long end = System.nanoTime();
+            latencies[count++] = (end - start) / 1_000_000.0;
+
+            if (count % WINDOW == 0) {
+                double[] window = Arrays.copyOfRange(latencies, count - WINDOW, count);
+                double mean = RunComparator.mean(window);
+                double cv = Math.sqrt(RunComparator.variance(window)) / mean;
+                if (cv < STABLE_CV && Math.abs(mean - previousWindowMean) < STABLE_DRIFT * previousWindowMean) {
+                    // The previous window was already at this level, so steady state began there
+                    steadyIteration = count - 2 * WINDOW;
+                    break;
+                }
+                previousWindowMean = mean;
+            }
+            if (end > deadline) {
+                break;
+            }
+        }
+        double[] recorded = Arrays.copyOf(latencies, count);
+        double steadyLatency = steadyIteration >= 0
+                ? median(Arrays.copyOfRange(recorded, steadyIteration, count))
+                : median(Arrays.copyOfRange(recorded, Math.max(0, count - WINDOW), count));
+        return new Profile(algorithm.getName(), recorded, steadyIteration, steadyLatency,
+                payload.length / (1024.0 * 1024.0), creationMs);
+    }
+
+    private static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int middle = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2;
+    }
+
+    public static void printProfiles(List<Profile> profiles) {
+        Main.writeResult("\n=== Cold start vs steady state ===");
+        Main.writeResultf("%-18s %-12s %-14s %-12s %-16s %-16s %-14s%n", "Algorithm", "Setup (ms)", "First Call (ms)",
+                "Calls", "To Steady (ms)", "Steady (ms)", "Steady MB/s");
+        for (Profile profile : profiles) {
+            Main.writeResultf("%-18s %-12.2f %-14.3f %-12s %-16.2f %-16.4f %-14.2f%n", profile.getAlgorithm(),
+                    profile.getCreationMs(), profile.getFirstCallMs(),
+                    profile.isSteady() ? String.valueOf(profile.getIterationsToSteadyState()) : ">" + profile.getLatenciesMs().length,
+                    profile.getTimeToSteadyStateMs(), profile.getSteadyLatencyMs(), profile.getSteadyThroughput());
+        }
+
+        // Condensed curves: latency at roughly logarithmically spaced calls
+        Main.writeResult("\nLatency (ms) by call number:");
+        int[] marks = {1, 2, 3, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000};
+        StringBuilder header = new StringBuilder(String.format("%-18s", "Algorithm"));
+        for (int mark : marks) {
+            header.append(String.format(" %-9s", "#" + mark));
+        }
+        Main.writeResult(header.toString());
+        for (Profile profile : profiles) {
+            StringBuilder row = new StringBuilder(String.format("%-18s", profile.getAlgorithm()));
+            double[] latencies = profile.getLatenciesMs();
+            for (int mark : marks) {
+                row.append(String.format(" %-9s", mark <= latencies.length ? String.format("%.3f", latencies[mark - 1]) : "-"));
+            }
+            Main.writeResult(row.toString());
+        }
+    }
+}
@@ -0,0 +1,166 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeSet;
+
+// Weights used by ScoringEngine to turn the normalized metric scores into a total. The speed and
+// security weights apply to the category scores; within a category each metric has a relative
+// weight (default 1, i.e. the plain average).
+//
+// Profiles are read from a properties file, one key per weight:
+//
+//   latency.speed=0.7
+//   latency.security=0.3
+//   latency.encryptionTime=3
+//
+// Keys are <profile>.speed, <profile>.security and <profile>.<metric> for any ScoringEngine
+// metric. The built-in "balanced" profile reproduces the original 0.3 speed / 0.5 security total.
+public class WeightProfile {
+
+    public static final String DEFAULT_FILE = "scoring-profiles.properties";
+    public static final WeightProfile BALANCED = new WeightProfile("balanced", 0.3, 0.5, null);
+    public static final WeightProfile SPEED = new WeightProfile("speed", 0.8, 0.2, null);
+    public static final WeightProfile SECURITY = new WeightProfile("security", 0.2, 0.8, null);
+
+    private final String name;
+    private final double speedWeight;
+    private final double securityWeight;
+    private final double[] metricWeights; // relative weight of each ScoringEngine metric within its category
+
+    // metricWeights may be null (every metric weighs 1)
+    public WeightProfile(String name, double speedWeight, double securityWeight, double[] metricWeights) {
+        if (speedWeight < 0 || securityWeight < 0) {
+            throw new IllegalArgumentException("Weights of profile " + name + " must not be negative");
+        }
+        this.name = name;
+        this.speedWeight = speedWeight;
+        this.securityWeight = securityWeight;
+        this.metricWeights = new double[ScoringEngine.METRICS.length];
+        for (int m = 0; m < this.metricWeights.length; m++) {
+            double weight = metricWeights == null ? 1.0 : metricWeights[m];
+            if (weight < 0) {
+                throw new IllegalArgumentException("Weight of " + ScoringEngine.METRICS[m] + " in profile " + name + " must not be negative");
+            }
+            this.metricWeights[m] = weight;
+        }
+    }
+
+    // Same metric weights with other category weights, e.g. from the GUI sliders
+    public WeightProfile withCategoryWeights(double speed, double security) {
+        return new WeightProfile(name, speed, security, metricWeights);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getSpeedWeight() {
+        return speedWeight;
+    }
+
+    public double getSecurityWeight() {
+        return securityWeight;
+    }
+
+    public double getMetricWeight(int metric) {
+        return metricWeights[metric];
+    }
+
+    // Weight of each metric in the total: its category weight times its share of the category
+    public double[] effectiveWeights() {
+        double[] weights = new double[metricWeights.length];
+        double speedSum = 0;
+        double securitySum = 0;
+        for (int m = 0; m < weights.length; m++) {
+            if (ScoringEngine.isSpeedMetric(m)) {
+                speedSum += metricWeights[m];
+            } else {
+                securitySum += metricWeights[m];
+            }
+        }
+        for (int m = 0; m < weights.length; m++) {
+            boolean speed = ScoringEngine.isSpeedMetric(m);
+            double sum = speed ? speedSum : securitySum;
+            weights[m] = sum == 0 ? 0 : (speed ? speedWeight : securityWeight) * metricWeights[m] / sum;
+        }
+        return weights;
+    }
+
+    // The built-in profiles followed by the profiles in the file (which may override them by name)
+    public static Map<String, WeightProfile> load(Path file) throws IOException {
+        Map<String, WeightProfile> profiles = new LinkedHashMap<>();
+        for (WeightProfile profile : new WeightProfile[]{BALANCED, SPEED, SECURITY}) {
+            profiles.put(profile.getName(), profile);
+        }
+        if (file == null || !Files.isRegularFile(file)) {
+            return profiles;
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        TreeSet<String> names = new TreeSet<>();
+        for (String key : properties.stringPropertyNames()) {
+            int dot = key.lastIndexOf('.');
+            if (dot <= 0) {
+                throw new IOException("Invalid weight key in " + file + ": " + key);
+            }
+            names.add(key.substring(0, dot));
+        }
+        for (String name : names) {
+            WeightProfile base = profiles.getOrDefault(name, BALANCED);
+            double[] metricWeights = new double[ScoringEngine.METRICS.length];
+            for (int m = 0; m < metricWeights.length; m++) {
+                metricWeights[m] = weight(properties, name + "." + ScoringEngine.METRICS[m], base.getMetricWeight(m), file);
+            }
+            profiles.put(name, new WeightProfile(name,
+                    weight(properties, name + ".speed", base.getSpeedWeight(), file),
+                    weight(properties, name + ".security", base.getSecurityWeight(), file), metricWeights));
+        }
+        for (String key : properties.stringPropertyNames()) {
+            String field = key.substring(key.lastIndexOf('.') + 1);
+            if (!field.equals("speed") && !field.equals("security") && !Arrays.asList(ScoringEngine.METRICS).contains(field)) {
+                throw new IOException("Unknown weight in " + file + ": " + key);
+            }
+        }
+        return profiles;
+    }
+
+    private static double weight(Properties properties, String key, double defaultValue, Path file) throws IOException {
+        String value = properties.getProperty(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid weight in " + file + ": " + key + "=" + value);
+        }
+    }
+
+    // Profiles from -Dscoring.profiles (default scoring-profiles.properties in the working directory)
+    public static Map<String, WeightProfile> loadConfigured() throws IOException {
+        return load(Paths.get(System.getProperty("scoring.profiles", DEFAULT_FILE)));
+    }
+
+    // Profile selected with -Dscoring.profile (default: balanced)
+    public static WeightProfile getActive() {
+        String name = System.getProperty("scoring.profile", BALANCED.getName());
+        try {
+            WeightProfile profile = loadConfigured().get(name);
+            if (profile == null) {
+                throw new IllegalArgumentException("Unknown scoring profile: " + name);
+            }
+            return profile;
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read scoring profiles: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,236 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import javax.crypto.Cipher;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+// Allocation budgets for the encrypt/decrypt hot path of every registered algorithm, measured with
+// the per-thread allocation counter (ArenaBenchmark.allocatedBytes). Each direction is timed at two
+// payload sizes; the difference gives the bytes allocated per payload byte and the rest is the fixed
+// cost per operation. An algorithm that starts copying its input or buffering its output again fails
+// here instead of showing up as GC pressure in production.
+//
+// The byte[] API has to return a new array, so one byte per payload byte is its floor. The
+// BufferedEncryption API writes into caller-supplied arrays and should add nothing per byte beyond
+// what the JCE cipher itself allocates. Budgets sit about 30% above the measured cost; new
+// algorithms get the default budget until they need their own entry.
+public class AllocationBudgetTest {
+
+    private static final int SMALL_PAYLOAD = 1024;
+    private static final int LARGE_PAYLOAD = 16 * 1024;
+    // Warm-up lets the JIT settle (escape analysis removes some allocations once compiled)
+    private static final long WARMUP_NANOS = 300_000_000L;
+    private static final long MEASURE_NANOS = 100_000_000L;
+    private static final int MIN_OPERATIONS = 3;
+    private static final int RSA_INPUT_BLOCK = 245; // PKCS#1 v1.5 on a 2048-bit key
+    private static final int RSA_OUTPUT_BLOCK = 256;
+
+    // Fixed bytes per operation and bytes per payload byte
+    private static final class Budget {
+        final double fixedBytes;
+        final double bytesPerByte;
+
+        Budget(double fixedBytes, double bytesPerByte) {
+            this.fixedBytes = fixedBytes;
+            this.bytesPerByte = bytesPerByte;
+        }
+    }
+
+    private static final Budget DEFAULT_BYTE_ARRAY_BUDGET = new Budget(24 * 1024, 1.3);
+    private static final Budget DEFAULT_BUFFERED_BUDGET = new Budget(24 * 1024, 0.25);
+    private static final Map<String, Budget> BYTE_ARRAY_BUDGETS = new HashMap<>();
+    private static final Map<String, Budget> BUFFERED_BUDGETS = new HashMap<>();
+
+    static {
+        // RSA: BigInteger arithmetic per 245-byte block, decryption (CRT) costs far more than encryption.
+        // These budgets are only about 10% above the measured cost, and rsaAddsNothingBeyondTheCipher
+        // catches an extra copy that would still fit in them
+        BYTE_ARRAY_BUDGETS.put("RSA encrypt", new Budget(24 * 1024, 24.5));
+        BYTE_ARRAY_BUDGETS.put("RSA decrypt", new Budget(64 * 1024, 200));
+        BUFFERED_BUDGETS.put("RSA encrypt", new Budget(24 * 1024, 23.5));
+        BUFFERED_BUDGETS.put("RSA decrypt", new Budget(64 * 1024, 200));
+        // Password-based key derivation on every message (fresh salt) dominates the fixed cost
+        BYTE_ARRAY_BUDGETS.put("PBKDF2-SHA256-AES encrypt", new Budget(6 * 1024 * 1024, 2.6));
+        BYTE_ARRAY_BUDGETS.put("PBKDF2-SHA256-AES decrypt", new Budget(6 * 1024 * 1024, 2.6));
+        // The JDK's ChaCha20-Poly1305 holds the whole ciphertext until the tag is verified
+        BYTE_ARRAY_BUDGETS.put("ChaCha20-Poly1305 decrypt", new Budget(24 * 1024, 3.3));
+        BUFFERED_BUDGETS.put("ChaCha20-Poly1305 decrypt", new Budget(24 * 1024, 2.7));
+        // The JDK's padded block cipher modes copy the data once inside doFinal (to pad on encryption,
+        // to strip the padding on decryption), on top of the array the byte[] API returns
+        for (String cipher : new String[] {"AES", "DES", "TDES", "Blowfish", "PBEWithMD5AndDES"}) {
+            BYTE_ARRAY_BUDGETS.put(cipher + " encrypt", new Budget(24 * 1024, 2.6));
+            BYTE_ARRAY_BUDGETS.put(cipher + " decrypt", new Budget(24 * 1024, 2.6));
+            BUFFERED_BUDGETS.put(cipher + " encrypt", new Budget(24 * 1024, 1.3));
+            BUFFERED_BUDGETS.put(cipher + " decrypt", new Budget(24 * 1024, 1.3));
+        }
+    }
+
+    static List<String> algorithms() {
+        return AlgorithmRegistry.getDefault().getNames();
+    }
+
+    @BeforeAll
+    static void requireAllocationCounter() {
+        assumeTrue(ArenaBenchmark.allocatedBytes() >= 0, "Thread allocation counter not supported by this JVM");
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("algorithms")
+    void byteArrayApiStaysWithinBudget(String name) throws Exception {
+        EncryptionAlgorithm algorithm = AlgorithmRegistry.getDefault().create(name);
+        byte[] small = payload(SMALL_PAYLOAD);
+        byte[] large = payload(LARGE_PAYLOAD);
+        byte[] smallCiphertext = algorithm.encrypt(small);
+        byte[] largeCiphertext = algorithm.encrypt(large);
+        assertArrayEquals(large, algorithm.decrypt(largeCiphertext), name + " round trip");
+
+        assertWithinBudget(name + " encrypt", BYTE_ARRAY_BUDGETS, DEFAULT_BYTE_ARRAY_BUDGET,
+                bytesPerOperation(() -> algorithm.encrypt(small)), bytesPerOperation(() -> algorithm.encrypt(large)));
+        assertWithinBudget(name + " decrypt", BYTE_ARRAY_BUDGETS, DEFAULT_BYTE_ARRAY_BUDGET,
+                bytesPerOperation(() -> algorithm.decrypt(smallCiphertext)), bytesPerOperation(() -> algorithm.decrypt(largeCiphertext)));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("algorithms")
+    void bufferedApiStaysWithinBudget(String name) throws Exception {
+        EncryptionAlgorithm algorithm = AlgorithmRegistry.getDefault().create(name);
+        assumeTrue(algorithm instanceof BufferedEncryption, name + " has no buffered API");
+        BufferedEncryption buffered = (BufferedEncryption) algorithm;
+        byte[] small = payload(SMALL_PAYLOAD);
+        byte[] large = payload(LARGE_PAYLOAD);
+        byte[] ciphertext = new byte[buffered.getMaxEncryptedLength(LARGE_PAYLOAD)];
+        byte[] decrypted = new byte[buffered.getMaxDecryptedLength(ciphertext.length)];
+        byte[] smallCiphertext = new byte[buffered.getMaxEncryptedLength(SMALL_PAYLOAD)];
+        int smallLength = buffered.encrypt(small, 0, small.length, smallCiphertext, 0);
+        int largeLength = buffered.encrypt(large, 0, large.length, ciphertext, 0);
+        int decryptedLength = buffered.decrypt(ciphertext, 0, largeLength, decrypted, 0);
+        assertTrue(decryptedLength == LARGE_PAYLOAD, name + " buffered round trip length");
+        for (int i = 0; i < LARGE_PAYLOAD; i++) {
+            assertTrue(decrypted[i] == large[i], name + " buffered round trip differs at byte " + i);
+        }
+
+        assertWithinBudget(name + " encrypt", BUFFERED_BUDGETS, DEFAULT_BUFFERED_BUDGET,
+                bytesPerOperation(() -> buffered.encrypt(small, 0, small.length, smallCiphertext, 0)),
+                bytesPerOperation(() -> buffered.encrypt(large, 0, large.length, ciphertext, 0)));
+        assertWithinBudget(name + " decrypt", BUFFERED_BUDGETS, DEFAULT_BUFFERED_BUDGET,
+                bytesPerOperation(() -> buffered.decrypt(smallCiphertext, 0, smallLength, decrypted, 0)),
+                bytesPerOperation(() -> buffered.decrypt(ciphertext, 0, largeLength, decrypted, 0)));
+    }
+
+    // RSA's BigInteger arithmetic is over 20 bytes per payload byte, so a fixed budget cannot tell an
+    // extra copy of the data (one more byte per byte) from noise. Compare it against the bare JCE
+    // cipher on the same 245/256-byte blocks: the buffered API may add nothing per byte, the byte[] API
+    // one array (encrypt) or an array and a trimming copy (decrypt, the last block may be short). The
+    // allowances include about 0.4 B/B of run-to-run noise; a stream buffer or a per-block copy is more
+    // than that
+    @Test
+    void rsaAddsNothingBeyondTheCipher() throws Exception {
+        EncryptionAlgorithm rsa = AlgorithmRegistry.getDefault().create("RSA");
+        BufferedEncryption buffered = (BufferedEncryption) rsa;
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair keyPair = generator.generateKeyPair();
+        Cipher encryptCipher = Cipher.getInstance("RSA/ECB/PKCS1Padding");
+        Cipher decryptCipher = Cipher.getInstance("RSA/ECB/PKCS1Padding");
+
+        byte[] small = payload(SMALL_PAYLOAD);
+        byte[] large = payload(LARGE_PAYLOAD);
+        byte[] smallCiphertext = rsa.encrypt(small);
+        byte[] largeCiphertext = rsa.encrypt(large);
+        byte[] output = new byte[buffered.getMaxDecryptedLength(largeCiphertext.length) + largeCiphertext.length];
+        encryptCipher.init(Cipher.ENCRYPT_MODE, keyPair.getPublic());
+        decryptCipher.init(Cipher.DECRYPT_MODE, keyPair.getPrivate());
+        byte[] smallBare = new byte[smallCiphertext.length];
+        byte[] largeBare = new byte[largeCiphertext.length];
+        blocks(encryptCipher, small, RSA_INPUT_BLOCK, smallBare);
+        blocks(encryptCipher, large, RSA_INPUT_BLOCK, largeBare);
+
+        double cipherEncrypt = perByte(bytesPerOperation(() -> blocks(encryptCipher, small, RSA_INPUT_BLOCK, output)),
+                bytesPerOperation(() -> blocks(encryptCipher, large, RSA_INPUT_BLOCK, output)));
+        double cipherDecrypt = perByte(bytesPerOperation(() -> blocks(decryptCipher, smallBare, RSA_OUTPUT_BLOCK, output)),
+                bytesPerOperation(() -> blocks(decryptCipher, largeBare, RSA_OUTPUT_BLOCK, output)));
+        assertAddsAtMost("RSA buffered encrypt", cipherEncrypt, 0.5,
+                perByte(bytesPerOperation(() -> buffered.encrypt(small, 0, small.length, output, 0)),
+                        bytesPerOperation(() -> buffered.encrypt(large, 0, large.length, output, 0))));
+        assertAddsAtMost("RSA byte[] encrypt", cipherEncrypt, 1.5,
+                perByte(bytesPerOperation(() -> rsa.encrypt(small)), bytesPerOperation(() -> rsa.encrypt(large))));
+        assertAddsAtMost("RSA buffered decrypt", cipherDecrypt, 0.5,
+                perByte(bytesPerOperation(() -> buffered.decrypt(smallCiphertext, 0, smallCiphertext.length, output, 0)),
+                        bytesPerOperation(() -> buffered.decrypt(largeCiphertext, 0, largeCiphertext.length, output, 0))));
+        assertAddsAtMost("RSA byte[] decrypt", cipherDecrypt, 2.5,
+                perByte(bytesPerOperation(() -> rsa.decrypt(smallCiphertext)), bytesPerOperation(() -> rsa.decrypt(largeCiphertext))));
+    }
+
+    // One doFinal per block straight into output, as RSA does it
+    private static Object blocks(Cipher cipher, byte[] input, int blockSize, byte[] output) throws Exception {
+        int position = 0;
+        for (int i = 0; i < input.length; i += blockSize) {
+            position += cipher.doFinal(input, i, Math.min(blockSize, input.length - i), output, position);
+        }
+        return output;
+    }
+
+    private static double perByte(double smallBytes, double largeBytes) {
+        return (largeBytes - smallBytes) / (LARGE_PAYLOAD - SMALL_PAYLOAD);
+    }
+
+    private static void assertAddsAtMost(String label, double baselinePerByte, double extraPerByte, double measuredPerByte) {
+        assertTrue(measuredPerByte - baselinePerByte <= extraPerByte, String.format(
+                "%s allocates %.2f B per payload byte, the bare cipher %.2f (at most %.1f more allowed)",
+                label, measuredPerByte, baselinePerByte, extraPerByte));
+    }
+
+    private interface Operation {
+        Object run() throws Exception;
+    }
+
+    // Bytes allocated by the current thread per operation, after a warm-up
+    private static double bytesPerOperation(Operation operation) throws Exception {
+        runFor(operation, WARMUP_NANOS);
+        long before = ArenaBenchmark.allocatedBytes();
+        int operations = runFor(operation, MEASURE_NANOS);
+        return (double) (ArenaBenchmark.allocatedBytes() - before) / operations;
+    }
+
+    private static int runFor(Operation operation, long nanos) throws Exception {
+        long start = System.nanoTime();
+        int operations = 0;
+        Object sink = null;
+        while (operations < MIN_OPERATIONS || System.nanoTime() - start < nanos) {
+            sink = operation.run();
+            operations++;
+        }
+        // Keep the results reachable so the JIT cannot drop the work
+        assertTrue(sink != null);
+        return operations;
+    }
+
+    private static void assertWithinBudget(String label, Map<String, Budget> budgets, Budget defaultBudget,
+                                           double smallBytes, double largeBytes) {
+        Budget budget = budgets.getOrDefault(label, defaultBudget);
+        double perByte = Math.max(0, (largeBytes - smallBytes) / (LARGE_PAYLOAD - SMALL_PAYLOAD));
+        double fixed = smallBytes - perByte * SMALL_PAYLOAD;
+        String measured = String.format("%s allocates %.0f B/op at %d B and %.0f B/op at %d B: %.2f B per payload byte + %.0f B per op",
+                label, smallBytes, SMALL_PAYLOAD, largeBytes, LARGE_PAYLOAD, perByte, fixed);
+        assertTrue(perByte <= budget.bytesPerByte, measured + " (budget " + budget.bytesPerByte + " B per payload byte)");
+        assertTrue(fixed <= budget.fixedBytes, measured + " (budget " + budget.fixedBytes + " B per op)");
+    }
+
+    private static byte[] payload(int length) {
+        byte[] data = new byte[length];
+        new Random(42).nextBytes(data);
+        return data;
+    }
+}